@@ -1,10 +1,14 @@
 package com.finsight.ai.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.finsight.ai.security.SigningKeySource;
+import com.finsight.ai.security.X509CertificateKeySource;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -37,4 +41,12 @@ public class FirebaseConfig {
         }
         return FirebaseApp.getInstance();
     }
+
+    // Tests replace it with a @Primary SigningKeySource bean
+    @Bean
+    public SigningKeySource signingKeySource(
+            @Value("${app.auth.local-verification.keys-url:https://www.googleapis.com/robot/v1/metadata/x509/securetoken@system.gserviceaccount.com}") String keysUrl,
+            ObjectMapper objectMapper) {
+        return new X509CertificateKeySource(keysUrl, objectMapper);
+    }
 }
@@ -1,8 +1,8 @@
 package com.finsight.ai.controller;
 
 import com.finsight.ai.entity.User;
+import com.finsight.ai.security.CurrentUser;
 import com.finsight.ai.service.AITipsService;
-import com.finsight.ai.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -18,15 +18,9 @@ public class AITipsController {
     @Autowired
     private AITipsService aiTipsService;
 
-    @Autowired
-    private UserService userService;
-
     @GetMapping("/personalized")
-    public ResponseEntity<?> getPersonalizedTip(@RequestHeader("Authorization") String authToken) {
+    public ResponseEntity<?> getPersonalizedTip(@CurrentUser User user) {
         try {
-            String token = authToken.replace("Bearer ", "");
-            User user = userService.getUserFromToken(token);
-            
             String tip = aiTipsService.generatePersonalizedTip(user);
             return ResponseEntity.ok(Map.of("tip", tip));
         } catch (RuntimeException e) {
@@ -35,11 +29,8 @@ public class AITipsController {
     }
 
     @GetMapping("/multiple")
-    public ResponseEntity<?> getMultipleTips(@RequestHeader("Authorization") String authToken) {
+    public ResponseEntity<?> getMultipleTips(@CurrentUser User user) {
         try {
-            String token = authToken.replace("Bearer ", "");
-            User user = userService.getUserFromToken(token);
-            
             List<String> tips = aiTipsService.getMultipleTips(user);
             return ResponseEntity.ok(Map.of("tips", tips));
         } catch (RuntimeException e) {
@@ -48,14 +39,12 @@ public class AITipsController {
     }
 
     @GetMapping("/daily")
-    public ResponseEntity<?> getDailyTip(@RequestHeader(value = "Authorization", required = false) String authToken,
+    public ResponseEntity<?> getDailyTip(@CurrentUser(required = false) User user,
                                        @RequestParam(required = false) String currency,
                                        @RequestParam(required = false) String country) {
         try {
-            if (authToken != null && !authToken.isEmpty()) {
+            if (user != null) {
                 // Return personalized tip for authenticated user
-                String token = authToken.replace("Bearer ", "");
-                User user = userService.getUserFromToken(token);
                 String tip = aiTipsService.generatePersonalizedTip(user);
                 return ResponseEntity.ok(Map.of("tip", tip, "personalized", true));
             } else {
@@ -64,7 +53,7 @@ public class AITipsController {
                 return ResponseEntity.ok(Map.of("tip", tip, "personalized", false));
             }
         } catch (RuntimeException e) {
-            // Fallback to generic tip if auth fails
+            // Fallback to generic tip if the personalized tip fails
             String tip = aiTipsService.getDailyTip();
             return ResponseEntity.ok(Map.of("tip", tip, "personalized", false));
         }
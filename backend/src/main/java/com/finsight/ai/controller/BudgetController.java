@@ -3,35 +3,41 @@ package com.finsight.ai.controller;
 import com.finsight.ai.dto.BudgetDto;
 import com.finsight.ai.entity.Budget;
 import com.finsight.ai.entity.User;
+import com.finsight.ai.security.CurrentUser;
+import com.finsight.ai.service.BudgetAlertService;
 import com.finsight.ai.service.BudgetService;
-import com.finsight.ai.service.UserService;
+import com.finsight.ai.service.DataVersionService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/budgets")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = "ETag")
 public class BudgetController {
 
     @Autowired
     private BudgetService budgetService;
 
     @Autowired
-    private UserService userService;
+    private DataVersionService dataVersionService;
+
+    @Autowired
+    private BudgetAlertService budgetAlertService;
 
     @PostMapping
-    public ResponseEntity<?> createBudget(@RequestHeader("Authorization") String authToken,
+    public ResponseEntity<?> createBudget(@CurrentUser User user,
                                         @Valid @RequestBody BudgetDto budgetDto) {
         try {
-            String token = authToken.replace("Bearer ", "");
-            User user = userService.getUserFromToken(token);
             Budget budget = budgetService.createBudget(budgetDto, user);
             BudgetDto responseDto = budgetService.convertToDto(budget);
             return ResponseEntity.status(HttpStatus.CREATED).body(responseDto);
@@ -41,37 +47,40 @@ public class BudgetController {
     }
 
     @GetMapping
-    public ResponseEntity<?> getUserBudgets(@RequestHeader("Authorization") String authToken,
+    public ResponseEntity<?> getUserBudgets(@CurrentUser User user,
                                           @RequestParam(required = false) Integer month,
-                                          @RequestParam(required = false) Integer year) {
+                                          @RequestParam(required = false) Integer year,
+                                          @RequestParam(required = false) String fields,
+                                          WebRequest webRequest) {
         try {
-            String token = authToken.replace("Bearer ", "");
-            User user = userService.getUserFromToken(token);
+            // Nothing written since the client's copy: answer 304 (response already set up) without querying
+            if (dataVersionService.checkNotModified(user, webRequest)) {
+                return null;
+            }
+
+            if (fields != null) {
+                List<Map<String, Object>> budgets = budgetService.getUserBudgetFields(user, fields, month, year);
+                return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(budgets);
+            }
 
-            List<Budget> budgets;
+            List<BudgetDto> budgetDtos;
             if (month != null && year != null) {
-                budgets = budgetService.getUserBudgetsByMonth(user, month, year);
+                budgetDtos = budgetService.getUserBudgetDtosByMonth(user, month, year);
             } else {
-                budgets = budgetService.getUserBudgets(user);
+                budgetDtos = budgetService.getUserBudgetDtos(user);
             }
 
-            List<BudgetDto> budgetDtos = budgets.stream()
-                .map(budgetService::convertToDto)
-                .collect(Collectors.toList());
-
-            return ResponseEntity.ok(budgetDtos);
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(budgetDtos);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
     }
 
     @PutMapping("/{budgetId}")
-    public ResponseEntity<?> updateBudget(@RequestHeader("Authorization") String authToken,
+    public ResponseEntity<?> updateBudget(@CurrentUser User user,
                                         @PathVariable Long budgetId,
                                         @Valid @RequestBody BudgetDto budgetDto) {
         try {
-            String token = authToken.replace("Bearer ", "");
-            User user = userService.getUserFromToken(token);
             Budget budget = budgetService.updateBudget(budgetId, budgetDto, user);
             BudgetDto responseDto = budgetService.convertToDto(budget);
             return ResponseEntity.ok(responseDto);
@@ -81,15 +90,20 @@ public class BudgetController {
     }
 
     @DeleteMapping("/{budgetId}")
-    public ResponseEntity<?> deleteBudget(@RequestHeader("Authorization") String authToken,
+    public ResponseEntity<?> deleteBudget(@CurrentUser User user,
                                         @PathVariable Long budgetId) {
         try {
-            String token = authToken.replace("Bearer ", "");
-            User user = userService.getUserFromToken(token);
             budgetService.deleteBudget(budgetId, user);
             return ResponseEntity.ok(Map.of("message", "Budget deleted successfully"));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
         }
     }
+
+    // Threshold alerts (80% and 100%) for the caller's budgets, replacing client-side polling
+    @GetMapping(value = "/alerts/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAlerts(@CurrentUser User user,
+                                   @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return budgetAlertService.subscribe(user, lastEventId);
+    }
 }
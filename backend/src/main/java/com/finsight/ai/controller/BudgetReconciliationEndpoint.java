@@ -0,0 +1,33 @@
+package com.finsight.ai.controller;
+
+import com.finsight.ai.service.BudgetReconciliationJob;
+import com.finsight.ai.service.BudgetReconciliationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Operator trigger for the budget reconciliation: GET shows the last run, POST starts one
+ * (optionally with {"fix": false} to only report drift). It reconciles every user, so it is an
+ * actuator endpoint rather than part of the user-facing API and has to be exposed explicitly.
+ */
+@Component
+@Endpoint(id = "budgetreconciliation")
+public class BudgetReconciliationEndpoint {
+
+    @Autowired
+    private BudgetReconciliationService budgetReconciliationService;
+
+    @ReadOperation
+    public BudgetReconciliationJob lastRun() {
+        return budgetReconciliationService.getLastJob();
+    }
+
+    @WriteOperation
+    public BudgetReconciliationJob start(@Nullable Boolean fix) {
+        return budgetReconciliationService.startReconciliation(fix);
+    }
+}
@@ -2,32 +2,30 @@ package com.finsight.ai.controller;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.finsight.ai.entity.Budget;
-import com.finsight.ai.entity.Expense;
 import com.finsight.ai.entity.ExpenseCategory;
 import com.finsight.ai.entity.User;
+import com.finsight.ai.security.CurrentUser;
 import com.finsight.ai.service.BudgetService;
 import com.finsight.ai.service.ChatbotService;
 import com.finsight.ai.service.ExpenseService;
-import com.finsight.ai.service.FirebaseAuthService;
-import com.finsight.ai.service.UserService;
-import com.google.firebase.auth.FirebaseToken;
+import com.finsight.ai.service.SpendCube;
+import com.finsight.ai.service.SpendingMath;
 
 @RestController
 @RequestMapping("/ai-chatbot")
@@ -37,42 +35,21 @@ public class ChatbotController {
     @Autowired
     private ChatbotService chatbotService;
     
-    @Autowired
-    private FirebaseAuthService firebaseAuthService;
-    
-    @Autowired
-    private UserService userService;
-    
     @Autowired
     private ExpenseService expenseService;
     
     @Autowired
     private BudgetService budgetService;
 
+    @Autowired
+    private SpendCube spendCube;
+
     @PostMapping
     public ResponseEntity<Map<String, String>> chat(
-            @RequestHeader("Authorization") String authHeader,
+            @CurrentUser User user,
             @RequestBody Map<String, Object> payload) {
         
         try {
-            // Extract and verify Firebase token
-            String token = authHeader.replace("Bearer ", "");
-            FirebaseToken firebaseToken = firebaseAuthService.verifyToken(token);
-            
-            if (firebaseToken == null) {
-                return ResponseEntity.status(401).body(Map.of("error", "Invalid token"));
-            }
-            
-            String firebaseUid = firebaseToken.getUid();
-            
-            // Get user from database
-            Optional<User> userOptional = userService.getUserByFirebaseUid(firebaseUid);
-            if (!userOptional.isPresent()) {
-                return ResponseEntity.badRequest().body(Map.of("error", "User not found"));
-            }
-            
-            User user = userOptional.get();
-            
             // Extract request data
             String userMessage = (String) payload.get("message");
             String currency = (String) payload.getOrDefault("currency", "ZAR");
@@ -86,39 +63,30 @@ public class ChatbotController {
             // Get last 6 months for comprehensive historical context
             LocalDate sixMonthsAgo = currentDate.minusMonths(6);
             
-            // Fetch ALL user's financial data for comprehensive context
-            List<Expense> allExpenses = expenseService.getUserExpenses(user);
-            List<Expense> recentExpenses = expenseService.getUserExpensesByDateRange(user, startOfMonth, endOfMonth);
-            List<Expense> last6MonthsExpenses = expenseService.getUserExpensesByDateRange(user, sixMonthsAgo, currentDate);
-            
-            // Get all budgets for current and recent months
+            // Spending comes from the user's spend cube; only budgets are read from the database
             List<Budget> currentBudgets = budgetService.getUserBudgetsByMonth(user, currentDate.getMonthValue(), currentDate.getYear());
             List<Budget> allUserBudgets = budgetService.getUserBudgets(user);
             
-            // Calculate comprehensive financial statistics
-            BigDecimal totalSpentThisMonth = expenseService.getTotalExpenses(user, startOfMonth, endOfMonth);
-            BigDecimal totalSpentLast6Months = expenseService.getTotalExpenses(user, sixMonthsAgo, currentDate);
-            BigDecimal totalAllTimeSpending = allExpenses.stream()
-                .map(Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+            // Calculate comprehensive financial statistics in cents
+            SpendCube.Breakdown currentMonth = spendCube.breakdown(user, startOfMonth, endOfMonth);
+            SpendCube.Breakdown allTime = spendCube.breakdown(user, LocalDate.MIN, LocalDate.MAX);
+            long totalSpentThisMonth = currentMonth.totalCents();
+            long totalSpentLast6Months = spendCube.totalCents(user, sixMonthsAgo, currentDate);
             
             // Get spending by category for current month
             Map<ExpenseCategory, BigDecimal> currentMonthByCategory = expenseService.getExpensesByCategory(user, startOfMonth, endOfMonth);
             
             // Calculate budget utilization
-            BigDecimal totalCurrentBudget = currentBudgets.stream()
-                .map(Budget::getMonthlyLimit)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+            long totalCurrentBudget = SpendingMath.sumCents(currentBudgets, Budget::getMonthlyLimit);
             
             // Get previous month for comparison
             LocalDate lastMonth = currentDate.minusMonths(1);
             LocalDate lastMonthStart = lastMonth.withDayOfMonth(1);
             LocalDate lastMonthEnd = lastMonth.withDayOfMonth(lastMonth.lengthOfMonth());
-            BigDecimal totalSpentLastMonth = expenseService.getTotalExpenses(user, lastMonthStart, lastMonthEnd);
+            long totalSpentLastMonth = spendCube.totalCents(user, lastMonthStart, lastMonthEnd);
             
             // Calculate averages and trends
-            double monthlyAverage = last6MonthsExpenses.isEmpty() ? 0.0 : 
-                totalSpentLast6Months.divide(BigDecimal.valueOf(6), 2, BigDecimal.ROUND_HALF_UP).doubleValue();
+            long monthlyAverage = SpendingMath.average(totalSpentLast6Months, 6);
             
             // Create comprehensive context for AI with ALL database information
             Map<String, Object> aiContext = new HashMap<>();
@@ -130,17 +98,17 @@ public class ChatbotController {
             // Current month data
             aiContext.put("currentMonth", currentDate.getMonth().toString());
             aiContext.put("currentYear", currentDate.getYear());
-            aiContext.put("totalSpentThisMonth", totalSpentThisMonth);
-            aiContext.put("totalCurrentBudget", totalCurrentBudget);
-            aiContext.put("expenseCountThisMonth", recentExpenses.size());
+            aiContext.put("totalSpentThisMonth", SpendingMath.toAmount(totalSpentThisMonth));
+            aiContext.put("totalCurrentBudget", SpendingMath.toAmount(totalCurrentBudget));
+            aiContext.put("expenseCountThisMonth", currentMonth.totalCount());
             aiContext.put("budgetCount", currentBudgets.size());
             
             // Historical data
-            aiContext.put("totalSpentLastMonth", totalSpentLastMonth);
-            aiContext.put("totalSpentLast6Months", totalSpentLast6Months);
-            aiContext.put("totalAllTimeSpending", totalAllTimeSpending);
-            aiContext.put("totalExpenseCount", allExpenses.size());
-            aiContext.put("monthlyAverage", BigDecimal.valueOf(monthlyAverage));
+            aiContext.put("totalSpentLastMonth", SpendingMath.toAmount(totalSpentLastMonth));
+            aiContext.put("totalSpentLast6Months", SpendingMath.toAmount(totalSpentLast6Months));
+            aiContext.put("totalAllTimeSpending", SpendingMath.toAmount(allTime.totalCents()));
+            aiContext.put("totalExpenseCount", allTime.totalCount());
+            aiContext.put("monthlyAverage", SpendingMath.toAmount(monthlyAverage));
             
             // Category breakdown
             aiContext.put("categoryBreakdown", currentMonthByCategory);
@@ -155,56 +123,44 @@ public class ChatbotController {
             // Add comprehensive historical data for ALL months the user has data
             Map<String, Object> monthlyData = new HashMap<>();
             
-            // Get all expenses to determine the full date range
-            LocalDate earliestDate = allExpenses.stream()
-                .map(Expense::getDate)
-                .min(LocalDate::compareTo)
-                .orElse(currentDate.minusYears(2)); // fallback to 2 years ago if no expenses
-            
-            // Get all budgets to see what months have budget data
-            Set<String> budgetMonths = allUserBudgets.stream()
-                .map(budget -> budget.getMonth() + "_" + budget.getYear())
-                .collect(java.util.stream.Collectors.toSet());
-            
-            // Iterate through ALL months from earliest data to current month
-            LocalDate iterDate = earliestDate.withDayOfMonth(1);
-            while (!iterDate.isAfter(currentDate)) {
-                LocalDate monthStart = iterDate.withDayOfMonth(1);
-                LocalDate monthEnd = iterDate.withDayOfMonth(iterDate.lengthOfMonth());
-                
-                // Get spending for this month
-                BigDecimal monthSpending = expenseService.getTotalExpenses(user, monthStart, monthEnd);
-                
-                // Get budgets for this month
-                List<Budget> monthBudgets = budgetService.getUserBudgetsByMonth(user, iterDate.getMonthValue(), iterDate.getYear());
-                BigDecimal monthBudgetTotal = monthBudgets.stream()
-                    .map(Budget::getMonthlyLimit)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-                
+            // From the month of the first expense (or 2 years back) through the current month
+            LocalDate firstExpenseDate = spendCube.firstDay(user);
+            YearMonth firstMonth = YearMonth.from(firstExpenseDate != null ? firstExpenseDate : currentDate.minusYears(2));
+            int months = (int) firstMonth.until(YearMonth.from(currentDate), ChronoUnit.MONTHS) + 1;
+            SpendCube.Series monthlySpending = spendCube.monthly(user, firstMonth, months);
+            
+            // Budget totals per month, from the budgets already loaded
+            long[] monthlyBudgets = new long[months];
+            int[] monthlyBudgetCounts = new int[months];
+            for (Budget budget : allUserBudgets) {
+                long month = firstMonth.until(YearMonth.of(budget.getYear(), budget.getMonth()), ChronoUnit.MONTHS);
+                if (month >= 0 && month < months) {
+                    monthlyBudgets[(int) month] += SpendingMath.toCents(budget.getMonthlyLimit());
+                    monthlyBudgetCounts[(int) month]++;
+                }
+            }
+            
+            for (int month = 0; month < months; month++) {
                 // Only include months that have either spending or budget data
-                if ((monthSpending != null && monthSpending.compareTo(BigDecimal.ZERO) > 0) || 
-                    (monthBudgetTotal != null && monthBudgetTotal.compareTo(BigDecimal.ZERO) > 0)) {
-                    
-                    String monthKey = iterDate.getMonth().toString().toLowerCase() + "_" + iterDate.getYear();
+                if (monthlySpending.cents(month) > 0 || monthlyBudgets[month] > 0) {
+                    YearMonth yearMonth = firstMonth.plusMonths(month);
+                    String monthKey = yearMonth.getMonth().toString().toLowerCase() + "_" + yearMonth.getYear();
                     Map<String, Object> monthInfo = new HashMap<>();
-                    monthInfo.put("month", iterDate.getMonth().toString());
-                    monthInfo.put("year", iterDate.getYear());
-                    monthInfo.put("spending", monthSpending != null ? monthSpending : BigDecimal.ZERO);
-                    monthInfo.put("budget", monthBudgetTotal != null ? monthBudgetTotal : BigDecimal.ZERO);
-                    monthInfo.put("budgetCount", monthBudgets.size());
+                    monthInfo.put("month", yearMonth.getMonth().toString());
+                    monthInfo.put("year", yearMonth.getYear());
+                    monthInfo.put("spending", SpendingMath.toAmount(monthlySpending.cents(month)));
+                    monthInfo.put("budget", SpendingMath.toAmount(monthlyBudgets[month]));
+                    monthInfo.put("budgetCount", monthlyBudgetCounts[month]);
                     
                     monthlyData.put(monthKey, monthInfo);
                 }
-                
-                // Move to next month
-                iterDate = iterDate.plusMonths(1);
             }
             
             aiContext.put("monthlyHistory", monthlyData);
             aiContext.put("totalMonthsWithData", monthlyData.size());
             
             // Get AI response using chatbot service
-            String aiReply = chatbotService.getChatbotReply(userMessage, firebaseUid, currency);
+            String aiReply = chatbotService.getChatbotReply(userMessage, user, currency);
             
             return ResponseEntity.ok(Map.of("reply", aiReply));
             
@@ -1,87 +1,147 @@
 package com.finsight.ai.controller;
 
 import com.finsight.ai.dto.ExpenseDto;
+import com.finsight.ai.dto.ExpenseResponseDto;
 import com.finsight.ai.entity.Expense;
 import com.finsight.ai.entity.ExpenseCategory;
 import com.finsight.ai.entity.User;
+import com.finsight.ai.security.CurrentUser;
+import com.finsight.ai.service.ExpenseExportService;
+import com.finsight.ai.service.ExpenseSearchService;
+import com.finsight.ai.service.DataVersionService;
 import com.finsight.ai.service.ExpenseService;
-import com.finsight.ai.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/expenses")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = "ETag")
 public class ExpenseController {
 
     @Autowired
     private ExpenseService expenseService;
 
     @Autowired
-    private UserService userService;
+    private ExpenseExportService expenseExportService;
+
+    @Autowired
+    private ExpenseSearchService expenseSearchService;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.expenses.export.timeout-ms:1800000}")
+    private long exportTimeoutMs;
 
     @PostMapping
-    public ResponseEntity<?> createExpense(@RequestHeader("Authorization") String authToken,
+    public ResponseEntity<?> createExpense(@CurrentUser User user,
                                          @Valid @RequestBody ExpenseDto expenseDto) {
+        String outcome = "created";
+        long start = System.nanoTime();
         try {
-            String token = authToken.replace("Bearer ", "");
-            User user = userService.getUserFromToken(token);
             Expense expense = expenseService.createExpense(expenseDto, user);
             return ResponseEntity.status(HttpStatus.CREATED).body(expense);
         } catch (RuntimeException e) {
+            outcome = "rejected";
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } finally {
+            Timer.builder("finsight.expenses.create")
+                .description("Time spent creating an expense, including the budget check")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
     }
 
     @GetMapping
-    public ResponseEntity<?> getUserExpenses(@RequestHeader("Authorization") String authToken,
+    public ResponseEntity<?> getUserExpenses(@CurrentUser User user,
                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
-                                           @RequestParam(required = false) ExpenseCategory category) {
+                                           @RequestParam(required = false) ExpenseCategory category,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(required = false) Integer limit,
+                                           @RequestParam(required = false) String fields,
+                                           WebRequest webRequest) {
         try {
-            String token = authToken.replace("Bearer ", "");
-            User user = userService.getUserFromToken(token);
-
-            List<Expense> expenses;
-            if (startDate != null && endDate != null && category != null) {
-                expenses = expenseService.getUserExpensesByCategoryAndDateRange(user, category, startDate, endDate);
-            } else if (startDate != null && endDate != null) {
-                expenses = expenseService.getUserExpensesByDateRange(user, startDate, endDate);
-            } else if (category != null) {
-                expenses = expenseService.getUserExpensesByCategory(user, category);
+            // Nothing written since the client's copy: answer 304 (response already set up) without querying
+            if (dataVersionService.checkNotModified(user, webRequest)) {
+                return null;
+            }
+
+            // Paged when the client asks for it; clients without cursor/limit still get the plain list
+            boolean paged = cursor != null || limit != null;
+            Object expenses;
+            if (fields != null && paged) {
+                expenses = expenseService.getUserExpenseFieldsPage(user, fields, category, startDate, endDate, cursor, limit);
+            } else if (fields != null) {
+                expenses = expenseService.getUserExpenseFields(user, fields, category, startDate, endDate);
+            } else if (paged) {
+                expenses = expenseService.getUserExpensesPage(user, category, startDate, endDate, cursor, limit);
             } else {
-                expenses = expenseService.getUserExpenses(user);
+                expenses = expenseService.getUserExpenseDtos(user, category, startDate, endDate);
             }
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(expenses);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
 
+    @GetMapping("/search")
+    public ResponseEntity<?> searchExpenses(@CurrentUser User user,
+                                          @RequestParam("q") String query,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+                                          @RequestParam(required = false) ExpenseCategory category,
+                                          @RequestParam(required = false) Integer limit) {
+        try {
+            List<ExpenseResponseDto> expenses = expenseSearchService.searchExpenses(user, query, category, startDate, endDate, limit);
             return ResponseEntity.ok(expenses);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
     }
 
+    // A long history takes longer to stream than the default async request timeout allows
+    @GetMapping("/export")
+    public WebAsyncTask<Void> exportExpenses(@CurrentUser User user,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+                                             @RequestParam(required = false) ExpenseCategory category,
+                                             HttpServletResponse response) {
+        return new WebAsyncTask<>(exportTimeoutMs, () -> {
+            response.setContentType("application/x-ndjson");
+            response.setHeader("Content-Disposition", "attachment; filename=\"expenses.ndjson\"");
+            expenseExportService.exportExpenses(user, category, startDate, endDate, response.getOutputStream());
+            response.flushBuffer();
+            return null;
+        });
+    }
+
     @GetMapping("/{expenseId}")
-    public ResponseEntity<?> getExpense(@RequestHeader("Authorization") String authToken,
+    public ResponseEntity<?> getExpense(@CurrentUser User user,
                                       @PathVariable Long expenseId) {
         try {
-            String token = authToken.replace("Bearer ", "");
-            User user = userService.getUserFromToken(token);
-            
-            // Find expense and check ownership - implementation would go in service
-            List<Expense> userExpenses = expenseService.getUserExpenses(user);
-            Expense expense = userExpenses.stream()
-                .filter(e -> e.getId().equals(expenseId))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Expense not found"));
-
+            Expense expense = expenseService.getUserExpense(expenseId, user);
             return ResponseEntity.ok(expense);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
@@ -89,12 +149,10 @@ public class ExpenseController {
     }
 
     @PutMapping("/{expenseId}")
-    public ResponseEntity<?> updateExpense(@RequestHeader("Authorization") String authToken,
+    public ResponseEntity<?> updateExpense(@CurrentUser User user,
                                          @PathVariable Long expenseId,
                                          @Valid @RequestBody ExpenseDto expenseDto) {
         try {
-            String token = authToken.replace("Bearer ", "");
-            User user = userService.getUserFromToken(token);
             Expense expense = expenseService.updateExpense(expenseId, expenseDto, user);
             return ResponseEntity.ok(expense);
         } catch (RuntimeException e) {
@@ -103,11 +161,9 @@ public class ExpenseController {
     }
 
     @DeleteMapping("/{expenseId}")
-    public ResponseEntity<?> deleteExpense(@RequestHeader("Authorization") String authToken,
+    public ResponseEntity<?> deleteExpense(@CurrentUser User user,
                                          @PathVariable Long expenseId) {
         try {
-            String token = authToken.replace("Bearer ", "");
-            User user = userService.getUserFromToken(token);
             expenseService.deleteExpense(expenseId, user);
             return ResponseEntity.ok("Expense deleted successfully");
         } catch (RuntimeException e) {
@@ -116,12 +172,10 @@ public class ExpenseController {
     }
 
     @GetMapping("/total")
-    public ResponseEntity<?> getTotalExpenses(@RequestHeader("Authorization") String authToken,
+    public ResponseEntity<?> getTotalExpenses(@CurrentUser User user,
                                             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
                                             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
         try {
-            String token = authToken.replace("Bearer ", "");
-            User user = userService.getUserFromToken(token);
             BigDecimal total = expenseService.getTotalExpenses(user, startDate, endDate);
             return ResponseEntity.ok(Map.of("total", total));
         } catch (RuntimeException e) {
@@ -130,26 +184,27 @@ public class ExpenseController {
     }
 
     @GetMapping("/by-category")
-    public ResponseEntity<?> getExpensesByCategory(@RequestHeader("Authorization") String authToken,
+    public ResponseEntity<?> getExpensesByCategory(@CurrentUser User user,
                                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-                                                 @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+                                                 @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+                                                 WebRequest webRequest) {
         try {
-            String token = authToken.replace("Bearer ", "");
-            User user = userService.getUserFromToken(token);
+            if (dataVersionService.checkNotModified(user, webRequest)) {
+                return null;
+            }
+
             Map<ExpenseCategory, BigDecimal> expenses = expenseService.getExpensesByCategory(user, startDate, endDate);
-            return ResponseEntity.ok(expenses);
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(expenses);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
     }
 
     @GetMapping("/daily")
-    public ResponseEntity<?> getDailyExpenses(@RequestHeader("Authorization") String authToken,
+    public ResponseEntity<?> getDailyExpenses(@CurrentUser User user,
                                             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
                                             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
         try {
-            String token = authToken.replace("Bearer ", "");
-            User user = userService.getUserFromToken(token);
             Map<LocalDate, BigDecimal> expenses = expenseService.getDailyExpenses(user, startDate, endDate);
             return ResponseEntity.ok(expenses);
         } catch (RuntimeException e) {
@@ -0,0 +1,32 @@
+package com.finsight.ai.controller;
+
+import com.finsight.ai.service.ExpensePartitionConversion;
+import com.finsight.ai.service.ExpensePartitionConversionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Operator trigger for converting expenses to a partitioned table: GET shows the last conversion,
+ * POST starts one. It rewrites the whole table, so it only runs when asked for and has to be
+ * exposed explicitly.
+ */
+@Component
+@Endpoint(id = "expensepartitions")
+public class ExpensePartitionEndpoint {
+
+    @Autowired
+    private ExpensePartitionConversionService expensePartitionConversionService;
+
+    @ReadOperation
+    public ExpensePartitionConversion lastConversion() {
+        return expensePartitionConversionService.getLastConversion();
+    }
+
+    @WriteOperation
+    public ExpensePartitionConversion start() {
+        return expensePartitionConversionService.startConversion();
+    }
+}
@@ -0,0 +1,76 @@
+package com.finsight.ai.controller;
+
+import com.finsight.ai.dto.CategoryReportDto;
+import com.finsight.ai.dto.FinancialReportDto;
+import com.finsight.ai.dto.MonthlyTrendDto;
+import com.finsight.ai.entity.User;
+import com.finsight.ai.security.CurrentUser;
+import com.finsight.ai.service.DataVersionService;
+import com.finsight.ai.service.ReportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+@RestController
+@RequestMapping("/reports")
+@CrossOrigin(origins = "*", exposedHeaders = "ETag")
+public class ReportController {
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @GetMapping("/financial")
+    public ResponseEntity<?> getFinancialReport(@CurrentUser User user,
+                                                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                                                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+                                                WebRequest webRequest) {
+        try {
+            if (dataVersionService.checkNotModified(user, webRequest)) {
+                return null;
+            }
+
+            FinancialReportDto report = reportService.getFinancialReport(user, startDate, endDate);
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(report);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    // Defaults to the current month, so unlike /financial it can't be revalidated by data version alone
+    @GetMapping("/expenses-by-category")
+    public ResponseEntity<?> getExpensesByCategory(@CurrentUser User user,
+                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            YearMonth currentMonth = YearMonth.now();
+            List<CategoryReportDto> categories = reportService.getExpensesByCategory(user,
+                startDate != null ? startDate : currentMonth.atDay(1),
+                endDate != null ? endDate : currentMonth.atEndOfMonth());
+            return ResponseEntity.ok(categories);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/monthly-trends")
+    public ResponseEntity<?> getMonthlyTrends(@CurrentUser User user,
+                                              @RequestParam(required = false) Integer months) {
+        try {
+            List<MonthlyTrendDto> trends = reportService.getMonthlyTrends(user, months);
+            return ResponseEntity.ok(trends);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.finsight.ai.controller;
+
+import com.finsight.ai.dto.SyncChangesDto;
+import com.finsight.ai.entity.User;
+import com.finsight.ai.security.CurrentUser;
+import com.finsight.ai.service.SyncService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/sync")
+@CrossOrigin(origins = "*")
+public class SyncController {
+
+    @Autowired
+    private SyncService syncService;
+
+    @GetMapping("/changes")
+    public ResponseEntity<?> getChanges(@CurrentUser User user,
+                                        @RequestParam(required = false) Long since) {
+        try {
+            SyncChangesDto changes = syncService.getChanges(user, since);
+            return ResponseEntity.ok(changes);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+}
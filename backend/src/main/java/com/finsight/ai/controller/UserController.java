@@ -3,15 +3,30 @@ package com.finsight.ai.controller;
 import com.finsight.ai.dto.UserRegistrationDto;
 import com.finsight.ai.dto.UserProfileUpdateDto;
 import com.finsight.ai.dto.ProfilePictureUpdateDto;
+import com.finsight.ai.entity.AccountDeletionJob;
 import com.finsight.ai.entity.User;
-import com.finsight.ai.service.FirebaseAuthService;
+import com.finsight.ai.entity.UserProfilePicture;
+import com.finsight.ai.security.CurrentUser;
+import com.finsight.ai.security.VerifiedIdToken;
+import com.finsight.ai.service.AccountDeletionService;
+import com.finsight.ai.service.AvatarStorageService;
 import com.finsight.ai.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Optional;
 
@@ -20,28 +35,35 @@ import java.util.Optional;
 @CrossOrigin(origins = "*")
 public class UserController {
 
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     @Autowired
     private UserService userService;
 
     @Autowired
-    private FirebaseAuthService firebaseAuthService;
+    private AvatarStorageService avatarStorageService;
+
+    @Autowired
+    private AccountDeletionService accountDeletionService;
 
     @PostMapping("/register")
     public ResponseEntity<?> registerUser(@Valid @RequestBody UserRegistrationDto userDto) {
         try {
             User user = userService.createUser(userDto);
-            return ResponseEntity.status(HttpStatus.CREATED).body(user);
+            return ResponseEntity.status(HttpStatus.CREATED).body(userService.withProfilePicture(user));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
     }
 
     @GetMapping("/auth-test")
-    public ResponseEntity<?> testAuth(@RequestHeader("Authorization") String authToken) {
+    public ResponseEntity<?> testAuth(@CurrentUser VerifiedIdToken token) {
         try {
-            String token = authToken.replace("Bearer ", "");
-            String firebaseUid = firebaseAuthService.getUserIdFromToken(token);
-            String email = firebaseAuthService.getEmailFromToken(token);
+            String firebaseUid = token.getUid();
+            String email = token.getEmail();
             return ResponseEntity.ok(Map.of(
                 "firebaseUid", firebaseUid,
                 "email", email,
@@ -56,33 +78,24 @@ public class UserController {
     }
 
     @GetMapping("/profile")
-    public ResponseEntity<?> getUserProfile(@RequestHeader("Authorization") String authToken) {
-        try {
-            String token = authToken.replace("Bearer ", "");
-            User user = userService.getUserFromToken(token);
-            return ResponseEntity.ok(user);
-        } catch (RuntimeException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
-        }
+    public ResponseEntity<?> getUserProfile(@CurrentUser User user) {
+        return ResponseEntity.ok(userService.withProfilePicture(user));
     }
 
     @GetMapping("/{firebaseUid}")
     public ResponseEntity<?> getUserByFirebaseUid(@PathVariable String firebaseUid) {
         Optional<User> user = userService.getUserByFirebaseUid(firebaseUid);
         if (user.isPresent()) {
-            return ResponseEntity.ok(user.get());
+            return ResponseEntity.ok(userService.withProfilePicture(user.get()));
         } else {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found");
         }
     }
 
     @PutMapping("/profile")
-    public ResponseEntity<?> updateUserProfile(@RequestHeader("Authorization") String authToken,
+    public ResponseEntity<?> updateUserProfile(@CurrentUser User currentUser,
                                              @Valid @RequestBody UserProfileUpdateDto profileUpdateDto) {
         try {
-            String token = authToken.replace("Bearer ", "");
-            User currentUser = userService.getUserFromToken(token);
-            
             // Update only the fields that are provided
             currentUser.setFirstName(profileUpdateDto.getFirstName());
             currentUser.setLastName(profileUpdateDto.getLastName());
@@ -106,16 +119,11 @@ public class UserController {
     }
 
     @PutMapping("/profile/picture")
-    public ResponseEntity<?> updateProfilePicture(@RequestHeader("Authorization") String authToken,
+    public ResponseEntity<?> updateProfilePicture(@CurrentUser User currentUser,
                                                  @Valid @RequestBody ProfilePictureUpdateDto pictureUpdateDto) {
         try {
-            String token = authToken.replace("Bearer ", "");
-            User currentUser = userService.getUserFromToken(token);
-            
             // Update profile picture
-            currentUser.setProfilePictureUrl(pictureUpdateDto.getProfilePicture());
-            
-            User updatedUser = userService.updateUser(currentUser.getFirebaseUid(), currentUser);
+            User updatedUser = userService.updateProfilePicture(currentUser, pictureUpdateDto.getProfilePicture());
             return ResponseEntity.ok(Map.of(
                 "message", "Profile picture updated successfully",
                 "profilePictureUrl", updatedUser.getProfilePictureUrl()
@@ -128,15 +136,95 @@ public class UserController {
         }
     }
 
+    @GetMapping("/profile/picture")
+    public void getProfilePicture(@CurrentUser User currentUser,
+                                  @RequestParam(defaultValue = AvatarStorageService.SIZE_ORIGINAL) String size,
+                                  HttpServletRequest request,
+                                  HttpServletResponse response) throws IOException {
+        Optional<UserProfilePicture> picture = userService.getProfilePicture(currentUser);
+        AvatarStorageService.AvatarFile avatar = picture
+            .filter(p -> p.getContentHash() != null)
+            .map(p -> avatarStorageService.resolve(p.getContentHash(), p.getContentType(), size))
+            .orElse(null);
+        // The address of the current user's picture changes on upload, so clients revalidate
+        writeAvatar(avatar, "private, no-cache", request, response);
+    }
+
+    /**
+     * Serves a picture by content address, as linked from profile responses. The file behind a
+     * given name never changes, so it may be cached indefinitely.
+     */
+    @GetMapping("/profile/picture/{fileName:.+}")
+    public void getProfilePictureFile(@PathVariable String fileName,
+                                      @RequestParam(defaultValue = AvatarStorageService.SIZE_ORIGINAL) String size,
+                                      HttpServletRequest request,
+                                      HttpServletResponse response) throws IOException {
+        int dot = fileName.lastIndexOf('.');
+        AvatarStorageService.AvatarFile avatar = null;
+        if (dot > 0) {
+            String contentType = avatarStorageService.contentTypeForExtension(fileName.substring(dot + 1));
+            if (contentType != null) {
+                avatar = avatarStorageService.resolve(fileName.substring(0, dot), contentType, size);
+            }
+        }
+        writeAvatar(avatar, "public, max-age=31536000, immutable", request, response);
+    }
+
     @DeleteMapping("/profile")
-    public ResponseEntity<?> deleteUser(@RequestHeader("Authorization") String authToken) {
+    public ResponseEntity<?> deleteUser(@CurrentUser User currentUser) {
         try {
-            String token = authToken.replace("Bearer ", "");
-            User user = userService.getUserFromToken(token);
-            userService.deleteUser(user.getFirebaseUid());
-            return ResponseEntity.ok("User deleted successfully");
+            AccountDeletionJob job = accountDeletionService.startDeletion(currentUser);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
     }
+
+    // Authenticated by token only: the user row is gone once the job has finished
+    @GetMapping("/deletion-jobs/{jobId}")
+    public ResponseEntity<?> getDeletionJob(@CurrentUser VerifiedIdToken token, @PathVariable String jobId) {
+        Optional<AccountDeletionJob> job = accountDeletionService.getJob(jobId)
+            .filter(j -> j.belongsTo(token.getUid()));
+        if (job.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Deletion job not found");
+        }
+        return ResponseEntity.ok(job.get());
+    }
+
+    private void writeAvatar(AvatarStorageService.AvatarFile avatar, String cacheControl,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (avatar == null) {
+            response.sendError(HttpStatus.NOT_FOUND.value(), "Profile picture not found");
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ETAG, avatar.getEtag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && ("*".equals(ifNoneMatch.trim())
+                || Arrays.asList(ifNoneMatch.split("\\s*,\\s*")).contains(avatar.getEtag()))) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        long length = Files.size(avatar.getPath());
+        response.setContentType(avatar.getContentType());
+        response.setContentLengthLong(length);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Let Tomcat hand the file to the socket with sendfile once the request completes
+            request.setAttribute(SENDFILE_FILENAME, avatar.getPath().toRealPath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, length);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(avatar.getPath(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < length) {
+                position += channel.transferTo(position, length - position, out);
+            }
+        }
+    }
 }
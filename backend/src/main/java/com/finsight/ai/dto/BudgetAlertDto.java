@@ -0,0 +1,106 @@
+package com.finsight.ai.dto;
+
+import com.finsight.ai.entity.ExpenseCategory;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class BudgetAlertDto {
+    private Long budgetId;
+    private ExpenseCategory category;
+    private Integer month;
+    private Integer year;
+    private int threshold;
+    private BigDecimal monthlyLimit;
+    private BigDecimal currentSpent;
+    private Double budgetPercentage;
+    private LocalDateTime createdAt;
+
+    public BudgetAlertDto() {}
+
+    public BudgetAlertDto(Long budgetId, ExpenseCategory category, Integer month, Integer year, int threshold,
+                          BigDecimal monthlyLimit, BigDecimal currentSpent, Double budgetPercentage) {
+        this.budgetId = budgetId;
+        this.category = category;
+        this.month = month;
+        this.year = year;
+        this.threshold = threshold;
+        this.monthlyLimit = monthlyLimit;
+        this.currentSpent = currentSpent;
+        this.budgetPercentage = budgetPercentage;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getBudgetId() {
+        return budgetId;
+    }
+
+    public void setBudgetId(Long budgetId) {
+        this.budgetId = budgetId;
+    }
+
+    public ExpenseCategory getCategory() {
+        return category;
+    }
+
+    public void setCategory(ExpenseCategory category) {
+        this.category = category;
+    }
+
+    public Integer getMonth() {
+        return month;
+    }
+
+    public void setMonth(Integer month) {
+        this.month = month;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public void setYear(Integer year) {
+        this.year = year;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
+    public BigDecimal getMonthlyLimit() {
+        return monthlyLimit;
+    }
+
+    public void setMonthlyLimit(BigDecimal monthlyLimit) {
+        this.monthlyLimit = monthlyLimit;
+    }
+
+    public BigDecimal getCurrentSpent() {
+        return currentSpent;
+    }
+
+    public void setCurrentSpent(BigDecimal currentSpent) {
+        this.currentSpent = currentSpent;
+    }
+
+    public Double getBudgetPercentage() {
+        return budgetPercentage;
+    }
+
+    public void setBudgetPercentage(Double budgetPercentage) {
+        this.budgetPercentage = budgetPercentage;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -5,6 +5,7 @@ import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 
 public class BudgetDto {
     private Long id;
@@ -36,6 +37,17 @@ public class BudgetDto {
         this.year = year;
     }
 
+    // Used by JPQL constructor expressions; derives the same values as the Budget helper methods
+    public BudgetDto(Long id, ExpenseCategory category, BigDecimal monthlyLimit, Integer month, Integer year, BigDecimal currentSpent) {
+        this(category, monthlyLimit, month, year);
+        this.id = id;
+        this.currentSpent = currentSpent != null ? currentSpent : BigDecimal.ZERO;
+        this.remainingBudget = monthlyLimit.subtract(this.currentSpent);
+        this.budgetPercentage = monthlyLimit.compareTo(BigDecimal.ZERO) == 0 ? 0.0
+            : this.currentSpent.divide(monthlyLimit, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100)).doubleValue();
+        this.isOverBudget = this.currentSpent.compareTo(monthlyLimit) > 0;
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -0,0 +1,64 @@
+package com.finsight.ai.dto;
+
+import com.finsight.ai.entity.ExpenseCategory;
+
+import java.math.BigDecimal;
+
+public class CategoryReportDto {
+    private ExpenseCategory category;
+    private String displayName;
+    private BigDecimal total;
+    private long transactionCount;
+    private Double percentage;
+
+    public CategoryReportDto() {}
+
+    public CategoryReportDto(ExpenseCategory category, BigDecimal total, long transactionCount, Double percentage) {
+        this.category = category;
+        this.displayName = category.getDisplayName();
+        this.total = total;
+        this.transactionCount = transactionCount;
+        this.percentage = percentage;
+    }
+
+    // Getters and Setters
+    public ExpenseCategory getCategory() {
+        return category;
+    }
+
+    public void setCategory(ExpenseCategory category) {
+        this.category = category;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public void setDisplayName(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(long transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+
+    public Double getPercentage() {
+        return percentage;
+    }
+
+    public void setPercentage(Double percentage) {
+        this.percentage = percentage;
+    }
+}
@@ -0,0 +1,42 @@
+package com.finsight.ai.dto;
+
+import java.util.List;
+
+public class ExpensePageDto<T> {
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+
+    public ExpensePageDto() {}
+
+    public ExpensePageDto(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = nextCursor != null;
+    }
+
+    // Getters and Setters
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
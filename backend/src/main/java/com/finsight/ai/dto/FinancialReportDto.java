@@ -0,0 +1,83 @@
+package com.finsight.ai.dto;
+
+import com.finsight.ai.entity.ExpenseCategory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class FinancialReportDto {
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private BigDecimal totalSpent = BigDecimal.ZERO;
+    private long transactionCount;
+    private BigDecimal averageTransaction = BigDecimal.ZERO;
+    private Map<ExpenseCategory, BigDecimal> categoryTotals = new LinkedHashMap<>();
+    private Map<LocalDate, BigDecimal> dailyTotals = new TreeMap<>();
+
+    public FinancialReportDto() {}
+
+    public FinancialReportDto(LocalDate startDate, LocalDate endDate) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    // Getters and Setters
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+
+    public BigDecimal getTotalSpent() {
+        return totalSpent;
+    }
+
+    public void setTotalSpent(BigDecimal totalSpent) {
+        this.totalSpent = totalSpent;
+    }
+
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(long transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+
+    public BigDecimal getAverageTransaction() {
+        return averageTransaction;
+    }
+
+    public void setAverageTransaction(BigDecimal averageTransaction) {
+        this.averageTransaction = averageTransaction;
+    }
+
+    public Map<ExpenseCategory, BigDecimal> getCategoryTotals() {
+        return categoryTotals;
+    }
+
+    public void setCategoryTotals(Map<ExpenseCategory, BigDecimal> categoryTotals) {
+        this.categoryTotals = categoryTotals;
+    }
+
+    public Map<LocalDate, BigDecimal> getDailyTotals() {
+        return dailyTotals;
+    }
+
+    public void setDailyTotals(Map<LocalDate, BigDecimal> dailyTotals) {
+        this.dailyTotals = dailyTotals;
+    }
+}
@@ -0,0 +1,52 @@
+package com.finsight.ai.dto;
+
+import java.math.BigDecimal;
+
+public class MonthlyTrendDto {
+    private String month;
+    private BigDecimal totalSpent;
+    private long transactionCount;
+    private BigDecimal budgetLimit;
+
+    public MonthlyTrendDto() {}
+
+    public MonthlyTrendDto(String month, BigDecimal totalSpent, long transactionCount, BigDecimal budgetLimit) {
+        this.month = month;
+        this.totalSpent = totalSpent;
+        this.transactionCount = transactionCount;
+        this.budgetLimit = budgetLimit;
+    }
+
+    // Getters and Setters
+    public String getMonth() {
+        return month;
+    }
+
+    public void setMonth(String month) {
+        this.month = month;
+    }
+
+    public BigDecimal getTotalSpent() {
+        return totalSpent;
+    }
+
+    public void setTotalSpent(BigDecimal totalSpent) {
+        this.totalSpent = totalSpent;
+    }
+
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(long transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+
+    public BigDecimal getBudgetLimit() {
+        return budgetLimit;
+    }
+
+    public void setBudgetLimit(BigDecimal budgetLimit) {
+        this.budgetLimit = budgetLimit;
+    }
+}
@@ -0,0 +1,88 @@
+package com.finsight.ai.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SyncChangesDto {
+    private long cursor;
+    private boolean full;
+    private List<ExpenseResponseDto> expenses = new ArrayList<>();
+    private List<BudgetDto> budgets = new ArrayList<>();
+    private List<Tombstone> deleted = new ArrayList<>();
+
+    public SyncChangesDto() {}
+
+    public SyncChangesDto(long cursor, boolean full) {
+        this.cursor = cursor;
+        this.full = full;
+    }
+
+    // Getters and Setters
+    public long getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(long cursor) {
+        this.cursor = cursor;
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    public void setFull(boolean full) {
+        this.full = full;
+    }
+
+    public List<ExpenseResponseDto> getExpenses() {
+        return expenses;
+    }
+
+    public void setExpenses(List<ExpenseResponseDto> expenses) {
+        this.expenses = expenses;
+    }
+
+    public List<BudgetDto> getBudgets() {
+        return budgets;
+    }
+
+    public void setBudgets(List<BudgetDto> budgets) {
+        this.budgets = budgets;
+    }
+
+    public List<Tombstone> getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(List<Tombstone> deleted) {
+        this.deleted = deleted;
+    }
+
+    public static class Tombstone {
+        private String type;
+        private Long id;
+
+        public Tombstone() {}
+
+        public Tombstone(String type, Long id) {
+            this.type = type;
+            this.id = id;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+    }
+}
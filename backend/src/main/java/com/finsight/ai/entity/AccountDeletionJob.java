@@ -0,0 +1,143 @@
+package com.finsight.ai.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a background account deletion started by AccountDeletionService.
+ *
+ * Kept in the database rather than in memory so any instance can answer a poll and a deletion
+ * interrupted by a restart is picked up again. There is deliberately no foreign key to users:
+ * the job outlives the user row it deletes.
+ */
+@Entity
+@Table(name = "account_deletion_jobs")
+public class AccountDeletionJob {
+
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(nullable = false)
+    @JsonIgnore
+    private Long userId;
+
+    @Column(nullable = false)
+    @JsonIgnore
+    private String firebaseUid;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private long rowsToDelete;
+
+    @Column(nullable = false)
+    private long rowsDeleted;
+
+    @Column(length = 1000)
+    private String error;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    // Heartbeat of the instance running the job; a job that stops beating is resumed elsewhere
+    @Column(nullable = false)
+    @JsonIgnore
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    private LocalDateTime finishedAt;
+
+    public AccountDeletionJob() {}
+
+    public AccountDeletionJob(String id, Long userId, String firebaseUid) {
+        this.id = id;
+        this.userId = userId;
+        this.firebaseUid = firebaseUid;
+    }
+
+    public double getProgressPercentage() {
+        if (status == Status.COMPLETED) {
+            return 100.0;
+        }
+        if (rowsToDelete == 0) {
+            return 0.0;
+        }
+        return Math.min(99.9, Math.round(rowsDeleted * 1000.0 / rowsToDelete) / 10.0);
+    }
+
+    public boolean belongsTo(String firebaseUid) {
+        return this.firebaseUid.equals(firebaseUid);
+    }
+
+    public boolean isActive() {
+        return status == Status.PENDING || status == Status.RUNNING;
+    }
+
+    public void addRowsDeleted(long rows) {
+        rowsDeleted += rows;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+        if (status == Status.COMPLETED || status == Status.FAILED) {
+            this.finishedAt = LocalDateTime.now();
+        }
+    }
+
+    public long getRowsToDelete() {
+        return rowsToDelete;
+    }
+
+    public void setRowsToDelete(long rowsToDelete) {
+        this.rowsToDelete = rowsToDelete;
+    }
+
+    public long getRowsDeleted() {
+        return rowsDeleted;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+}
@@ -0,0 +1,51 @@
+package com.finsight.ai.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+
+/**
+ * Sum and count of one user's expenses in one category on one day. Kept in step with the expense
+ * rows by ExpenseService in the same transaction, so totals over a date range read one row per
+ * day and category instead of every expense.
+ */
+@Entity
+@Table(name = "user_daily_category_totals")
+public class DailyCategoryTotal {
+
+    @EmbeddedId
+    private DailyCategoryTotalId id;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal total;
+
+    @Column(name = "expense_count", nullable = false)
+    private Integer expenseCount;
+
+    public DailyCategoryTotal() {}
+
+    // Getters and Setters
+    public DailyCategoryTotalId getId() {
+        return id;
+    }
+
+    public void setId(DailyCategoryTotalId id) {
+        this.id = id;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+
+    public Integer getExpenseCount() {
+        return expenseCount;
+    }
+
+    public void setExpenseCount(Integer expenseCount) {
+        this.expenseCount = expenseCount;
+    }
+}
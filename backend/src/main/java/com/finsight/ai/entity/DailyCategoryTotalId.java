@@ -0,0 +1,75 @@
+package com.finsight.ai.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+@Embeddable
+public class DailyCategoryTotalId implements Serializable {
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "day")
+    private LocalDate day;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "category")
+    private ExpenseCategory category;
+
+    public DailyCategoryTotalId() {}
+
+    public DailyCategoryTotalId(Long userId, LocalDate day, ExpenseCategory category) {
+        this.userId = userId;
+        this.day = day;
+        this.category = category;
+    }
+
+    // Getters and Setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public void setDay(LocalDate day) {
+        this.day = day;
+    }
+
+    public ExpenseCategory getCategory() {
+        return category;
+    }
+
+    public void setCategory(ExpenseCategory category) {
+        this.category = category;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DailyCategoryTotalId other)) {
+            return false;
+        }
+        return Objects.equals(userId, other.userId)
+            && Objects.equals(day, other.day)
+            && category == other.category;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId, day, category);
+    }
+}
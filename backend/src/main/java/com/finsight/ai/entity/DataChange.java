@@ -0,0 +1,66 @@
+package com.finsight.ai.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Latest change to one expense or budget, keyed by the user's data version it was made at.
+ * There is one row per entity, so deletes stay behind as tombstones for GET /sync/changes.
+ */
+@Entity
+@Table(name = "data_changes")
+public class DataChange {
+    public static final String EXPENSE = "EXPENSE";
+    public static final String BUDGET = "BUDGET";
+
+    public static final String UPSERT = "UPSERT";
+    public static final String DELETE = "DELETE";
+
+    @EmbeddedId
+    private DataChangeId id;
+
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(nullable = false, length = 8)
+    private String operation;
+
+    @Column(nullable = false)
+    private LocalDateTime changedAt;
+
+    public DataChange() {}
+
+    // Getters and Setters
+    public DataChangeId getId() {
+        return id;
+    }
+
+    public void setId(DataChangeId id) {
+        this.id = id;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public LocalDateTime getChangedAt() {
+        return changedAt;
+    }
+
+    public void setChangedAt(LocalDateTime changedAt) {
+        this.changedAt = changedAt;
+    }
+}
@@ -0,0 +1,70 @@
+package com.finsight.ai.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+@Embeddable
+public class DataChangeId implements Serializable {
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "entity_type", length = 16)
+    private String entityType;
+
+    @Column(name = "entity_id")
+    private Long entityId;
+
+    public DataChangeId() {}
+
+    public DataChangeId(Long userId, String entityType, Long entityId) {
+        this.userId = userId;
+        this.entityType = entityType;
+        this.entityId = entityId;
+    }
+
+    // Getters and Setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(String entityType) {
+        this.entityType = entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DataChangeId other)) {
+            return false;
+        }
+        return Objects.equals(userId, other.userId)
+            && Objects.equals(entityType, other.entityType)
+            && Objects.equals(entityId, other.entityId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId, entityType, entityId);
+    }
+}
@@ -34,7 +34,8 @@ public class User {
     @Column(name = "last_name", nullable = false)
     private String lastName;
 
-    @Column(columnDefinition = "TEXT")
+    // Stored in user_profile_pictures; only filled in by UserService for profile responses
+    @Transient
     private String profilePictureUrl;
 
     @Column(nullable = false)
@@ -49,6 +50,12 @@ public class User {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
 
+    // Bumped in the database by every expense/budget write; never written through the entity
+    @Column(name = "data_version", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "bigint not null default 0")
+    @JsonIgnore
+    private Long dataVersion;
+
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonIgnore
     private List<Expense> expenses;
@@ -151,6 +158,14 @@ public class User {
         this.updatedAt = updatedAt;
     }
 
+    public Long getDataVersion() {
+        return dataVersion;
+    }
+
+    public void setDataVersion(Long dataVersion) {
+        this.dataVersion = dataVersion;
+    }
+
     public List<Expense> getExpenses() {
         return expenses;
     }
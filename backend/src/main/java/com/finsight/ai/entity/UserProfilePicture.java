@@ -0,0 +1,72 @@
+package com.finsight.ai.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Points a user at their profile picture in the avatar store, kept apart from {@link User}
+ * so that per-request user lookups never touch it.
+ */
+@Entity
+@Table(name = "user_profile_pictures")
+public class UserProfilePicture {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(length = 64)
+    private String contentHash;
+
+    @Column(length = 32)
+    private String contentType;
+
+    // A picture hosted elsewhere (e.g. a provider photo), kept as a link instead of a stored file
+    @Column(length = 2048)
+    private String externalUrl;
+
+    private LocalDateTime updatedAt;
+
+    public UserProfilePicture() {}
+
+    // Getters and Setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getExternalUrl() {
+        return externalUrl;
+    }
+
+    public void setExternalUrl(String externalUrl) {
+        this.externalUrl = externalUrl;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,35 @@
+package com.finsight.ai.repository;
+
+import com.finsight.ai.entity.AccountDeletionJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AccountDeletionJobRepository extends JpaRepository<AccountDeletionJob, String> {
+
+    Optional<AccountDeletionJob> findFirstByUserIdAndStatusIn(Long userId, Collection<AccountDeletionJob.Status> statuses);
+
+    List<AccountDeletionJob> findByStatusInAndUpdatedAtBefore(Collection<AccountDeletionJob.Status> statuses, LocalDateTime cutoff);
+
+    // Takes over a job only if nobody has touched it since cutoff, so exactly one instance resumes it
+    @Transactional
+    @Modifying
+    @Query("UPDATE AccountDeletionJob j SET j.status = com.finsight.ai.entity.AccountDeletionJob.Status.RUNNING, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.status IN (com.finsight.ai.entity.AccountDeletionJob.Status.PENDING, " +
+           "com.finsight.ai.entity.AccountDeletionJob.Status.RUNNING) AND j.updatedAt < :cutoff")
+    int claimStalled(@Param("id") String id, @Param("cutoff") LocalDateTime cutoff, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM AccountDeletionJob j WHERE j.finishedAt < :cutoff")
+    int deleteFinishedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,18 +1,53 @@
 package com.finsight.ai.repository;
 
+import com.finsight.ai.dto.BudgetDto;
 import com.finsight.ai.entity.Budget;
 import com.finsight.ai.entity.ExpenseCategory;
 import com.finsight.ai.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface BudgetRepository extends JpaRepository<Budget, Long> {
+
+    interface SpentUpdate {
+        Long getId();
+        BigDecimal getMonthlyLimit();
+        BigDecimal getCurrentSpent();
+    }
+
     List<Budget> findByUserOrderByCategory(User user);
     List<Budget> findByUserAndMonthAndYear(User user, Integer month, Integer year);
     Optional<Budget> findByUserAndCategoryAndMonthAndYear(User user, ExpenseCategory category, Integer month, Integer year);
     List<Budget> findByUserAndMonthAndYearOrderByCategory(User user, Integer month, Integer year);
+
+    @Query("SELECT new com.finsight.ai.dto.BudgetDto(b.id, b.category, b.monthlyLimit, b.month, b.year, b.currentSpent) " +
+           "FROM Budget b WHERE b.user = :user ORDER BY b.category")
+    List<BudgetDto> findDtosByUser(@Param("user") User user);
+
+    @Query("SELECT new com.finsight.ai.dto.BudgetDto(b.id, b.category, b.monthlyLimit, b.month, b.year, b.currentSpent) " +
+           "FROM Budget b WHERE b.user = :user AND b.month = :month AND b.year = :year ORDER BY b.category")
+    List<BudgetDto> findDtosByUserAndMonthAndYear(@Param("user") User user, @Param("month") Integer month, @Param("year") Integer year);
+
+    @Query("SELECT new com.finsight.ai.dto.BudgetDto(b.id, b.category, b.monthlyLimit, b.month, b.year, b.currentSpent) " +
+           "FROM Budget b WHERE b.user = :user AND b.id IN :ids")
+    List<BudgetDto> findDtosByUserAndIdIn(@Param("user") User user, @Param("ids") Collection<Long> ids);
+
+    // Atomic increment; returns the budget's values after the change, or nothing when no such budget exists
+    @Query(value = "UPDATE budgets SET current_spent = COALESCE(current_spent, 0) + :delta, updated_at = now() " +
+                   "WHERE user_id = :userId AND category = :category AND month = :month AND year = :year " +
+                   "RETURNING id AS \"id\", monthly_limit AS \"monthlyLimit\", current_spent AS \"currentSpent\"",
+           nativeQuery = true)
+    Optional<SpentUpdate> addToCurrentSpent(@Param("userId") Long userId,
+                                            @Param("category") String category,
+                                            @Param("month") Integer month,
+                                            @Param("year") Integer year,
+                                            @Param("delta") BigDecimal delta);
 }
@@ -0,0 +1,46 @@
+package com.finsight.ai.repository;
+
+import com.finsight.ai.entity.DailyCategoryTotal;
+import com.finsight.ai.entity.DailyCategoryTotalId;
+import com.finsight.ai.entity.ExpenseCategory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyCategoryTotalRepository extends JpaRepository<DailyCategoryTotal, DailyCategoryTotalId> {
+
+    @Modifying
+    @Query(value = "INSERT INTO user_daily_category_totals (user_id, day, category, total, expense_count) " +
+                   "VALUES (:userId, :day, :category, :amount, :count) " +
+                   "ON CONFLICT (user_id, day, category) DO UPDATE SET " +
+                   "total = user_daily_category_totals.total + EXCLUDED.total, " +
+                   "expense_count = user_daily_category_totals.expense_count + EXCLUDED.expense_count",
+           nativeQuery = true)
+    void add(@Param("userId") Long userId, @Param("day") LocalDate day, @Param("category") String category,
+             @Param("amount") BigDecimal amount, @Param("count") int count);
+
+    @Modifying
+    @Query(value = "DELETE FROM user_daily_category_totals " +
+                   "WHERE user_id = :userId AND day = :day AND category = :category AND expense_count <= 0",
+           nativeQuery = true)
+    void deleteIfEmpty(@Param("userId") Long userId, @Param("day") LocalDate day, @Param("category") String category);
+
+    @Query("SELECT SUM(t.total) FROM DailyCategoryTotal t WHERE t.id.userId = :userId AND t.id.day BETWEEN :startDate AND :endDate")
+    BigDecimal getTotalBetweenDates(@Param("userId") Long userId, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT SUM(t.total) FROM DailyCategoryTotal t WHERE t.id.userId = :userId AND t.id.category = :category AND t.id.day BETWEEN :startDate AND :endDate")
+    BigDecimal getTotalByCategoryBetweenDates(@Param("userId") Long userId, @Param("category") ExpenseCategory category, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT t.id.category, SUM(t.total) FROM DailyCategoryTotal t WHERE t.id.userId = :userId AND t.id.day BETWEEN :startDate AND :endDate GROUP BY t.id.category")
+    List<Object[]> getTotalsByCategoryBetweenDates(@Param("userId") Long userId, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT t.id.day, SUM(t.total) FROM DailyCategoryTotal t WHERE t.id.userId = :userId AND t.id.day BETWEEN :startDate AND :endDate GROUP BY t.id.day ORDER BY t.id.day")
+    List<Object[]> getDailyTotalsBetweenDates(@Param("userId") Long userId, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+}
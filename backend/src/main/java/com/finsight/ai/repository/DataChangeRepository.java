@@ -0,0 +1,29 @@
+package com.finsight.ai.repository;
+
+import com.finsight.ai.entity.DataChange;
+import com.finsight.ai.entity.DataChangeId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface DataChangeRepository extends JpaRepository<DataChange, DataChangeId> {
+
+    @Modifying
+    @Query(value = "INSERT INTO data_changes (user_id, entity_type, entity_id, version, operation, changed_at) " +
+                   "VALUES (:userId, :entityType, :entityId, :version, :operation, now()) " +
+                   "ON CONFLICT (user_id, entity_type, entity_id) DO UPDATE SET version = EXCLUDED.version, " +
+                   "operation = EXCLUDED.operation, changed_at = EXCLUDED.changed_at",
+           nativeQuery = true)
+    void record(@Param("userId") Long userId, @Param("entityType") String entityType, @Param("entityId") Long entityId,
+                @Param("version") Long version, @Param("operation") String operation);
+
+    // entity_type, entity_id, operation
+    @Query(value = "SELECT entity_type, entity_id, operation FROM data_changes WHERE user_id = :userId AND version > :since",
+           nativeQuery = true)
+    List<Object[]> findChangesSince(@Param("userId") Long userId, @Param("since") Long since);
+}
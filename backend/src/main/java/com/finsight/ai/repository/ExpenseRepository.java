@@ -1,8 +1,10 @@
 package com.finsight.ai.repository;
 
+import com.finsight.ai.dto.ExpenseResponseDto;
 import com.finsight.ai.entity.Expense;
 import com.finsight.ai.entity.ExpenseCategory;
 import com.finsight.ai.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -10,24 +12,80 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ExpenseRepository extends JpaRepository<Expense, Long> {
+    String SELECT_RESPONSE_DTO = "SELECT new com.finsight.ai.dto.ExpenseResponseDto(e.id, e.description, e.amount, e.category, e.date, " +
+                                 "e.receiptUrl, e.notes, e.createdAt, e.updatedAt) FROM Expense e ";
+
+    Optional<Expense> findByIdAndUser(Long id, User user);
+
+    // Just the values that decide which budget an expense counts against, without loading the entity
+    interface BudgetKey {
+        BigDecimal getAmount();
+        ExpenseCategory getCategory();
+        LocalDate getDate();
+    }
+
+    Optional<BudgetKey> findBudgetKeyByIdAndUser(Long id, User user);
+
+    // Both return the affected row, or nothing when the id does not exist or belongs to another user.
+    // Not @Modifying on purpose: that only allows an update count back, while PostgreSQL hands the
+    // RETURNING row to a plain query, so the written row comes back in the same round trip. Hibernate
+    // would return an already managed instance instead of that row, so callers must not have loaded
+    // the expense entity earlier in the transaction (ExpenseService reads only its BudgetKey).
+    // Validation and notes truncation are the caller's job, as no entity lifecycle runs.
+    @Query(value = "UPDATE expenses SET description = :description, amount = :amount, category = :category, date = :date, " +
+                   "receipt_url = :receiptUrl, notes = :notes, updated_at = now() " +
+                   "WHERE id = :id AND user_id = :userId " +
+                   "RETURNING *",
+           nativeQuery = true)
+    Optional<Expense> updateByIdAndUserId(@Param("id") Long id,
+                                          @Param("userId") Long userId,
+                                          @Param("description") String description,
+                                          @Param("amount") BigDecimal amount,
+                                          @Param("category") String category,
+                                          @Param("date") LocalDate date,
+                                          @Param("receiptUrl") String receiptUrl,
+                                          @Param("notes") String notes);
+
+    @Query(value = "DELETE FROM expenses WHERE id = :id AND user_id = :userId RETURNING *", nativeQuery = true)
+    Optional<Expense> deleteByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
     List<Expense> findByUserOrderByDateDesc(User user);
     List<Expense> findByUserAndDateBetweenOrderByDateDesc(User user, LocalDate startDate, LocalDate endDate);
     List<Expense> findByUserAndCategoryOrderByDateDesc(User user, ExpenseCategory category);
     List<Expense> findByUserAndCategoryAndDateBetweenOrderByDateDesc(User user, ExpenseCategory category, LocalDate startDate, LocalDate endDate);
 
-    @Query("SELECT SUM(e.amount) FROM Expense e WHERE e.user = :user AND e.date BETWEEN :startDate AND :endDate")
-    BigDecimal getTotalExpensesBetweenDates(@Param("user") User user, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+    // Read-only list views for the API, without loading managed entities
+    @Query(SELECT_RESPONSE_DTO + "WHERE e.user = :user ORDER BY e.date DESC")
+    List<ExpenseResponseDto> findDtosByUser(@Param("user") User user);
+
+    @Query(SELECT_RESPONSE_DTO + "WHERE e.user = :user AND e.date BETWEEN :startDate AND :endDate ORDER BY e.date DESC")
+    List<ExpenseResponseDto> findDtosByUserAndDateBetween(@Param("user") User user, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Query(SELECT_RESPONSE_DTO + "WHERE e.user = :user AND e.category = :category ORDER BY e.date DESC")
+    List<ExpenseResponseDto> findDtosByUserAndCategory(@Param("user") User user, @Param("category") ExpenseCategory category);
+
+    @Query(SELECT_RESPONSE_DTO + "WHERE e.user = :user AND e.category = :category AND e.date BETWEEN :startDate AND :endDate ORDER BY e.date DESC")
+    List<ExpenseResponseDto> findDtosByUserAndCategoryAndDateBetween(@Param("user") User user, @Param("category") ExpenseCategory category, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Query(SELECT_RESPONSE_DTO + "WHERE e.user = :user AND e.id IN :ids")
+    List<ExpenseResponseDto> findDtosByUserAndIdIn(@Param("user") User user, @Param("ids") Collection<Long> ids);
+
+    // Keyset pages ordered by (date, id) descending, starting strictly after the (afterDate, afterId) row
+    @Query(SELECT_RESPONSE_DTO + "WHERE e.user = :user AND (e.date < :afterDate OR (e.date = :afterDate AND e.id < :afterId)) ORDER BY e.date DESC, e.id DESC")
+    List<ExpenseResponseDto> findPageByUser(@Param("user") User user, @Param("afterDate") LocalDate afterDate, @Param("afterId") Long afterId, Pageable pageable);
 
-    @Query("SELECT SUM(e.amount) FROM Expense e WHERE e.user = :user AND e.category = :category AND e.date BETWEEN :startDate AND :endDate")
-    BigDecimal getTotalExpensesByCategoryBetweenDates(@Param("user") User user, @Param("category") ExpenseCategory category, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+    @Query(SELECT_RESPONSE_DTO + "WHERE e.user = :user AND e.date BETWEEN :startDate AND :endDate AND (e.date < :afterDate OR (e.date = :afterDate AND e.id < :afterId)) ORDER BY e.date DESC, e.id DESC")
+    List<ExpenseResponseDto> findPageByUserAndDateBetween(@Param("user") User user, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate, @Param("afterDate") LocalDate afterDate, @Param("afterId") Long afterId, Pageable pageable);
 
-    @Query("SELECT e.category, SUM(e.amount) FROM Expense e WHERE e.user = :user AND e.date BETWEEN :startDate AND :endDate GROUP BY e.category")
-    List<Object[]> getExpensesByCategoryBetweenDates(@Param("user") User user, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+    @Query(SELECT_RESPONSE_DTO + "WHERE e.user = :user AND e.category = :category AND (e.date < :afterDate OR (e.date = :afterDate AND e.id < :afterId)) ORDER BY e.date DESC, e.id DESC")
+    List<ExpenseResponseDto> findPageByUserAndCategory(@Param("user") User user, @Param("category") ExpenseCategory category, @Param("afterDate") LocalDate afterDate, @Param("afterId") Long afterId, Pageable pageable);
 
-    @Query("SELECT DATE(e.date), SUM(e.amount) FROM Expense e WHERE e.user = :user AND e.date BETWEEN :startDate AND :endDate GROUP BY DATE(e.date) ORDER BY DATE(e.date)")
-    List<Object[]> getDailyExpensesBetweenDates(@Param("user") User user, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+    @Query(SELECT_RESPONSE_DTO + "WHERE e.user = :user AND e.category = :category AND e.date BETWEEN :startDate AND :endDate AND (e.date < :afterDate OR (e.date = :afterDate AND e.id < :afterId)) ORDER BY e.date DESC, e.id DESC")
+    List<ExpenseResponseDto> findPageByUserAndCategoryAndDateBetween(@Param("user") User user, @Param("category") ExpenseCategory category, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate, @Param("afterDate") LocalDate afterDate, @Param("afterId") Long afterId, Pageable pageable);
 }
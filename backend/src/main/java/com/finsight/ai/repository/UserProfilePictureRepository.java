@@ -0,0 +1,24 @@
+package com.finsight.ai.repository;
+
+import com.finsight.ai.entity.UserProfilePicture;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserProfilePictureRepository extends JpaRepository<UserProfilePicture, Long> {
+
+    @Modifying
+    @Query(value = "INSERT INTO user_profile_pictures (user_id, content_hash, content_type, updated_at) " +
+                   "VALUES (:userId, :contentHash, :contentType, now()) " +
+                   "ON CONFLICT (user_id) DO UPDATE SET content_hash = EXCLUDED.content_hash, " +
+                   "content_type = EXCLUDED.content_type, external_url = NULL, updated_at = EXCLUDED.updated_at",
+           nativeQuery = true)
+    void upsert(@Param("userId") Long userId, @Param("contentHash") String contentHash, @Param("contentType") String contentType);
+
+    @Modifying
+    @Query("DELETE FROM UserProfilePicture p WHERE p.userId = :userId")
+    void deleteByUserId(@Param("userId") Long userId);
+}
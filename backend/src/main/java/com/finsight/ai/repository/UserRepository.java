@@ -2,6 +2,8 @@ package com.finsight.ai.repository;
 
 import com.finsight.ai.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -12,4 +14,30 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByFirebaseUid(String firebaseUid);
     boolean existsByEmail(String email);
+
+    // The no-op DO UPDATE locks and returns the existing row, which DO NOTHING would not. The
+    // transaction lock on the UID makes a second insert wait for the first to commit: without it
+    // both can pass the conflict check and the email index raises a unique violation instead.
+    // Not @Modifying on purpose: that only allows an update count back, while PostgreSQL hands the
+    // RETURNING row to a plain query, so the user comes back in the same round trip. The entity is
+    // built from that row, so it is never stale; callers need a read-write transaction.
+    @Query(value = "INSERT INTO users (firebase_uid, email, first_name, last_name, dark_mode, currency, created_at, updated_at) " +
+                   "SELECT :firebaseUid, :email, :firstName, :lastName, false, :currency, now(), now() " +
+                   "FROM (SELECT pg_advisory_xact_lock(1, hashtext(:firebaseUid))) uid_lock " +
+                   "ON CONFLICT (firebase_uid) DO UPDATE SET firebase_uid = EXCLUDED.firebase_uid " +
+                   "RETURNING *",
+           nativeQuery = true)
+    User insertOrGetByFirebaseUid(@Param("firebaseUid") String firebaseUid,
+                                  @Param("email") String email,
+                                  @Param("firstName") String firstName,
+                                  @Param("lastName") String lastName,
+                                  @Param("currency") String currency);
+
+    @Query("SELECT u.dataVersion FROM User u WHERE u.id = :userId")
+    Long findDataVersionById(@Param("userId") Long userId);
+
+    // Also takes the row lock, so concurrent writes for the same user are serialized
+    @Query(value = "UPDATE users SET data_version = data_version + 1 WHERE id = :userId RETURNING data_version",
+           nativeQuery = true)
+    Long incrementDataVersion(@Param("userId") Long userId);
 }
@@ -0,0 +1,8 @@
+package com.finsight.ai.security;
+
+public class AuthenticationException extends RuntimeException {
+
+    public AuthenticationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,21 @@
+package com.finsight.ai.security;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Injects the caller resolved by {@link FirebaseAuthenticationFilter} into a controller method.
+ * Supported parameter types are {@link com.finsight.ai.entity.User} and
+ * {@link VerifiedIdToken}.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CurrentUser {
+
+    /**
+     * When false, an unauthenticated request resolves to {@code null} instead of a 401 response.
+     */
+    boolean required() default true;
+}
@@ -0,0 +1,40 @@
+package com.finsight.ai.security;
+
+import com.finsight.ai.entity.User;
+import org.springframework.core.MethodParameter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Supplies {@link CurrentUser} parameters from the attributes set by {@link FirebaseAuthenticationFilter}.
+ */
+@Component
+public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        Class<?> type = parameter.getParameterType();
+        return parameter.hasParameterAnnotation(CurrentUser.class)
+            && (User.class.equals(type) || VerifiedIdToken.class.equals(type));
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        String attribute = User.class.equals(parameter.getParameterType())
+            ? FirebaseAuthenticationFilter.USER_ATTRIBUTE
+            : FirebaseAuthenticationFilter.FIREBASE_TOKEN_ATTRIBUTE;
+
+        Object value = webRequest.getAttribute(attribute, RequestAttributes.SCOPE_REQUEST);
+        CurrentUser annotation = parameter.getParameterAnnotation(CurrentUser.class);
+        if (value == null && annotation != null && annotation.required()) {
+            Object error = webRequest.getAttribute(FirebaseAuthenticationFilter.ERROR_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            throw new AuthenticationException(error != null ? error.toString() : "Missing Authorization header");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,86 @@
+package com.finsight.ai.security;
+
+import com.finsight.ai.entity.User;
+import com.finsight.ai.repository.UserRepository;
+import com.finsight.ai.service.FirebaseAuthService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the bearer token and the matching {@link User} once per request.
+ *
+ * The filter never rejects a request itself: it only stores the outcome as request attributes,
+ * and {@link CurrentUserArgumentResolver} turns a missing or failed authentication into a 401
+ * for the endpoints that ask for a caller.
+ */
+@Component
+public class FirebaseAuthenticationFilter extends OncePerRequestFilter {
+
+    public static final String FIREBASE_TOKEN_ATTRIBUTE = FirebaseAuthenticationFilter.class.getName() + ".TOKEN";
+    public static final String USER_ATTRIBUTE = FirebaseAuthenticationFilter.class.getName() + ".USER";
+    public static final String ERROR_ATTRIBUTE = FirebaseAuthenticationFilter.class.getName() + ".ERROR";
+
+    private static final Logger logger = LoggerFactory.getLogger(FirebaseAuthenticationFilter.class);
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    @Autowired
+    private FirebaseAuthService firebaseAuthService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && !header.isBlank()) {
+            authenticate(request, header);
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private void authenticate(HttpServletRequest request, String header) {
+        String outcome = "success";
+        long start = System.nanoTime();
+        try {
+            String token = header.startsWith(BEARER_PREFIX) ? header.substring(BEARER_PREFIX.length()) : header;
+            VerifiedIdToken firebaseToken = firebaseAuthService.verifyToken(token.trim());
+            request.setAttribute(FIREBASE_TOKEN_ATTRIBUTE, firebaseToken);
+
+            Optional<User> user = userRepository.findByFirebaseUid(firebaseToken.getUid());
+            if (user.isPresent()) {
+                request.setAttribute(USER_ATTRIBUTE, user.get());
+            } else {
+                outcome = "unknown_user";
+                request.setAttribute(ERROR_ATTRIBUTE, "User not found");
+            }
+        } catch (RuntimeException e) {
+            outcome = "invalid_token";
+            logger.debug("Authentication failed for {}: {}", request.getRequestURI(), e.getMessage());
+            request.setAttribute(ERROR_ATTRIBUTE, e.getMessage());
+        } finally {
+            Timer.builder("finsight.auth.resolve")
+                .description("Time spent verifying the bearer token and loading the caller")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
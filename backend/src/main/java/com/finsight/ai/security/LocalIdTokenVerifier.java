@@ -0,0 +1,218 @@
+package com.finsight.ai.security;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.firebase.FirebaseApp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Verifies Firebase ID tokens without calling out to Google on the request path.
+ *
+ * Signing keys are held in memory and refreshed in the background before they expire, so a
+ * request only ever waits for a key fetch when the very first token arrives before the warm-up
+ * finished, or when a token names a key id we have not seen yet. Those fetches are single-flight:
+ * requests queued behind one reuse its result, and after a failure nobody fetches again until a
+ * growing back-off has passed.
+ */
+@Component
+public class LocalIdTokenVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalIdTokenVerifier.class);
+
+    private static final String ISSUER_PREFIX = "https://securetoken.google.com/";
+    private static final long CLOCK_SKEW_SECONDS = 60;
+    private static final Duration REFRESH_AHEAD = Duration.ofMinutes(10);
+    private static final Duration MIN_FORCED_REFRESH_INTERVAL = Duration.ofSeconds(30);
+    private static final Duration MIN_RETRY_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_RETRY_BACKOFF = Duration.ofMinutes(1);
+
+    @Autowired
+    private SigningKeySource signingKeySource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.auth.verification-mode:admin-sdk}")
+    private String verificationMode;
+
+    @Value("${app.auth.project-id:}")
+    private String projectId;
+
+    private volatile SigningKeySource.KeySet keySet;
+    private volatile Instant lastForcedRefresh = Instant.EPOCH;
+
+    // Guarded by this
+    private Instant retryAfter = Instant.EPOCH;
+    private Duration retryBackoff = MIN_RETRY_BACKOFF;
+
+    public boolean isEnabled() {
+        return "local".equalsIgnoreCase(verificationMode);
+    }
+
+    public VerifiedIdToken verify(String idToken) {
+        String[] parts = idToken.split("\\.");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("ID token must have three segments");
+        }
+
+        Map<String, Object> header = decodeJson(parts[0]);
+        Map<String, Object> claims = decodeJson(parts[1]);
+
+        if (!"RS256".equals(header.get("alg"))) {
+            throw new IllegalArgumentException("ID token has unexpected algorithm: " + header.get("alg"));
+        }
+        Object keyId = header.get("kid");
+        if (!(keyId instanceof String)) {
+            throw new IllegalArgumentException("ID token has no key id");
+        }
+
+        PublicKey key = findKey((String) keyId);
+        if (!signatureMatches(key, parts)) {
+            throw new IllegalArgumentException("ID token signature is invalid");
+        }
+
+        return checkClaims(claims);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (isEnabled()) {
+            refreshKeys(keySet);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.auth.local-verification.refresh-check-ms:60000}")
+    public void refreshIfStale() {
+        SigningKeySource.KeySet current = keySet;
+        if (isEnabled() && (current == null || Instant.now().plus(REFRESH_AHEAD).isAfter(current.getExpiresAt()))) {
+            refreshKeys(current);
+        }
+    }
+
+    /**
+     * Fetches the keys to replace the set the caller saw, and returns whatever set is current
+     * afterwards. A caller that waited for the lock while another fetch replaced that set gets
+     * the new set without fetching; while a failed fetch is backing off, it gets the old one.
+     */
+    private synchronized SigningKeySource.KeySet refreshKeys(SigningKeySource.KeySet seen) {
+        SigningKeySource.KeySet current = keySet;
+        if (current != seen || Instant.now().isBefore(retryAfter)) {
+            return current;
+        }
+        try {
+            SigningKeySource.KeySet fetched = signingKeySource.fetchKeys();
+            keySet = fetched;
+            retryBackoff = MIN_RETRY_BACKOFF;
+            logger.info("Loaded {} ID token signing keys, valid until {}", fetched.size(), fetched.getExpiresAt());
+            return fetched;
+        } catch (RuntimeException e) {
+            // Keep serving with the previous keys
+            Duration backoff = retryBackoff;
+            retryAfter = Instant.now().plus(backoff);
+            retryBackoff = backoff.multipliedBy(2).compareTo(MAX_RETRY_BACKOFF) < 0 ? backoff.multipliedBy(2) : MAX_RETRY_BACKOFF;
+            logger.warn("Failed to refresh ID token signing keys, retrying in {} ms: {}", backoff.toMillis(), e.getMessage());
+            return current;
+        }
+    }
+
+    private PublicKey findKey(String keyId) {
+        SigningKeySource.KeySet current = keySet;
+        if (current == null) {
+            current = refreshKeys(null);
+        }
+        PublicKey key = current != null ? current.get(keyId) : null;
+        if (key == null && current != null && Instant.now().isAfter(lastForcedRefresh.plus(MIN_FORCED_REFRESH_INTERVAL))) {
+            // Google may have rotated keys ahead of our refresh schedule
+            lastForcedRefresh = Instant.now();
+            current = refreshKeys(current);
+            key = current != null ? current.get(keyId) : null;
+        }
+        if (key == null) {
+            throw new IllegalArgumentException("ID token was signed with an unknown key: " + keyId);
+        }
+        return key;
+    }
+
+    private boolean signatureMatches(PublicKey key, String[] parts) {
+        try {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initVerify(key);
+            signature.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+            return signature.verify(Base64.getUrlDecoder().decode(parts[2]));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private VerifiedIdToken checkClaims(Map<String, Object> claims) {
+        String expectedProjectId = resolveProjectId();
+        long now = Instant.now().getEpochSecond();
+
+        if (!expectedProjectId.equals(claims.get("aud"))) {
+            throw new IllegalArgumentException("ID token has incorrect audience: " + claims.get("aud"));
+        }
+        if (!(ISSUER_PREFIX + expectedProjectId).equals(claims.get("iss"))) {
+            throw new IllegalArgumentException("ID token has incorrect issuer: " + claims.get("iss"));
+        }
+
+        long exp = numericClaim(claims, "exp");
+        if (exp + CLOCK_SKEW_SECONDS <= now) {
+            throw new IllegalArgumentException("ID token has expired");
+        }
+        if (numericClaim(claims, "iat") - CLOCK_SKEW_SECONDS > now) {
+            throw new IllegalArgumentException("ID token was issued in the future");
+        }
+
+        Object subject = claims.get("sub");
+        if (!(subject instanceof String) || ((String) subject).isEmpty() || ((String) subject).length() > 128) {
+            throw new IllegalArgumentException("ID token has an invalid subject");
+        }
+
+        Object email = claims.get("email");
+        return new VerifiedIdToken((String) subject, email instanceof String ? (String) email : null, exp * 1000L, claims);
+    }
+
+    private String resolveProjectId() {
+        if (projectId == null || projectId.isBlank()) {
+            projectId = FirebaseApp.getInstance().getOptions().getProjectId();
+        }
+        if (projectId == null || projectId.isBlank()) {
+            throw new IllegalStateException("Set app.auth.project-id to use local ID token verification");
+        }
+        return projectId;
+    }
+
+    private static long numericClaim(Map<String, Object> claims, String name) {
+        Object value = claims.get(name);
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException("ID token has no " + name + " claim");
+        }
+        return ((Number) value).longValue();
+    }
+
+    private Map<String, Object> decodeJson(String segment) {
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(segment);
+            return objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {});
+        } catch (IllegalArgumentException | IOException e) {
+            throw new IllegalArgumentException("ID token is not valid JSON: " + e.getMessage(), e);
+        }
+    }
+}
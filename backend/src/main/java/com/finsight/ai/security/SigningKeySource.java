@@ -0,0 +1,37 @@
+package com.finsight.ai.security;
+
+import java.security.PublicKey;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Supplies the public keys used to check ID-token signatures in local verification mode.
+ * The default implementation reads Google's published X.509 certificates; tests can point
+ * {@code app.auth.local-verification.keys-url} at a stand-in server or register a {@code @Primary} bean.
+ */
+public interface SigningKeySource {
+
+    KeySet fetchKeys();
+
+    final class KeySet {
+        private final Map<String, PublicKey> keys;
+        private final Instant expiresAt;
+
+        public KeySet(Map<String, PublicKey> keys, Instant expiresAt) {
+            this.keys = Map.copyOf(keys);
+            this.expiresAt = expiresAt;
+        }
+
+        public PublicKey get(String keyId) {
+            return keys.get(keyId);
+        }
+
+        public int size() {
+            return keys.size();
+        }
+
+        public Instant getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
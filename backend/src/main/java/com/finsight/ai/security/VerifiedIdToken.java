@@ -0,0 +1,48 @@
+package com.finsight.ai.security;
+
+import com.google.firebase.auth.FirebaseToken;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A Firebase ID token whose signature and claims have been checked, either by the Admin SDK
+ * or by {@link LocalIdTokenVerifier}.
+ */
+public final class VerifiedIdToken {
+
+    private final String uid;
+    private final String email;
+    private final long expiresAtMillis;
+    private final Map<String, Object> claims;
+
+    public VerifiedIdToken(String uid, String email, long expiresAtMillis, Map<String, Object> claims) {
+        this.uid = uid;
+        this.email = email;
+        this.expiresAtMillis = expiresAtMillis;
+        this.claims = Collections.unmodifiableMap(claims);
+    }
+
+    public static VerifiedIdToken from(FirebaseToken token) {
+        Map<String, Object> claims = token.getClaims();
+        Object exp = claims.get("exp");
+        long expiresAtMillis = exp instanceof Number ? ((Number) exp).longValue() * 1000L : 0L;
+        return new VerifiedIdToken(token.getUid(), token.getEmail(), expiresAtMillis, claims);
+    }
+
+    public String getUid() {
+        return uid;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    public Map<String, Object> getClaims() {
+        return claims;
+    }
+}
@@ -0,0 +1,76 @@
+package com.finsight.ai.security;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads a {@code {"kid": "-----BEGIN CERTIFICATE-----..."}} document, the format Google publishes
+ * for Firebase ID-token signing keys, and honours its Cache-Control max-age.
+ */
+public class X509CertificateKeySource implements SigningKeySource {
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+    private static final Duration DEFAULT_MAX_AGE = Duration.ofHours(1);
+    private static final Duration FETCH_TIMEOUT = Duration.ofSeconds(10);
+
+    private final String keysUrl;
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper;
+
+    public X509CertificateKeySource(String keysUrl, ObjectMapper objectMapper) {
+        this.keysUrl = keysUrl;
+        this.webClient = WebClient.builder().build();
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public KeySet fetchKeys() {
+        ResponseEntity<String> response = webClient.get()
+            .uri(keysUrl)
+            .retrieve()
+            .toEntity(String.class)
+            .block(FETCH_TIMEOUT);
+
+        if (response == null || response.getBody() == null) {
+            throw new IllegalStateException("Empty response from signing key endpoint " + keysUrl);
+        }
+
+        try {
+            Map<String, String> certificates = objectMapper.readValue(response.getBody(), new TypeReference<Map<String, String>>() {});
+            CertificateFactory factory = CertificateFactory.getInstance("X.509");
+            Map<String, PublicKey> keys = new HashMap<>();
+            for (Map.Entry<String, String> entry : certificates.entrySet()) {
+                byte[] pem = entry.getValue().getBytes(StandardCharsets.US_ASCII);
+                keys.put(entry.getKey(), factory.generateCertificate(new ByteArrayInputStream(pem)).getPublicKey());
+            }
+            return new KeySet(keys, Instant.now().plus(maxAge(response.getHeaders().getCacheControl())));
+        } catch (CertificateException | IOException e) {
+            throw new IllegalStateException("Could not parse signing keys from " + keysUrl + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static Duration maxAge(String cacheControl) {
+        if (cacheControl != null) {
+            Matcher matcher = MAX_AGE.matcher(cacheControl);
+            if (matcher.find()) {
+                return Duration.ofSeconds(Long.parseLong(matcher.group(1)));
+            }
+        }
+        return DEFAULT_MAX_AGE;
+    }
+}
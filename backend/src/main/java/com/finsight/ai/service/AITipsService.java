@@ -2,7 +2,6 @@
 package com.finsight.ai.service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -41,6 +40,9 @@ public class AITipsService {
     
     @Autowired
     private BudgetService budgetService;
+
+    @Autowired
+    private SpendCube spendCube;
     
     @Value("${ai.agent.api.url}")
     private String aiAgentApiUrl;
@@ -161,21 +163,15 @@ public class AITipsService {
             LocalDate startOfMonth = now.withDayOfMonth(1);
             LocalDate endOfMonth = now.withDayOfMonth(now.lengthOfMonth());
             
-            List<Expense> currentMonthExpenses = expenseService.getUserExpensesByDateRange(user, startOfMonth, endOfMonth);
             List<Budget> currentMonthBudgets = budgetService.getUserBudgetsByMonth(user, now.getMonthValue(), now.getYear());
-            Map<ExpenseCategory, BigDecimal> categorySpending = expenseService.getExpensesByCategory(user, startOfMonth, endOfMonth);
+            SpendCube.Breakdown categorySpending = spendCube.breakdown(user, startOfMonth, endOfMonth);
             
             // Create a comprehensive prompt optimized for single, complete tips
             StringBuilder contextPrompt = new StringBuilder();
             
             // Format amounts properly
-            BigDecimal totalSpent = currentMonthExpenses.stream()
-                .map(Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            BigDecimal totalBudget = currentMonthBudgets.stream()
-                .map(Budget::getMonthlyLimit)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+            long totalSpent = categorySpending.totalCents();
+            long totalBudget = SpendingMath.sumCents(currentMonthBudgets, Budget::getMonthlyLimit);
             
             String currency = user.getCurrency();
             String currencySymbol = formatCurrencySymbol(currency);
@@ -184,25 +180,22 @@ public class AITipsService {
             
             // Build very short, focused context for maximum response tokens
             contextPrompt.append("Financial tip for ").append(firstName).append(" (").append(region).append("): ");
-            contextPrompt.append("Spent ").append(currencySymbol).append(String.format("%.0f", totalSpent));
-            if (totalBudget.compareTo(BigDecimal.ZERO) > 0) {
-                double budgetUsedPercent = totalSpent.divide(totalBudget, 2, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100)).doubleValue();
-                contextPrompt.append(" of ").append(currencySymbol).append(String.format("%.0f", totalBudget));
+            contextPrompt.append("Spent ").append(currencySymbol).append(String.format("%.0f", SpendingMath.toDouble(totalSpent)));
+            if (totalBudget > 0) {
+                double budgetUsedPercent = SpendingMath.percent(totalSpent, totalBudget);
+                contextPrompt.append(" of ").append(currencySymbol).append(String.format("%.0f", SpendingMath.toDouble(totalBudget)));
                 contextPrompt.append(" (").append(String.format("%.0f", budgetUsedPercent)).append("%)");
             }
             contextPrompt.append(". ");
             
             // Add top category if available
             if (!categorySpending.isEmpty()) {
-                ExpenseCategory topCategory = categorySpending.entrySet().stream()
-                    .max(Map.Entry.comparingByValue())
-                    .map(Map.Entry::getKey)
-                    .orElse(null);
+                ExpenseCategory topCategory = categorySpending.largest();
                 
                 if (topCategory != null) {
-                    BigDecimal topAmount = categorySpending.get(topCategory);
+                    long topAmount = categorySpending.cents(topCategory);
                     contextPrompt.append("Top: ").append(topCategory.getDisplayName())
-                        .append(" ").append(currencySymbol).append(String.format("%.0f", topAmount)).append(". ");
+                        .append(" ").append(currencySymbol).append(String.format("%.0f", SpendingMath.toDouble(topAmount))).append(". ");
                 }
             }
             
@@ -365,7 +358,7 @@ public class AITipsService {
         
         List<Expense> currentMonthExpenses = expenseService.getUserExpensesByDateRange(user, startOfMonth, endOfMonth);
         List<Budget> currentMonthBudgets = budgetService.getUserBudgetsByMonth(user, now.getMonthValue(), now.getYear());
-        Map<ExpenseCategory, BigDecimal> categorySpending = expenseService.getExpensesByCategory(user, startOfMonth, endOfMonth);
+        SpendCube.Breakdown categorySpending = spendCube.breakdown(user, startOfMonth, endOfMonth);
         
         // Analyze spending behavior and generate personalized tips
         List<String> allTips = new ArrayList<>();
@@ -441,7 +434,7 @@ public class AITipsService {
     }
     
     private List<String> generateSpendingAnalysisTips(String firstName, String region, String currency, 
-                                                    List<Expense> expenses, Map<ExpenseCategory, BigDecimal> categorySpending) {
+                                                    List<Expense> expenses, SpendCube.Breakdown categorySpending) {
         List<String> tips = new ArrayList<>();
         
         if (expenses.isEmpty()) {
@@ -451,23 +444,18 @@ public class AITipsService {
         }
         
         // Calculate total spending
-        BigDecimal totalSpent = expenses.stream()
-            .map(Expense::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long totalSpent = categorySpending.totalCents();
         
-        // Sort categories by spending amount to provide variety across multiple categories
-        List<Map.Entry<ExpenseCategory, BigDecimal>> sortedCategories = categorySpending.entrySet().stream()
-                .sorted(Map.Entry.<ExpenseCategory, BigDecimal>comparingByValue().reversed())
-                .collect(Collectors.toList());
+        // Top 3 categories by spending amount to provide variety across multiple categories
+        List<ExpenseCategory> sortedCategories = categorySpending.top(3);
         
         // Generate tips for top 2-3 categories to provide variety (not just highest)
-        int categoriesToAnalyze = Math.min(3, Math.max(2, sortedCategories.size()));
+        int categoriesToAnalyze = sortedCategories.size();
         
         for (int i = 0; i < categoriesToAnalyze; i++) {
-            Map.Entry<ExpenseCategory, BigDecimal> categoryEntry = sortedCategories.get(i);
-            ExpenseCategory category = categoryEntry.getKey();
-            BigDecimal amount = categoryEntry.getValue();
-            double percentage = amount.divide(totalSpent, 4, BigDecimal.ROUND_HALF_UP).multiply(BigDecimal.valueOf(100)).doubleValue();
+            ExpenseCategory category = sortedCategories.get(i);
+            double amount = SpendingMath.toDouble(categorySpending.cents(category));
+            double percentage = SpendingMath.percent(categorySpending.cents(category), totalSpent);
             
             // Vary the tone and focus based on position and percentage to provide diversity
             if (i == 0 && percentage > 40) {
@@ -495,10 +483,8 @@ public class AITipsService {
         
         // If no categories provided tips (all too small), add general guidance
         if (tips.isEmpty() && !sortedCategories.isEmpty()) {
-            Map.Entry<ExpenseCategory, BigDecimal> topCategory = sortedCategories.get(0);
-            ExpenseCategory category = topCategory.getKey();
-            BigDecimal amount = topCategory.getValue();
-            double percentage = amount.divide(totalSpent, 4, BigDecimal.ROUND_HALF_UP).multiply(BigDecimal.valueOf(100)).doubleValue();
+            ExpenseCategory category = sortedCategories.get(0);
+            double percentage = SpendingMath.percent(categorySpending.cents(category), totalSpent);
             
             tips.add(String.format("💡 %s, good balance! Your highest category (%s) is %.0f%% of spending. %s", 
                 firstName, category.getDisplayName().toLowerCase(), percentage,
@@ -520,15 +506,11 @@ public class AITipsService {
                 .limit(3)
                 .collect(Collectors.toList());
             
-            BigDecimal recentTotal = recentExpenses.stream()
-                .map(Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            BigDecimal avgRecent = recentTotal.divide(BigDecimal.valueOf(3), 2, BigDecimal.ROUND_HALF_UP);
+            long avgRecent = SpendingMath.average(SpendingMath.sumCents(recentExpenses, Expense::getAmount), 3);
             
-            if (avgRecent.compareTo(BigDecimal.valueOf(100)) > 0) { // Adjust threshold based on currency
+            if (avgRecent > 10_000) { // Adjust threshold based on currency
                 tips.add(String.format("⚡ %s, your recent spending is high (%s %.2f average). Try the 24-hour rule: wait a day before purchases over %s 50!", 
-                    firstName, currency, avgRecent, currency));
+                    firstName, currency, SpendingMath.toDouble(avgRecent), currency));
             } else {
                 tips.add(String.format("👍 %s, good recent spending control! Keep it up and consider investing your savings for compound growth!", firstName));
             }
@@ -538,7 +520,7 @@ public class AITipsService {
     }
     
     private List<String> generateBudgetAnalysisTips(String firstName, String region, String currency, 
-                                                  List<Budget> budgets, Map<ExpenseCategory, BigDecimal> categorySpending) {
+                                                  List<Budget> budgets, SpendCube.Breakdown categorySpending) {
         List<String> tips = new ArrayList<>();
         
         if (budgets.isEmpty()) {
@@ -551,7 +533,7 @@ public class AITipsService {
         int overBudget = 0;
         int onTrack = 0;
         int underBudget = 0;
-        BigDecimal totalSavings = BigDecimal.ZERO;
+        long totalSavings = 0;
         
         // Collect ALL budget tips by category for variety
         List<String> overBudgetTips = new ArrayList<>();
@@ -561,26 +543,27 @@ public class AITipsService {
         
         // Analyze budget performance - collect all tips first
         for (Budget budget : budgets) {
-            BigDecimal spent = categorySpending.getOrDefault(budget.getCategory(), BigDecimal.ZERO);
-            BigDecimal remaining = budget.getMonthlyLimit().subtract(spent);
-            BigDecimal percentage = spent.divide(budget.getMonthlyLimit(), 4, BigDecimal.ROUND_HALF_UP)
-                .multiply(BigDecimal.valueOf(100));
+            long spent = categorySpending.cents(budget.getCategory());
+            long limit = SpendingMath.toCents(budget.getMonthlyLimit());
+            BigDecimal remaining = SpendingMath.toAmount(limit - spent);
+            long percentageBasisPoints = SpendingMath.basisPoints(spent, limit);
+            double percentage = percentageBasisPoints / 100.0;
             
-            if (percentage.compareTo(BigDecimal.valueOf(100)) > 0) {
+            if (percentageBasisPoints > 100 * 100) {
                 overBudget++;
                 // Over budget - urgent savings advice
                 overBudgetTips.add(String.format("🚨 %s, you're %.0f%% over budget for %s! %s", 
                     firstName, percentage, budget.getCategory().getDisplayName().toLowerCase(),
                     getOverBudgetSavingsAdvice(budget.getCategory(), region)));
-            } else if (percentage.compareTo(BigDecimal.valueOf(90)) > 0) {
+            } else if (percentageBasisPoints > 90 * 100) {
                 onTrack++;
                 // Close to budget limit - warning advice
                 onTrackTips.add(String.format("⚠️ %s, you're at %.0f%% of your %s budget (%s %.2f left). %s", 
                     firstName, percentage, budget.getCategory().getDisplayName().toLowerCase(),
                     currency, remaining, getBudgetWarningAdviceForRegion(budget.getCategory(), region)));
-            } else if (percentage.compareTo(BigDecimal.valueOf(70)) < 0) {
+            } else if (percentageBasisPoints < 70 * 100) {
                 underBudget++;
-                totalSavings = totalSavings.add(remaining);
+                totalSavings += limit - spent;
                 // Well under budget - investment/savings advice
                 underBudgetTips.add(String.format("🌟 Excellent %s! You saved %s %.2f in %s this month. %s", 
                     firstName, currency, remaining, budget.getCategory().getDisplayName().toLowerCase(),
@@ -649,7 +632,7 @@ public class AITipsService {
                 tips.add(String.format("💪 %s, focus on the categories where you're overspending. Small changes can lead to big savings!", firstName));
             } else if (underBudget > 0) {
                 tips.add(String.format("🎉 %s, you're saving %s %.2f across categories! Consider investing this for long-term wealth building.", 
-                    firstName, currency, totalSavings));
+                    firstName, currency, SpendingMath.toDouble(totalSavings)));
             }
         }
         
@@ -717,21 +700,15 @@ public class AITipsService {
             LocalDate startOfMonth = now.withDayOfMonth(1);
             LocalDate endOfMonth = now.withDayOfMonth(now.lengthOfMonth());
             
-            List<Expense> currentMonthExpenses = expenseService.getUserExpensesByDateRange(user, startOfMonth, endOfMonth);
             List<Budget> currentMonthBudgets = budgetService.getUserBudgetsByMonth(user, now.getMonthValue(), now.getYear());
-            Map<ExpenseCategory, BigDecimal> categorySpending = expenseService.getExpensesByCategory(user, startOfMonth, endOfMonth);
+            SpendCube.Breakdown categorySpending = spendCube.breakdown(user, startOfMonth, endOfMonth);
             
             // Create a comprehensive prompt like the chatbot does
             StringBuilder contextPrompt = new StringBuilder();
             
             // Format amounts properly
-            BigDecimal totalSpent = currentMonthExpenses.stream()
-                .map(Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            BigDecimal totalBudget = currentMonthBudgets.stream()
-                .map(Budget::getMonthlyLimit)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+            long totalSpent = categorySpending.totalCents();
+            long totalBudget = SpendingMath.sumCents(currentMonthBudgets, Budget::getMonthlyLimit);
             
             String currency = user.getCurrency();
             String currencySymbol = formatCurrencySymbol(currency);
@@ -740,18 +717,15 @@ public class AITipsService {
             
             // Build simple, concise prompt to maximize response tokens
             contextPrompt.append("Give ").append(firstName).append(" one money tip. ");
-            contextPrompt.append("Spent ").append(currencySymbol).append(String.format("%.2f", totalSpent));
+            contextPrompt.append("Spent ").append(currencySymbol).append(String.format("%.2f", SpendingMath.toDouble(totalSpent)));
             
-            if (totalBudget.compareTo(BigDecimal.ZERO) > 0) {
-                contextPrompt.append(" of ").append(currencySymbol).append(String.format("%.2f", totalBudget)).append(" budget. ");
+            if (totalBudget > 0) {
+                contextPrompt.append(" of ").append(currencySymbol).append(String.format("%.2f", SpendingMath.toDouble(totalBudget))).append(" budget. ");
             }
             
             // Add top spending category if available
             if (!categorySpending.isEmpty()) {
-                ExpenseCategory topCategory = categorySpending.entrySet().stream()
-                    .max(Map.Entry.comparingByValue())
-                    .map(Map.Entry::getKey)
-                    .orElse(null);
+                ExpenseCategory topCategory = categorySpending.largest();
                 
                 if (topCategory != null) {
                     contextPrompt.append("Most spent: ").append(topCategory.getDisplayName()).append(". ");
@@ -1146,28 +1120,20 @@ public class AITipsService {
             LocalDate startOfMonth = now.withDayOfMonth(1);
             LocalDate endOfMonth = now.withDayOfMonth(now.lengthOfMonth());
             
-            List<Expense> currentMonthExpenses = expenseService.getUserExpensesByDateRange(user, startOfMonth, endOfMonth);
             List<Budget> currentMonthBudgets = budgetService.getUserBudgetsByMonth(user, now.getMonthValue(), now.getYear());
+            SpendCube.Breakdown categorySpending = spendCube.breakdown(user, startOfMonth, endOfMonth);
             
-            if (currentMonthExpenses.isEmpty()) {
+            if (categorySpending.isEmpty()) {
                 fallbackTips.add(String.format("🌟 %s, start tracking your daily expenses to understand your spending patterns!", userName));
                 fallbackTips.add(String.format("📱 %s, use FinSight AI to scan receipts and categorize expenses automatically!", userName));
                 fallbackTips.add(String.format("🎯 %s, set up budgets for main categories like food, transport, and entertainment!", userName));
             } else {
-                BigDecimal totalSpent = currentMonthExpenses.stream()
-                    .map(Expense::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-                
                 fallbackTips.add(String.format("💰 %s, you've spent %s%.2f this month across %d transactions - great tracking!", 
-                    userName, currencySymbol, totalSpent, currentMonthExpenses.size()));
+                    userName, currencySymbol, SpendingMath.toDouble(categorySpending.totalCents()), categorySpending.totalCount()));
                 
                 // Analyze spending patterns
-                Map<ExpenseCategory, BigDecimal> categorySpending = expenseService.getExpensesByCategory(user, startOfMonth, endOfMonth);
                 if (!categorySpending.isEmpty()) {
-                    ExpenseCategory topCategory = categorySpending.entrySet().stream()
-                        .max(Map.Entry.comparingByValue())
-                        .map(Map.Entry::getKey)
-                        .orElse(ExpenseCategory.OTHER);
+                    ExpenseCategory topCategory = categorySpending.largest();
                     
                     fallbackTips.add(String.format("📊 %s, your highest spending is on %s - consider setting a budget for this category!", 
                         userName, topCategory.getDisplayName().toLowerCase()));
@@ -1180,17 +1146,15 @@ public class AITipsService {
                 fallbackTips.add(String.format("🎯 %s, create budgets to stay on track with your financial goals in %s!", userName, region));
             } else {
                 // Check budget performance
-                Map<ExpenseCategory, BigDecimal> categorySpending = expenseService.getExpensesByCategory(user, startOfMonth, endOfMonth);
                 boolean foundBudgetAdvice = false;
                 
                 for (Budget budget : currentMonthBudgets) {
-                    BigDecimal spent = categorySpending.getOrDefault(budget.getCategory(), BigDecimal.ZERO);
-                    BigDecimal percentage = spent.divide(budget.getMonthlyLimit(), 4, BigDecimal.ROUND_HALF_UP)
-                        .multiply(BigDecimal.valueOf(100));
+                    long percentageBasisPoints = SpendingMath.basisPoints(categorySpending.cents(budget.getCategory()),
+                        SpendingMath.toCents(budget.getMonthlyLimit()));
                     
-                    if (percentage.compareTo(BigDecimal.valueOf(80)) > 0 && !foundBudgetAdvice) {
+                    if (percentageBasisPoints > 80 * 100 && !foundBudgetAdvice) {
                         fallbackTips.add(String.format("⚠️ %s, you're at %.0f%% of your %s budget - consider reducing spending in this area!", 
-                            userName, percentage, budget.getCategory().getDisplayName().toLowerCase()));
+                            userName, percentageBasisPoints / 100.0, budget.getCategory().getDisplayName().toLowerCase()));
                         foundBudgetAdvice = true;
                         break;
                     }
@@ -1909,9 +1873,9 @@ public class AITipsService {
             LocalDate startOfYear = now.withDayOfYear(1);
             
             List<Expense> currentMonthExpenses = expenseService.getUserExpensesByDateRange(user, startOfMonth, endOfMonth);
-            List<Expense> currentYearExpenses = expenseService.getUserExpensesByDateRange(user, startOfYear, now);
             List<Budget> currentMonthBudgets = budgetService.getUserBudgetsByMonth(user, now.getMonthValue(), now.getYear());
-            Map<ExpenseCategory, BigDecimal> categorySpending = expenseService.getExpensesByCategory(user, startOfMonth, endOfMonth);
+            SpendCube.Breakdown categorySpending = spendCube.breakdown(user, startOfMonth, endOfMonth);
+            SpendCube.Breakdown yearSpending = spendCube.breakdown(user, startOfYear, now);
             
             // Create comprehensive context with database schema info
             StringBuilder contextPrompt = new StringBuilder();
@@ -1946,17 +1910,10 @@ public class AITipsService {
             contextPrompt.append("Currency: ").append(currencySymbol).append("\n");
             
             // Add spending summary
-            BigDecimal totalSpentMonth = currentMonthExpenses.stream()
-                .map(Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-            BigDecimal totalSpentYear = currentYearExpenses.stream()
-                .map(Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            contextPrompt.append("This month spent: ").append(currencySymbol).append(String.format("%.2f", totalSpentMonth));
-            contextPrompt.append(" (").append(currentMonthExpenses.size()).append(" transactions)\n");
-            contextPrompt.append("This year spent: ").append(currencySymbol).append(String.format("%.2f", totalSpentYear));
-            contextPrompt.append(" (").append(currentYearExpenses.size()).append(" transactions)\n");
+            contextPrompt.append("This month spent: ").append(currencySymbol).append(String.format("%.2f", SpendingMath.toDouble(categorySpending.totalCents())));
+            contextPrompt.append(" (").append(categorySpending.totalCount()).append(" transactions)\n");
+            contextPrompt.append("This year spent: ").append(currencySymbol).append(String.format("%.2f", SpendingMath.toDouble(yearSpending.totalCents())));
+            contextPrompt.append(" (").append(yearSpending.totalCount()).append(" transactions)\n");
             
             // Add recent transactions with descriptions for context
             contextPrompt.append("\nRecent transactions (last 5):\n");
@@ -1976,11 +1933,10 @@ public class AITipsService {
             if (!currentMonthBudgets.isEmpty()) {
                 contextPrompt.append("\nBudgets this month:\n");
                 for (Budget budget : currentMonthBudgets) {
-                    BigDecimal spent = categorySpending.getOrDefault(budget.getCategory(), BigDecimal.ZERO);
-                    double percentage = spent.divide(budget.getMonthlyLimit(), 4, RoundingMode.HALF_UP)
-                        .multiply(BigDecimal.valueOf(100)).doubleValue();
+                    long spent = categorySpending.cents(budget.getCategory());
+                    double percentage = SpendingMath.percent(spent, SpendingMath.toCents(budget.getMonthlyLimit()));
                     contextPrompt.append("- ").append(budget.getCategory().getDisplayName()).append(": ")
-                        .append(currencySymbol).append(String.format("%.2f", spent))
+                        .append(currencySymbol).append(String.format("%.2f", SpendingMath.toDouble(spent)))
                         .append("/").append(currencySymbol).append(String.format("%.2f", budget.getMonthlyLimit()))
                         .append(" (").append(String.format("%.0f", percentage)).append("%)\n");
                 }
@@ -1989,13 +1945,10 @@ public class AITipsService {
             // Add top spending categories
             if (!categorySpending.isEmpty()) {
                 contextPrompt.append("\nTop spending categories this month:\n");
-                categorySpending.entrySet().stream()
-                    .sorted(Map.Entry.<ExpenseCategory, BigDecimal>comparingByValue().reversed())
-                    .limit(3)
-                    .forEach(entry -> {
-                        contextPrompt.append("- ").append(entry.getKey().getDisplayName())
-                            .append(": ").append(currencySymbol).append(String.format("%.2f", entry.getValue())).append("\n");
-                    });
+                for (ExpenseCategory category : categorySpending.top(3)) {
+                    contextPrompt.append("- ").append(category.getDisplayName())
+                        .append(": ").append(currencySymbol).append(String.format("%.2f", SpendingMath.toDouble(categorySpending.cents(category)))).append("\n");
+                }
             }
             
             // Add the user's question/statement
@@ -0,0 +1,158 @@
+package com.finsight.ai.service;
+
+import com.finsight.ai.entity.AccountDeletionJob;
+import com.finsight.ai.entity.User;
+import com.finsight.ai.repository.AccountDeletionJobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Deletes an account and everything it owns with set-based statements in a background job.
+ *
+ * Child rows are removed in bounded batches, each in its own short transaction, instead of
+ * letting JPA cascades load and delete every entity one at a time inside a single transaction.
+ * Every step is idempotent, so a job interrupted by a restart is simply run again from the top
+ * by whichever instance notices that it has stopped making progress.
+ */
+@Service
+public class AccountDeletionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountDeletionService.class);
+
+    // Tables holding rows keyed by user_id, in an order that respects their foreign keys
+    private static final List<String> USER_TABLES = List.of(
+        "expenses",
+        "recurring_expenses",
+        "budgets",
+        "user_profile_pictures",
+        "data_changes",
+        "user_daily_category_totals",
+        "budget_alerts"
+    );
+
+    private static final List<AccountDeletionJob.Status> ACTIVE =
+        List.of(AccountDeletionJob.Status.PENDING, AccountDeletionJob.Status.RUNNING);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AccountDeletionJobRepository jobRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private TaskExecutor taskExecutor;
+
+    @Value("${app.account-deletion.batch-size:5000}")
+    private int batchSize;
+
+    // A running job saves progress after every batch; one silent for this long is taken over
+    @Value("${app.account-deletion.stalled-after-ms:300000}")
+    private long stalledAfterMs;
+
+    public AccountDeletionJob startDeletion(User user) {
+        Optional<AccountDeletionJob> running = jobRepository.findFirstByUserIdAndStatusIn(user.getId(), ACTIVE);
+        if (running.isPresent()) {
+            return running.get();
+        }
+
+        AccountDeletionJob job = jobRepository.save(
+            new AccountDeletionJob(UUID.randomUUID().toString(), user.getId(), user.getFirebaseUid()));
+        taskExecutor.execute(() -> run(job));
+        return job;
+    }
+
+    public Optional<AccountDeletionJob> getJob(String jobId) {
+        return jobRepository.findById(jobId);
+    }
+
+    /**
+     * Resumes jobs whose instance stopped (restart, crash) before finishing them.
+     */
+    @Scheduled(fixedDelayString = "${app.account-deletion.resume-interval-ms:60000}")
+    public void resumeStalledJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(stalledAfterMs));
+        for (AccountDeletionJob stalled : jobRepository.findByStatusInAndUpdatedAtBefore(ACTIVE, cutoff)) {
+            if (jobRepository.claimStalled(stalled.getId(), cutoff, LocalDateTime.now()) == 1) {
+                logger.info("Resuming account deletion {} for user {}", stalled.getId(), stalled.getUserId());
+                jobRepository.findById(stalled.getId()).ifPresent(job -> taskExecutor.execute(() -> run(job)));
+            }
+        }
+    }
+
+    private void run(AccountDeletionJob job) {
+        job.setStatus(AccountDeletionJob.Status.RUNNING);
+        Long userId = job.getUserId();
+        try {
+            // Counted again on resume: rows already deleted are in rowsDeleted, not in the count
+            long remaining = 0;
+            for (String table : USER_TABLES) {
+                Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE user_id = ?", Long.class, userId);
+                remaining += rows != null ? rows : 0L;
+            }
+            job.setRowsToDelete(job.getRowsDeleted() + remaining);
+            save(job);
+
+            for (String table : USER_TABLES) {
+                // ctid is only unique within one partition, so qualify it with tableoid
+                String sql = "DELETE FROM " + table + " WHERE (tableoid, ctid) IN " +
+                    "(SELECT tableoid, ctid FROM " + table + " WHERE user_id = ? LIMIT ?)";
+                int deleted;
+                do {
+                    deleted = jdbcTemplate.update(sql, userId, batchSize);
+                    job.addRowsDeleted(deleted);
+                    save(job);
+                } while (deleted > 0);
+            }
+
+            // Rows written by a request that raced the batches go together with the user row
+            transactionTemplate.executeWithoutResult(status -> {
+                for (String table : USER_TABLES) {
+                    job.addRowsDeleted(jdbcTemplate.update("DELETE FROM " + table + " WHERE user_id = ?", userId));
+                }
+                jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+            });
+
+            job.setStatus(AccountDeletionJob.Status.COMPLETED);
+            save(job);
+            logger.info("Deleted account {} ({} rows)", userId, job.getRowsDeleted());
+        } catch (RuntimeException e) {
+            job.setError(e.getMessage());
+            job.setStatus(AccountDeletionJob.Status.FAILED);
+            logger.error("Account deletion {} for user {} failed: {}", job.getId(), userId, e.getMessage(), e);
+            try {
+                save(job);
+            } catch (RuntimeException saveFailure) {
+                // Left active, so the job is retried once it counts as stalled
+                logger.warn("Could not record failure of account deletion {}: {}", job.getId(), saveFailure.getMessage());
+            }
+        }
+    }
+
+    private void save(AccountDeletionJob job) {
+        job.setUpdatedAt(LocalDateTime.now());
+        jobRepository.save(job);
+    }
+
+    @Scheduled(fixedDelay = 3600000)
+    public void purgeFinishedJobs() {
+        jobRepository.deleteFinishedBefore(LocalDateTime.now().minusDays(1));
+    }
+}
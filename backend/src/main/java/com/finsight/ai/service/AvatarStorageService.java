@@ -0,0 +1,262 @@
+package com.finsight.ai.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed file store for profile pictures.
+ *
+ * Uploaded images are decoded once and written as {@code <sha256>.<ext>}, together with
+ * pre-rendered small and medium JPEG variants. Because a file name never changes meaning,
+ * the files can be served with long-lived cache headers and strong ETags.
+ */
+@Service
+public class AvatarStorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvatarStorageService.class);
+
+    public static final String SIZE_SMALL = "small";
+    public static final String SIZE_MEDIUM = "medium";
+    public static final String SIZE_ORIGINAL = "original";
+
+    private static final Map<String, Integer> VARIANT_PIXELS = Map.of(SIZE_SMALL, 64, SIZE_MEDIUM, 256);
+    private static final Map<String, String> EXTENSIONS = Map.of(
+        "image/png", "png",
+        "image/jpeg", "jpg",
+        "image/gif", "gif",
+        "image/webp", "webp",
+        "image/bmp", "bmp"
+    );
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final String DATA_URL_PREFIX = "data:";
+
+    @Value("${app.avatars.storage-dir:data/avatars}")
+    private String storageDir;
+
+    @Value("${app.avatars.max-bytes:5242880}")
+    private int maxBytes;
+
+    // A small compressed file can still declare enormous dimensions, so decoding is bounded separately
+    @Value("${app.avatars.max-pixels:25000000}")
+    private long maxPixels;
+
+    public boolean isImageData(String value) {
+        return value != null && value.startsWith(DATA_URL_PREFIX);
+    }
+
+    /**
+     * Decodes a {@code data:image/...;base64,} URL and stores it, returning its content address.
+     */
+    public StoredAvatar store(String dataUrl) {
+        int comma = dataUrl.indexOf(',');
+        if (!isImageData(dataUrl) || comma < 0 || !dataUrl.substring(0, comma).endsWith(";base64")) {
+            throw new IllegalArgumentException("Profile picture must be a base64 data URL");
+        }
+        String contentType = dataUrl.substring(DATA_URL_PREFIX.length(), comma - ";base64".length()).toLowerCase();
+        String extension = EXTENSIONS.get(contentType);
+        if (extension == null) {
+            throw new IllegalArgumentException("Unsupported profile picture type: " + contentType);
+        }
+
+        byte[] bytes = Base64.getMimeDecoder().decode(dataUrl.substring(comma + 1));
+        if (bytes.length > maxBytes) {
+            throw new IllegalArgumentException("Profile picture is larger than " + (maxBytes / (1024 * 1024)) + " MB");
+        }
+
+        String hash = sha256(bytes);
+        try {
+            Path original = pathFor(hash, SIZE_ORIGINAL, extension);
+            if (!Files.exists(original)) {
+                BufferedImage source = decode(hash, bytes);
+                writeAtomically(original, out -> out.write(bytes));
+                if (source != null) {
+                    writeVariants(hash, source);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to store profile picture: " + e.getMessage(), e);
+        }
+        return new StoredAvatar(hash, contentType);
+    }
+
+    /**
+     * Resolves a stored picture; sizes without a rendered variant fall back to the original.
+     */
+    public AvatarFile resolve(String hash, String contentType, String size) {
+        String extension = EXTENSIONS.get(contentType);
+        if (!HASH.matcher(hash).matches() || extension == null) {
+            return null;
+        }
+        if (VARIANT_PIXELS.containsKey(size)) {
+            Path variant = pathFor(hash, size, "jpg");
+            if (Files.exists(variant)) {
+                return new AvatarFile(variant, "image/jpeg", "\"" + hash + "-" + size + "\"");
+            }
+        }
+        Path original = pathFor(hash, SIZE_ORIGINAL, extension);
+        return Files.exists(original) ? new AvatarFile(original, contentType, "\"" + hash + "\"") : null;
+    }
+
+    public String fileName(StoredAvatar avatar) {
+        return avatar.getHash() + "." + EXTENSIONS.get(avatar.getContentType());
+    }
+
+    public String contentTypeForExtension(String extension) {
+        for (Map.Entry<String, String> entry : EXTENSIONS.entrySet()) {
+            if (entry.getValue().equals(extension)) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decodes the image after checking the dimensions in its header against the pixel budget.
+     * Returns null when no ImageIO reader handles the format.
+     */
+    private BufferedImage decode(String hash, byte[] bytes) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                // e.g. WebP without an ImageIO plugin: the original is served for every size
+                logger.debug("No image reader for avatar {}, skipping resized variants", hash);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    throw new IllegalArgumentException("Profile picture dimensions are too large");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private void writeVariants(String hash, BufferedImage source) throws IOException {
+        for (Map.Entry<String, Integer> variant : VARIANT_PIXELS.entrySet()) {
+            BufferedImage resized = resize(source, variant.getValue());
+            writeAtomically(pathFor(hash, variant.getKey(), "jpg"), out -> ImageIO.write(resized, "jpg", out));
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage source, int maxPixels) {
+        double scale = Math.min(1.0, (double) maxPixels / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        // JPEG has no alpha channel, so transparent areas are flattened onto white
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private Path pathFor(String hash, String size, String extension) {
+        String name = SIZE_ORIGINAL.equals(size) ? hash + "." + extension : hash + "-" + size + "." + extension;
+        return Paths.get(storageDir, hash.substring(0, 2), name);
+    }
+
+    private static void writeAtomically(Path target, ContentWriter writer) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                writer.write(out);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ContentWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    public static final class StoredAvatar {
+        private final String hash;
+        private final String contentType;
+
+        public StoredAvatar(String hash, String contentType) {
+            this.hash = hash;
+            this.contentType = contentType;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+
+    public static final class AvatarFile {
+        private final Path path;
+        private final String contentType;
+        private final String etag;
+
+        public AvatarFile(Path path, String contentType, String etag) {
+            this.path = path;
+            this.contentType = contentType;
+            this.etag = etag;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+}
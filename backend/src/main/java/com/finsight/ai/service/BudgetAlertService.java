@@ -0,0 +1,323 @@
+package com.finsight.ai.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.finsight.ai.dto.BudgetAlertDto;
+import com.finsight.ai.entity.ExpenseCategory;
+import com.finsight.ai.entity.User;
+import com.finsight.ai.repository.BudgetRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Pushes an alert over each user's Server-Sent Events streams when an expense write takes a
+ * budget past 80% or 100% of its limit.
+ *
+ * Crossings are detected from the values returned by the spent update itself. The alert is
+ * stored in budget_alerts within the write's transaction, together with a NOTIFY that PostgreSQL
+ * only delivers once it commits. Every instance LISTENs and sends new alerts from the table to
+ * the streams it holds, so a client gets its alerts whichever instance it is connected to, and
+ * one that reconnects with Last-Event-ID, to any instance and after a restart, gets those it missed.
+ */
+@Service
+public class BudgetAlertService implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(BudgetAlertService.class);
+
+    private static final int[] THRESHOLDS = {100, 80};
+    private static final String EVENT_NAME = "budget-alert";
+    private static final String CHANNEL = "budget_alerts";
+    private static final long RECONNECT_MILLIS = 5000;
+    private static final int LISTEN_WAIT_MILLIS = 10000;
+    private static final long LISTEN_RETRY_MILLIS = 5000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.budgets.alerts.stream-timeout-ms:1800000}")
+    private long streamTimeoutMillis;
+
+    @Value("${app.budgets.alerts.max-streams-per-user:5}")
+    private int maxStreamsPerUser;
+
+    @Value("${app.budgets.alerts.replay-size:50}")
+    private int replaySize;
+
+    @Value("${app.budgets.alerts.replay-ttl-ms:3600000}")
+    private long replayTtlMillis;
+
+    private final Map<Long, UserStreams> users = new ConcurrentHashMap<>();
+    private volatile boolean listening;
+
+    /**
+     * Called with the result of a spent update; alerts when the change crossed a threshold upwards.
+     */
+    public void onSpentChanged(User user, ExpenseCategory category, LocalDate date,
+                               BudgetRepository.SpentUpdate budget, BigDecimal delta) {
+        BigDecimal limit = budget.getMonthlyLimit();
+        if (delta.signum() <= 0 || limit == null || limit.signum() <= 0) {
+            return;
+        }
+        BigDecimal current = budget.getCurrentSpent();
+        BigDecimal previous = current.subtract(delta);
+        Integer crossed = null;
+        for (int threshold : THRESHOLDS) {
+            BigDecimal amount = limit.multiply(BigDecimal.valueOf(threshold)).divide(BigDecimal.valueOf(100));
+            if (previous.compareTo(amount) < 0 && current.compareTo(amount) >= 0) {
+                crossed = threshold;
+                break;
+            }
+        }
+        if (crossed == null) {
+            return;
+        }
+
+        double percentage = current.divide(limit, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100)).doubleValue();
+        BudgetAlertDto alert = new BudgetAlertDto(budget.getId(), category, date.getMonthValue(), date.getYear(),
+            crossed, limit, current, percentage);
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(alert);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize budget alert: " + e.getMessage(), e);
+        }
+        // Both are undone if the write rolls back, and the notification only goes out on commit
+        jdbcTemplate.update("INSERT INTO budget_alerts (user_id, payload, created_at) VALUES (?, ?, now())",
+            user.getId(), payload);
+        jdbcTemplate.execute("NOTIFY " + CHANNEL + ", '" + user.getId() + "'");
+        logger.debug("Budget {} of user {} reached {}%", budget.getId(), user.getId(), crossed);
+    }
+
+    public SseEmitter subscribe(User user, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        long after = parseEventId(lastEventId);
+        while (true) {
+            UserStreams streams = users.computeIfAbsent(user.getId(), id -> new UserStreams());
+            synchronized (streams) {
+                if (streams.removed) {
+                    continue;
+                }
+                emitter.onCompletion(() -> streams.emitters.remove(emitter));
+                emitter.onTimeout(() -> streams.emitters.remove(emitter));
+                emitter.onError(e -> streams.emitters.remove(emitter));
+
+                // Every open tab holds a stream; past the cap the oldest one is closed
+                while (streams.emitters.size() >= maxStreamsPerUser) {
+                    streams.emitters.remove(0).complete();
+                }
+                if (streams.delivered < 0) {
+                    streams.delivered = latestAlertId(user.getId());
+                }
+                try {
+                    emitter.send(SseEmitter.event().reconnectTime(RECONNECT_MILLIS).comment("connected"));
+                    if (after < streams.delivered) {
+                        for (StoredAlert stored : recentAlerts(user.getId(), after, streams.delivered)) {
+                            emitter.send(event(stored));
+                        }
+                    }
+                } catch (IOException e) {
+                    emitter.completeWithError(e);
+                    return emitter;
+                }
+                streams.emitters.add(emitter);
+                return emitter;
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startListening() {
+        listening = true;
+        Thread listener = new Thread(this::listen, "budget-alert-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void stopListening() {
+        listening = false;
+    }
+
+    @Scheduled(fixedRateString = "${app.budgets.alerts.heartbeat-ms:15000}")
+    public void sendHeartbeats() {
+        users.forEach((userId, streams) -> {
+            for (SseEmitter emitter : streams.emitters) {
+                try {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } catch (IOException | IllegalStateException e) {
+                    streams.emitters.remove(emitter);
+                }
+            }
+            synchronized (streams) {
+                if (streams.emitters.isEmpty()) {
+                    // Anyone still holding this instance sees the flag and starts over with a fresh one
+                    streams.removed = true;
+                    users.remove(userId, streams);
+                }
+            }
+        });
+    }
+
+    // Every instance runs it; the DELETE is idempotent
+    @Scheduled(fixedDelay = 60000)
+    public void deleteExpiredAlerts() {
+        jdbcTemplate.update("DELETE FROM budget_alerts WHERE created_at < ?",
+            Timestamp.from(Instant.now().minusMillis(replayTtlMillis)));
+    }
+
+    public int getOpenStreams() {
+        return users.values().stream().mapToInt(streams -> streams.emitters.size()).sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("finsight.budgets.alerts.streams", this, BudgetAlertService::getOpenStreams)
+            .description("Open budget alert event streams")
+            .register(registry);
+    }
+
+    /**
+     * Holds one pooled connection for LISTEN. After (re)connecting it first sends whatever was
+     * stored while it was not listening, then waits for notifications.
+     */
+    private void listen() {
+        while (listening) {
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                users.keySet().forEach(this::deliver);
+                while (listening) {
+                    PGNotification[] notifications = pgConnection.getNotifications(LISTEN_WAIT_MILLIS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        Long userId = Long.valueOf(notification.getParameter());
+                        if (users.containsKey(userId)) {
+                            deliver(userId);
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!listening) {
+                    return;
+                }
+                logger.warn("Budget alert listener lost its connection, retrying in {} ms: {}", LISTEN_RETRY_MILLIS, e.getMessage());
+                try {
+                    Thread.sleep(LISTEN_RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // Sends the user's alerts stored since the last one sent from this instance
+    private void deliver(Long userId) {
+        UserStreams streams = users.get(userId);
+        if (streams == null) {
+            return;
+        }
+        synchronized (streams) {
+            if (streams.removed || streams.delivered < 0) {
+                return;
+            }
+            for (StoredAlert stored : recentAlerts(userId, streams.delivered, Long.MAX_VALUE)) {
+                for (SseEmitter emitter : streams.emitters) {
+                    try {
+                        emitter.send(event(stored));
+                    } catch (IOException | IllegalStateException e) {
+                        streams.emitters.remove(emitter);
+                    }
+                }
+                streams.delivered = stored.id;
+            }
+        }
+    }
+
+    private long latestAlertId(Long userId) {
+        Long latest = jdbcTemplate.queryForObject(
+            "SELECT COALESCE(MAX(id), 0) FROM budget_alerts WHERE user_id = ?", Long.class, userId);
+        return latest != null ? latest : 0L;
+    }
+
+    // The newest replay-size alerts with after < id <= upTo, oldest first
+    private List<StoredAlert> recentAlerts(Long userId, long after, long upTo) {
+        return jdbcTemplate.query(
+            "SELECT id, payload FROM (SELECT id, payload FROM budget_alerts " +
+            "WHERE user_id = ? AND id > ? AND id <= ? AND created_at >= ? ORDER BY id DESC LIMIT ?) a ORDER BY id",
+            (rs, rowNum) -> new StoredAlert(rs.getLong("id"), readAlert(rs.getString("payload"))),
+            userId, after, upTo, Timestamp.from(Instant.now().minusMillis(replayTtlMillis)), replaySize);
+    }
+
+    private BudgetAlertDto readAlert(String payload) {
+        try {
+            return objectMapper.readValue(payload, BudgetAlertDto.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored budget alert is not valid JSON: " + e.getMessage(), e);
+        }
+    }
+
+    private static SseEmitter.SseEventBuilder event(StoredAlert stored) {
+        return SseEmitter.event().id(String.valueOf(stored.id)).name(EVENT_NAME).data(stored.alert);
+    }
+
+    private static long parseEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static final class UserStreams {
+        private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+        // Id of the last alert sent to these streams, -1 until the first subscriber reads it
+        private long delivered = -1;
+        private boolean removed;
+    }
+
+    private record StoredAlert(long id, BudgetAlertDto alert) {
+    }
+}
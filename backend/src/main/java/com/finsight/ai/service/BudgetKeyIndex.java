@@ -0,0 +1,234 @@
+package com.finsight.ai.service;
+
+import com.finsight.ai.entity.ExpenseCategory;
+import com.finsight.ai.entity.User;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory index of which (category, month) pairs each user has a budget for, so an expense
+ * for a month without a budget is refused without touching the database.
+ *
+ * Each user's entry is a category bitmask per month, tagged with the data version it reflects.
+ * It is only used while that version matches the caller's, so writes made elsewhere (another
+ * instance, a rolled back transaction) just cause a reload. Writes on this instance move the
+ * entry forward after they commit, and entries that are not used for a while are dropped.
+ */
+@Component
+public class BudgetKeyIndex implements MeterBinder {
+
+    private static final String PENDING_RESOURCE_PREFIX = BudgetKeyIndex.class.getName() + ".PENDING.";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.budgets.key-index.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${app.budgets.key-index.idle-ms:600000}")
+    private long idleMillis;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            if (size() > maxEntries) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    public boolean hasBudget(User user, ExpenseCategory category, LocalDate date) {
+        long version = user.getDataVersion() != null ? user.getDataVersion() : 0L;
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(user.getId());
+            if (entry != null && entry.version == version) {
+                hits.incrementAndGet();
+                entry.lastAccessMillis = System.currentTimeMillis();
+                return entry.contains(category, date.getYear(), date.getMonthValue());
+            }
+        }
+
+        misses.incrementAndGet();
+        entry = load(user.getId());
+        boolean found = entry.contains(category, date.getYear(), date.getMonthValue());
+        synchronized (entries) {
+            Entry current = entries.get(user.getId());
+            if (current == null || current.version < entry.version) {
+                entries.put(user.getId(), entry);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Called by DataVersionService for every write; the entry follows the write once it commits.
+     */
+    void versionBumped(Long userId, long version) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(userId);
+            return;
+        }
+        PendingWrite pending = new PendingWrite(version);
+        String resource = PENDING_RESOURCE_PREFIX + userId;
+        TransactionSynchronizationManager.unbindResourceIfPossible(resource);
+        TransactionSynchronizationManager.bindResource(resource, pending);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(userId, pending);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(resource);
+            }
+        });
+    }
+
+    public void budgetAdded(User user, ExpenseCategory category, int month, int year) {
+        PendingWrite pending = pending(user.getId());
+        if (pending == null) {
+            evict(user.getId());
+            return;
+        }
+        pending.added.merge(monthKey(year, month), 1L << category.ordinal(), (a, b) -> a | b);
+    }
+
+    // A budget moved or went away; the entry is reloaded rather than patched
+    public void budgetsChanged(User user) {
+        PendingWrite pending = pending(user.getId());
+        if (pending == null) {
+            evict(user.getId());
+            return;
+        }
+        pending.invalidate = true;
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        synchronized (entries) {
+            int before = entries.size();
+            entries.values().removeIf(entry -> entry.lastAccessMillis < cutoff);
+            evictions.addAndGet(before - entries.size());
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("finsight.budgets.key.index.requests", hits, AtomicLong::get)
+            .tag("result", "hit")
+            .description("Budget existence checks answered by the in-memory index")
+            .register(registry);
+        FunctionCounter.builder("finsight.budgets.key.index.requests", misses, AtomicLong::get)
+            .tag("result", "miss")
+            .description("Budget existence checks answered by the in-memory index")
+            .register(registry);
+        FunctionCounter.builder("finsight.budgets.key.index.evictions", evictions, AtomicLong::get)
+            .description("Users dropped from the index because of size or idleness")
+            .register(registry);
+        Gauge.builder("finsight.budgets.key.index.size", this, BudgetKeyIndex::size)
+            .description("Users currently held in the budget index")
+            .register(registry);
+    }
+
+    // One statement, so the version and the budgets come from the same snapshot
+    private Entry load(Long userId) {
+        Entry entry = new Entry();
+        jdbcTemplate.query(
+            "SELECT u.data_version, b.category, b.month, b.year FROM users u " +
+            "LEFT JOIN budgets b ON b.user_id = u.id WHERE u.id = ?",
+            rs -> {
+                entry.version = rs.getLong("data_version");
+                String category = rs.getString("category");
+                if (category != null) {
+                    entry.months.merge(monthKey(rs.getInt("year"), rs.getInt("month")),
+                        1L << ExpenseCategory.valueOf(category).ordinal(), (a, b) -> a | b);
+                }
+            },
+            userId);
+        return entry;
+    }
+
+    private void apply(Long userId, PendingWrite pending) {
+        synchronized (entries) {
+            Entry entry = entries.get(userId);
+            if (entry == null) {
+                return;
+            }
+            // Any write this instance didn't see in between means the entry can't be patched
+            if (pending.invalidate || entry.version != pending.version - 1) {
+                entries.remove(userId);
+                return;
+            }
+            pending.added.forEach((month, mask) -> entry.months.merge(month, mask, (a, b) -> a | b));
+            entry.version = pending.version;
+        }
+    }
+
+    private void evict(Long userId) {
+        synchronized (entries) {
+            entries.remove(userId);
+        }
+    }
+
+    private static PendingWrite pending(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        return (PendingWrite) TransactionSynchronizationManager.getResource(PENDING_RESOURCE_PREFIX + userId);
+    }
+
+    private static int monthKey(int year, int month) {
+        return year * 12 + month - 1;
+    }
+
+    private static final class Entry {
+        private long version;
+        private final Map<Integer, Long> months = new HashMap<>();
+        private volatile long lastAccessMillis = System.currentTimeMillis();
+
+        private boolean contains(ExpenseCategory category, int year, int month) {
+            Long mask = months.get(monthKey(year, month));
+            return mask != null && (mask & (1L << category.ordinal())) != 0;
+        }
+    }
+
+    private static final class PendingWrite {
+        private final long version;
+        private final Map<Integer, Long> added = new HashMap<>();
+        private boolean invalidate;
+
+        private PendingWrite(long version) {
+            this.version = version;
+        }
+    }
+}
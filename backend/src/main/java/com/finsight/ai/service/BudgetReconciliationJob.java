@@ -0,0 +1,164 @@
+package com.finsight.ai.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Progress and findings of a run of {@link BudgetReconciliationService}.
+ */
+public class BudgetReconciliationJob {
+
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+    // Only the first drifted budgets are kept for the report, the counters cover all of them
+    private static final int MAX_REPORTED_DRIFTS = 100;
+
+    private final String id;
+    private final boolean fix;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private final AtomicInteger partitions = new AtomicInteger();
+    private final AtomicInteger partitionsDone = new AtomicInteger();
+    private final AtomicLong usersScanned = new AtomicLong();
+    private final AtomicLong budgetsDrifted = new AtomicLong();
+    private final AtomicLong budgetsFixed = new AtomicLong();
+    private final AtomicReference<BigDecimal> totalDrift = new AtomicReference<>(BigDecimal.ZERO);
+    private final List<Drift> drifts = new ArrayList<>();
+    private volatile Status status = Status.PENDING;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    public BudgetReconciliationJob(String id, boolean fix) {
+        this.id = id;
+        this.fix = fix;
+    }
+
+    void setPartitions(int partitions) {
+        this.partitions.set(partitions);
+    }
+
+    void partitionDone(int users) {
+        usersScanned.addAndGet(users);
+        partitionsDone.incrementAndGet();
+    }
+
+    void addDrift(Drift drift) {
+        budgetsDrifted.incrementAndGet();
+        totalDrift.accumulateAndGet(drift.getActual().subtract(drift.getStored()).abs(), BigDecimal::add);
+        synchronized (drifts) {
+            if (drifts.size() < MAX_REPORTED_DRIFTS) {
+                drifts.add(drift);
+            }
+        }
+    }
+
+    void addFixed(int budgets) {
+        budgetsFixed.addAndGet(budgets);
+    }
+
+    void setStatus(Status status) {
+        this.status = status;
+        if (status == Status.COMPLETED || status == Status.FAILED) {
+            this.finishedAt = LocalDateTime.now();
+        }
+    }
+
+    void setError(String error) {
+        this.error = error;
+    }
+
+    boolean isActive() {
+        return status == Status.PENDING || status == Status.RUNNING;
+    }
+
+    // Getters
+    public String getId() {
+        return id;
+    }
+
+    public boolean isFix() {
+        return fix;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getPartitions() {
+        return partitions.get();
+    }
+
+    public int getPartitionsDone() {
+        return partitionsDone.get();
+    }
+
+    public long getUsersScanned() {
+        return usersScanned.get();
+    }
+
+    public long getBudgetsDrifted() {
+        return budgetsDrifted.get();
+    }
+
+    public long getBudgetsFixed() {
+        return budgetsFixed.get();
+    }
+
+    public BigDecimal getTotalDrift() {
+        return totalDrift.get();
+    }
+
+    public List<Drift> getDrifts() {
+        synchronized (drifts) {
+            return new ArrayList<>(drifts);
+        }
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public static class Drift {
+        private final Long budgetId;
+        private final Long userId;
+        private final BigDecimal stored;
+        private final BigDecimal actual;
+
+        public Drift(Long budgetId, Long userId, BigDecimal stored, BigDecimal actual) {
+            this.budgetId = budgetId;
+            this.userId = userId;
+            this.stored = stored;
+            this.actual = actual;
+        }
+
+        public Long getBudgetId() {
+            return budgetId;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public BigDecimal getStored() {
+            return stored;
+        }
+
+        public BigDecimal getActual() {
+            return actual;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.finsight.ai.service;
+
+import com.finsight.ai.entity.DataChange;
+import com.finsight.ai.repository.DataChangeRepository;
+import com.finsight.ai.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recomputes every budget's spent amount from the expenses table and corrects any drift.
+ *
+ * Expense writes maintain current_spent with deltas, so this is both the repair path for totals
+ * that drifted in the past and a production check that the deltas stay right. Users are split
+ * into id ranges, each scanned with one grouped query on a small worker pool. The scan takes no
+ * locks; only the short batches that fix drifted budgets lock the users involved, the same way an
+ * expense write does, so they are never waiting on or racing a write.
+ */
+@Service
+public class BudgetReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BudgetReconciliationService.class);
+
+    private static final String DRIFT_SQL =
+        "SELECT b.id, b.user_id, COALESCE(b.current_spent, 0) AS stored, COALESCE(t.total, 0) AS actual " +
+        "FROM budgets b LEFT JOIN (" +
+        "  SELECT user_id, category, EXTRACT(YEAR FROM date)::int AS year, EXTRACT(MONTH FROM date)::int AS month, SUM(amount) AS total " +
+        "  FROM expenses WHERE user_id BETWEEN ? AND ? GROUP BY 1, 2, 3, 4" +
+        ") t ON t.user_id = b.user_id AND t.category = b.category AND t.year = b.year AND t.month = b.month " +
+        "WHERE b.user_id BETWEEN ? AND ? AND COALESCE(b.current_spent, 0) <> COALESCE(t.total, 0)";
+
+    // Recomputed under the users' locks, so rows that were only briefly out of step are left alone
+    private static final String FIX_SQL =
+        "UPDATE budgets b SET current_spent = t.actual, updated_at = now() FROM (" +
+        "  SELECT b2.id, COALESCE((SELECT SUM(e.amount) FROM expenses e " +
+        "    WHERE e.user_id = b2.user_id AND e.category = b2.category " +
+        "    AND e.date >= make_date(b2.year, b2.month, 1) " +
+        "    AND e.date < (make_date(b2.year, b2.month, 1) + interval '1 month')::date), 0) AS actual " +
+        "  FROM budgets b2 WHERE b2.id IN (%s)" +
+        ") t WHERE b.id = t.id AND b.current_spent IS DISTINCT FROM t.actual " +
+        "RETURNING b.id, b.user_id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DataChangeRepository dataChangeRepository;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private TaskExecutor taskExecutor;
+
+    @Value("${app.budgets.reconciliation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.budgets.reconciliation.fix:true}")
+    private boolean fixByDefault;
+
+    @Value("${app.budgets.reconciliation.threads:4}")
+    private int threads;
+
+    @Value("${app.budgets.reconciliation.users-per-partition:500}")
+    private int usersPerPartition;
+
+    @Value("${app.budgets.reconciliation.batch-size:200}")
+    private int batchSize;
+
+    private final Object lock = new Object();
+    private volatile BudgetReconciliationJob lastJob;
+
+    @Scheduled(cron = "${app.budgets.reconciliation.cron:0 15 3 * * *}")
+    public void scheduledReconciliation() {
+        if (enabled) {
+            run(startJob(fixByDefault));
+        }
+    }
+
+    /**
+     * Starts a run in the background, or returns the one already in progress.
+     */
+    public BudgetReconciliationJob startReconciliation(Boolean fix) {
+        BudgetReconciliationJob job = startJob(fix != null ? fix : fixByDefault);
+        taskExecutor.execute(() -> run(job));
+        return job;
+    }
+
+    public BudgetReconciliationJob getLastJob() {
+        return lastJob;
+    }
+
+    private BudgetReconciliationJob startJob(boolean fix) {
+        synchronized (lock) {
+            if (lastJob != null && lastJob.isActive()) {
+                return lastJob;
+            }
+            lastJob = new BudgetReconciliationJob(UUID.randomUUID().toString(), fix);
+            return lastJob;
+        }
+    }
+
+    private void run(BudgetReconciliationJob job) {
+        // The job may already have been picked up by the scheduler or an earlier request
+        synchronized (lock) {
+            if (job.getStatus() != BudgetReconciliationJob.Status.PENDING) {
+                return;
+            }
+            job.setStatus(BudgetReconciliationJob.Status.RUNNING);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Long> userIds = jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id", Long.class);
+            List<List<Long>> partitions = chunk(userIds, Math.max(1, usersPerPartition));
+            job.setPartitions(partitions.size());
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (List<Long> partition : partitions) {
+                futures.add(pool.submit(() -> reconcilePartition(job, partition)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            job.setStatus(BudgetReconciliationJob.Status.COMPLETED);
+            if (job.getBudgetsDrifted() > 0) {
+                logger.warn("Budget reconciliation {} found {} drifted budgets (total drift {}), fixed {}",
+                    job.getId(), job.getBudgetsDrifted(), job.getTotalDrift(), job.getBudgetsFixed());
+            } else {
+                logger.info("Budget reconciliation {} checked {} users, no drift", job.getId(), job.getUsersScanned());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.setError("Interrupted");
+            job.setStatus(BudgetReconciliationJob.Status.FAILED);
+        } catch (ExecutionException | RuntimeException e) {
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            job.setError(cause.getMessage());
+            job.setStatus(BudgetReconciliationJob.Status.FAILED);
+            logger.error("Budget reconciliation {} failed: {}", job.getId(), cause.getMessage(), cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void reconcilePartition(BudgetReconciliationJob job, List<Long> userIds) {
+        Long first = userIds.get(0);
+        Long last = userIds.get(userIds.size() - 1);
+        List<BudgetReconciliationJob.Drift> drifts = jdbcTemplate.query(DRIFT_SQL,
+            (rs, rowNum) -> new BudgetReconciliationJob.Drift(
+                rs.getLong("id"), rs.getLong("user_id"), rs.getBigDecimal("stored"), rs.getBigDecimal("actual")),
+            first, last, first, last);
+
+        for (BudgetReconciliationJob.Drift drift : drifts) {
+            job.addDrift(drift);
+            logger.warn("Budget {} of user {} has spent {} but its expenses add up to {}",
+                drift.getBudgetId(), drift.getUserId(), drift.getStored(), drift.getActual());
+        }
+        if (job.isFix()) {
+            for (List<BudgetReconciliationJob.Drift> batch : chunk(drifts, Math.max(1, batchSize))) {
+                job.addFixed(fixBatch(batch));
+            }
+        }
+        job.partitionDone(userIds.size());
+    }
+
+    private int fixBatch(List<BudgetReconciliationJob.Drift> batch) {
+        List<Long> budgetIds = new ArrayList<>();
+        List<Long> userIds = new ArrayList<>();
+        for (BudgetReconciliationJob.Drift drift : batch) {
+            budgetIds.add(drift.getBudgetId());
+            if (!userIds.contains(drift.getUserId())) {
+                userIds.add(drift.getUserId());
+            }
+        }
+        Collections.sort(userIds);
+
+        Integer fixed = transactionTemplate.execute(status -> {
+            // Waits for in-flight expense writes of these users and holds off new ones; id order avoids deadlocks
+            jdbcTemplate.queryForList("SELECT id FROM users WHERE id IN (" + placeholders(userIds.size()) + ") ORDER BY id FOR UPDATE",
+                Long.class, userIds.toArray());
+
+            Map<Long, List<Long>> fixedByUser = new LinkedHashMap<>();
+            jdbcTemplate.query(String.format(FIX_SQL, placeholders(budgetIds.size())),
+                rs -> {
+                    fixedByUser.computeIfAbsent(rs.getLong("user_id"), id -> new ArrayList<>()).add(rs.getLong("id"));
+                },
+                budgetIds.toArray());
+
+            // Clients holding the old totals pick the corrections up through their ETag and /sync/changes
+            AtomicInteger count = new AtomicInteger();
+            fixedByUser.forEach((userId, ids) -> {
+                Long version = userRepository.incrementDataVersion(userId);
+                for (Long budgetId : ids) {
+                    dataChangeRepository.record(userId, DataChange.BUDGET, budgetId, version, DataChange.UPSERT);
+                    count.incrementAndGet();
+                }
+            });
+            return count.get();
+        });
+        return fixed != null ? fixed : 0;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static <T> List<List<T>> chunk(List<T> items, int size) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += size) {
+            chunks.add(items.subList(i, Math.min(items.size(), i + size)));
+        }
+        return chunks;
+    }
+}
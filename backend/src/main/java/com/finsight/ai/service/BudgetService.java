@@ -2,28 +2,68 @@ package com.finsight.ai.service;
 
 import com.finsight.ai.dto.BudgetDto;
 import com.finsight.ai.entity.Budget;
+import com.finsight.ai.entity.DataChange;
 import com.finsight.ai.entity.ExpenseCategory;
 import com.finsight.ai.entity.User;
 import com.finsight.ai.repository.BudgetRepository;
-import com.finsight.ai.repository.ExpenseRepository;
+import com.finsight.ai.repository.DailyCategoryTotalRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class BudgetService {
 
+    // Fields that can be requested with fields=, and the columns each one needs
+    private static final Map<String, List<String>> BUDGET_FIELD_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        BUDGET_FIELD_COLUMNS.put("id", List.of("id"));
+        BUDGET_FIELD_COLUMNS.put("category", List.of("category"));
+        BUDGET_FIELD_COLUMNS.put("monthlyLimit", List.of("monthly_limit"));
+        BUDGET_FIELD_COLUMNS.put("month", List.of("month"));
+        BUDGET_FIELD_COLUMNS.put("year", List.of("year"));
+        BUDGET_FIELD_COLUMNS.put("currentSpent", List.of("current_spent"));
+        BUDGET_FIELD_COLUMNS.put("remainingBudget", List.of("monthly_limit", "current_spent"));
+        BUDGET_FIELD_COLUMNS.put("budgetPercentage", List.of("monthly_limit", "current_spent"));
+        BUDGET_FIELD_COLUMNS.put("isOverBudget", List.of("monthly_limit", "current_spent"));
+    }
+
     @Autowired
     private BudgetRepository budgetRepository;
 
     @Autowired
-    private ExpenseRepository expenseRepository;
+    private DailyCategoryTotalRepository dailyCategoryTotalRepository;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BudgetAlertService budgetAlertService;
+
+    @Autowired
+    private BudgetKeyIndex budgetKeyIndex;
 
+    @Transactional
     public Budget createBudget(BudgetDto budgetDto, User user) {
+        dataVersionService.bump(user);
+
         // Check if budget already exists for this category, month, and year
         Optional<Budget> existingBudget = budgetRepository.findByUserAndCategoryAndMonthAndYear(
             user, budgetDto.getCategory(), budgetDto.getMonth(), budgetDto.getYear());
@@ -43,7 +83,10 @@ public class BudgetService {
         // Calculate current spent amount
         updateBudgetSpent(budget);
 
-        return budgetRepository.save(budget);
+        Budget savedBudget = budgetRepository.save(budget);
+        budgetKeyIndex.budgetAdded(user, savedBudget.getCategory(), savedBudget.getMonth(), savedBudget.getYear());
+        dataVersionService.recordUpsert(user, DataChange.BUDGET, savedBudget.getId());
+        return savedBudget;
     }
 
     public List<Budget> getUserBudgets(User user) {
@@ -54,7 +97,65 @@ public class BudgetService {
         return budgetRepository.findByUserAndMonthAndYearOrderByCategory(user, month, year);
     }
 
+    public List<BudgetDto> getUserBudgetDtos(User user) {
+        return budgetRepository.findDtosByUser(user);
+    }
+
+    public List<BudgetDto> getUserBudgetDtosByMonth(User user, Integer month, Integer year) {
+        return budgetRepository.findDtosByUserAndMonthAndYear(user, month, year);
+    }
+
+    /**
+     * GET /budgets?fields=... : selects only the columns behind the requested fields. The derived
+     * fields need the limit and spent amount, so those are read whenever one of them is requested.
+     */
+    public List<Map<String, Object>> getUserBudgetFields(User user, String fields, Integer month, Integer year) {
+        List<String> selected = SparseFields.parse(fields, BUDGET_FIELD_COLUMNS.keySet());
+        Set<String> columns = new LinkedHashSet<>();
+        for (String field : selected) {
+            columns.addAll(BUDGET_FIELD_COLUMNS.get(field));
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT ").append(String.join(", ", columns))
+            .append(" FROM budgets WHERE user_id = ?");
+        List<Object> params = new ArrayList<>();
+        params.add(user.getId());
+        if (month != null && year != null) {
+            sql.append(" AND month = ? AND year = ?");
+            params.add(month);
+            params.add(year);
+        }
+        sql.append(" ORDER BY category");
+
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            Map<String, Object> values = new HashMap<>();
+            for (String column : columns) {
+                values.put(column, SparseFields.readColumn(rs, column));
+            }
+            BudgetDto derived = null;
+            if (values.containsKey("monthly_limit") && values.containsKey("current_spent")) {
+                derived = new BudgetDto(null, null, (BigDecimal) values.get("monthly_limit"), null, null,
+                    (BigDecimal) values.get("current_spent"));
+            }
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : selected) {
+                switch (field) {
+                    case "remainingBudget" -> row.put(field, derived.getRemainingBudget());
+                    case "budgetPercentage" -> row.put(field, derived.getBudgetPercentage());
+                    case "isOverBudget" -> row.put(field, derived.getIsOverBudget());
+                    case "currentSpent" -> row.put(field, derived != null ? derived.getCurrentSpent() : values.get("current_spent"));
+                    default -> row.put(field, values.get(BUDGET_FIELD_COLUMNS.get(field).get(0)));
+                }
+            }
+            return row;
+        }, params.toArray());
+    }
+
+    @Transactional
     public Budget updateBudget(Long budgetId, BudgetDto budgetDto, User user) {
+        dataVersionService.bump(user);
+
         Budget budget = budgetRepository.findById(budgetId)
             .orElseThrow(() -> new RuntimeException("Budget not found"));
 
@@ -62,6 +163,12 @@ public class BudgetService {
             throw new RuntimeException("Unauthorized to update this budget");
         }
 
+        boolean keyChanged = budget.getCategory() != budgetDto.getCategory()
+            || !budget.getMonth().equals(budgetDto.getMonth()) || !budget.getYear().equals(budgetDto.getYear());
+        if (keyChanged) {
+            budgetKeyIndex.budgetsChanged(user);
+        }
+
         budget.setCategory(budgetDto.getCategory());
         budget.setMonthlyLimit(budgetDto.getMonthlyLimit());
         budget.setMonth(budgetDto.getMonth());
@@ -70,10 +177,15 @@ public class BudgetService {
         // Recalculate current spent amount
         updateBudgetSpent(budget);
 
-        return budgetRepository.save(budget);
+        Budget savedBudget = budgetRepository.save(budget);
+        dataVersionService.recordUpsert(user, DataChange.BUDGET, savedBudget.getId());
+        return savedBudget;
     }
 
+    @Transactional
     public void deleteBudget(Long budgetId, User user) {
+        dataVersionService.bump(user);
+
         Budget budget = budgetRepository.findById(budgetId)
             .orElseThrow(() -> new RuntimeException("Budget not found"));
 
@@ -82,28 +194,31 @@ public class BudgetService {
         }
 
         budgetRepository.delete(budget);
+        budgetKeyIndex.budgetsChanged(user);
+        dataVersionService.recordDelete(user, DataChange.BUDGET, budget.getId());
     }
 
-    public void updateBudgetSpent(User user, ExpenseCategory category, LocalDate expenseDate) {
-        int month = expenseDate.getMonthValue();
-        int year = expenseDate.getYear();
-
-        Optional<Budget> budgetOpt = budgetRepository.findByUserAndCategoryAndMonthAndYear(
-            user, category, month, year);
-
-        if (budgetOpt.isPresent()) {
-            Budget budget = budgetOpt.get();
-            updateBudgetSpent(budget);
-            budgetRepository.save(budget);
-        }
+    /**
+     * Adds delta to the spent amount of the user's budget for the category and month of date, as a
+     * single UPDATE. Returns the budget's values after the change, or empty if there is no such budget.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Optional<BudgetRepository.SpentUpdate> addToSpent(User user, ExpenseCategory category, LocalDate date, BigDecimal delta) {
+        Optional<BudgetRepository.SpentUpdate> updated = budgetRepository.addToCurrentSpent(
+            user.getId(), category.name(), date.getMonthValue(), date.getYear(), delta);
+        updated.ifPresent(budget -> {
+            dataVersionService.recordUpsert(user, DataChange.BUDGET, budget.getId());
+            budgetAlertService.onSpentChanged(user, category, date, budget, delta);
+        });
+        return updated;
     }
 
     private void updateBudgetSpent(Budget budget) {
         LocalDate startDate = LocalDate.of(budget.getYear(), budget.getMonth(), 1);
         LocalDate endDate = startDate.plusMonths(1).minusDays(1);
 
-        BigDecimal spent = expenseRepository.getTotalExpensesByCategoryBetweenDates(
-            budget.getUser(), budget.getCategory(), startDate, endDate);
+        BigDecimal spent = dailyCategoryTotalRepository.getTotalByCategoryBetweenDates(
+            budget.getUser().getId(), budget.getCategory(), startDate, endDate);
 
         budget.setCurrentSpent(spent != null ? spent : BigDecimal.ZERO);
     }
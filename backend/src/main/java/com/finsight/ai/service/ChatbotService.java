@@ -2,15 +2,14 @@
 package com.finsight.ai.service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.Month;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.time.format.TextStyle;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -26,6 +25,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import com.finsight.ai.entity.Budget;
 import com.finsight.ai.entity.ExpenseCategory;
 import com.finsight.ai.entity.User;
 import com.finsight.ai.repository.BudgetRepository;
@@ -100,6 +100,8 @@ public class ChatbotService {
     @Autowired
     private ExpenseRepository expenseRepository;
     @Autowired
+    private SpendCube spendCube;
+    @Autowired
     private BudgetRepository budgetRepository;
     @Autowired
     private UserRepository userRepository;
@@ -121,14 +123,15 @@ public class ChatbotService {
     }
 
     public String getChatbotReply(String userMessage, String userId, String currency) {
-        try {
-            Optional<User> userOpt = userRepository.findByFirebaseUid(userId);
-            if (!userOpt.isPresent()) {
-                return "I couldn't find your account information. Please try logging in again.";
-            }
-
-            User user = userOpt.get();
+        Optional<User> userOpt = userRepository.findByFirebaseUid(userId);
+        if (!userOpt.isPresent()) {
+            return "I couldn't find your account information. Please try logging in again.";
+        }
+        return getChatbotReply(userMessage, userOpt.get(), currency);
+    }
 
+    public String getChatbotReply(String userMessage, User user, String currency) {
+        try {
             // Build full context for AI agent
             String schemaContext = "Schema: EXPENSES(id, user_id, amount, category, description, date, receipt_url), " +
                     "BUDGETS(id, user_id, category, monthly_limit, current_spent, month, year), " +
@@ -138,13 +141,13 @@ public class ChatbotService {
             // Add user financial context
             LocalDate now = LocalDate.now();
             LocalDate monthStart = now.withDayOfMonth(1);
-            List<Object[]> categoryData = expenseRepository.getExpensesByCategoryBetweenDates(user, monthStart, now);
+            SpendCube.Breakdown categoryData = spendCube.breakdown(user, monthStart, now);
             StringBuilder breakdown = new StringBuilder();
             breakdown.append("Category breakdown this month:\n");
-            for (Object[] data : categoryData) {
-                ExpenseCategory cat = (ExpenseCategory) data[0];
-                BigDecimal amount = (BigDecimal) data[1];
-                breakdown.append(String.format("- %s: %s\n", cat.getDisplayName(), currencyService.formatAmount(amount.doubleValue(), currency)));
+            for (ExpenseCategory cat : ExpenseCategory.values()) {
+                if (categoryData.has(cat)) {
+                    breakdown.append(String.format("- %s: %s\n", cat.getDisplayName(), currencyService.formatAmount(SpendingMath.toDouble(categoryData.cents(cat)), currency)));
+                }
             }
 
             // Compose prompt for AI agent
@@ -184,7 +187,7 @@ public class ChatbotService {
             // Otherwise, return AI response
             return aiResponse;
         } catch (Exception e) {
-            logger.error("Error processing chatbot request for user: {}", userId, e);
+            logger.error("Error processing chatbot request for user: {}", user.getFirebaseUid(), e);
             return "I'm experiencing technical difficulties. Please try again in a moment.";
         }
     }
@@ -197,11 +200,10 @@ public class ChatbotService {
             LocalDate lastMonth = now.minusMonths(1);
             LocalDate start = lastMonth.withDayOfMonth(1);
             LocalDate end = lastMonth.withDayOfMonth(lastMonth.lengthOfMonth());
-            BigDecimal amount = expenseRepository.getTotalExpensesBetweenDates(user, start, end);
-            if (amount == null) amount = BigDecimal.ZERO;
+            long amount = spendCube.totalCents(user, start, end);
             String monthName = lastMonth.getMonth().getDisplayName(TextStyle.FULL, Locale.ENGLISH);
             return String.format("You spent %s in %s %d.", 
-                currencyService.formatAmount(amount.doubleValue(), currency), 
+                currencyService.formatAmount(SpendingMath.toDouble(amount), currency), 
                 monthName, lastMonth.getYear());
         }
         
@@ -209,38 +211,34 @@ public class ChatbotService {
         if (containsAny(msg, "this month", "current month")) {
             LocalDate start = now.withDayOfMonth(1);
             LocalDate end = now;
-            BigDecimal amount = expenseRepository.getTotalExpensesBetweenDates(user, start, end);
-            if (amount == null) amount = BigDecimal.ZERO;
+            long amount = spendCube.totalCents(user, start, end);
             String monthName = now.getMonth().getDisplayName(TextStyle.FULL, Locale.ENGLISH);
             return String.format("You've spent %s so far in %s %d.", 
-                currencyService.formatAmount(amount.doubleValue(), currency), 
+                currencyService.formatAmount(SpendingMath.toDouble(amount), currency), 
                 monthName, now.getYear());
         }
         
         // This week
         if (containsAny(msg, "this week", "current week")) {
             LocalDate startOfWeek = now.with(DayOfWeek.MONDAY);
-            BigDecimal amount = expenseRepository.getTotalExpensesBetweenDates(user, startOfWeek, now);
-            if (amount == null) amount = BigDecimal.ZERO;
+            long amount = spendCube.totalCents(user, startOfWeek, now);
             return String.format("You've spent %s this week.", 
-                currencyService.formatAmount(amount.doubleValue(), currency));
+                currencyService.formatAmount(SpendingMath.toDouble(amount), currency));
         }
         
         // Today
         if (containsAny(msg, "today", "today's")) {
-            BigDecimal amount = expenseRepository.getTotalExpensesBetweenDates(user, now, now);
-            if (amount == null) amount = BigDecimal.ZERO;
+            long amount = spendCube.totalCents(user, now, now);
             return String.format("You've spent %s today.", 
-                currencyService.formatAmount(amount.doubleValue(), currency));
+                currencyService.formatAmount(SpendingMath.toDouble(amount), currency));
         }
         
         // Yesterday
         if (containsAny(msg, "yesterday")) {
             LocalDate yesterday = now.minusDays(1);
-            BigDecimal amount = expenseRepository.getTotalExpensesBetweenDates(user, yesterday, yesterday);
-            if (amount == null) amount = BigDecimal.ZERO;
+            long amount = spendCube.totalCents(user, yesterday, yesterday);
             return String.format("You spent %s yesterday.", 
-                currencyService.formatAmount(amount.doubleValue(), currency));
+                currencyService.formatAmount(SpendingMath.toDouble(amount), currency));
         }
         
         // Specific category spending
@@ -250,17 +248,15 @@ public class ChatbotService {
                 LocalDate lastMonth = now.minusMonths(1);
                 LocalDate start = lastMonth.withDayOfMonth(1);
                 LocalDate end = lastMonth.withDayOfMonth(lastMonth.lengthOfMonth());
-                BigDecimal amount = expenseRepository.getTotalExpensesByCategoryBetweenDates(user, category, start, end);
-                if (amount == null) amount = BigDecimal.ZERO;
+                long amount = spendCube.categoryCents(user, category, start, end);
                 return String.format("You spent %s on %s last month.", 
-                    currencyService.formatAmount(amount.doubleValue(), currency), 
+                    currencyService.formatAmount(SpendingMath.toDouble(amount), currency), 
                     category.getDisplayName());
             } else {
                 LocalDate start = now.withDayOfMonth(1);
-                BigDecimal amount = expenseRepository.getTotalExpensesByCategoryBetweenDates(user, category, start, now);
-                if (amount == null) amount = BigDecimal.ZERO;
+                long amount = spendCube.categoryCents(user, category, start, now);
                 return String.format("You've spent %s on %s this month.", 
-                    currencyService.formatAmount(amount.doubleValue(), currency), 
+                    currencyService.formatAmount(SpendingMath.toDouble(amount), currency), 
                     category.getDisplayName());
             }
         }
@@ -276,18 +272,14 @@ public class ChatbotService {
                 return "You don't have any budgets set for this month.";
             }
             
-            BigDecimal totalBudget = budgets.stream()
-                .map(b -> b.getMonthlyLimit())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-            BigDecimal totalSpent = budgets.stream()
-                .map(b -> b.getCurrentSpent() != null ? b.getCurrentSpent() : BigDecimal.ZERO)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+            long totalBudget = SpendingMath.sumCents(budgets, Budget::getMonthlyLimit);
+            long totalSpent = SpendingMath.sumCents(budgets, Budget::getCurrentSpent);
             
             return String.format("Your total budget for %s is %s. You've spent %s (%s remaining).", 
                 now.getMonth().getDisplayName(TextStyle.FULL, Locale.ENGLISH),
-                currencyService.formatAmount(totalBudget.doubleValue(), currency),
-                currencyService.formatAmount(totalSpent.doubleValue(), currency),
-                currencyService.formatAmount(totalBudget.subtract(totalSpent).doubleValue(), currency));
+                currencyService.formatAmount(SpendingMath.toDouble(totalBudget), currency),
+                currencyService.formatAmount(SpendingMath.toDouble(totalSpent), currency),
+                currencyService.formatAmount(SpendingMath.toDouble(totalBudget - totalSpent), currency));
         }
         
         // Over budget check
@@ -346,7 +338,7 @@ public class ChatbotService {
             period = "this month";
         }
         
-        List<Object[]> categoryData = expenseRepository.getExpensesByCategoryBetweenDates(user, start, end);
+        SpendCube.Breakdown categoryData = spendCube.breakdown(user, start, end);
         
         if (categoryData.isEmpty()) {
             return String.format("You don't have any expenses recorded for %s.", period);
@@ -354,16 +346,13 @@ public class ChatbotService {
         
         // Find largest spending category
         if (containsAny(msg, "largest", "highest", "most", "biggest")) {
-            Object[] largest = categoryData.stream()
-                .max(Comparator.comparing(arr -> (BigDecimal) arr[1]))
-                .orElse(null);
+            ExpenseCategory cat = categoryData.largest();
             
-            if (largest != null) {
-                ExpenseCategory cat = (ExpenseCategory) largest[0];
-                BigDecimal amount = (BigDecimal) largest[1];
+            if (cat != null) {
+                long amount = categoryData.cents(cat);
                 return String.format("Your largest spending category %s is %s with %s.", 
                     period, cat.getDisplayName(), 
-                    currencyService.formatAmount(amount.doubleValue(), currency));
+                    currencyService.formatAmount(SpendingMath.toDouble(amount), currency));
             }
         }
         
@@ -372,14 +361,11 @@ public class ChatbotService {
             StringBuilder result = new StringBuilder();
             result.append(String.format("Your spending by category %s:\n", period));
             
-            categoryData.sort((a, b) -> ((BigDecimal) b[1]).compareTo((BigDecimal) a[1]));
-            
-            for (Object[] data : categoryData) {
-                ExpenseCategory cat = (ExpenseCategory) data[0];
-                BigDecimal amount = (BigDecimal) data[1];
+            for (ExpenseCategory cat : categoryData.byTotalDescending()) {
+                long amount = categoryData.cents(cat);
                 result.append(String.format("• %s: %s\n", 
                     cat.getDisplayName(), 
-                    currencyService.formatAmount(amount.doubleValue(), currency)));
+                    currencyService.formatAmount(SpendingMath.toDouble(amount), currency)));
             }
             
             return result.toString().trim();
@@ -421,8 +407,7 @@ public class ChatbotService {
             period = "this month";
         }
         
-        List<com.finsight.ai.entity.Expense> expenses = expenseRepository.findByUserAndDateBetweenOrderByDateDesc(user, start, end);
-        int count = expenses.size();
+        long count = spendCube.breakdown(user, start, end).totalCount();
         
         if (count == 0) {
             return String.format("You made no transactions %s.", period);
@@ -435,51 +420,41 @@ public class ChatbotService {
 
     private String handleAverageQueries(String msg, User user, String currency) {
         if (containsAny(msg, "daily")) {
-            List<com.finsight.ai.entity.Expense> allExpenses = expenseRepository.findByUserOrderByDateDesc(user);
-            if (allExpenses.isEmpty()) {
+            LocalDate firstExpenseDate = spendCube.firstDay(user);
+            if (firstExpenseDate == null) {
                 return "You don't have any expenses recorded yet.";
             }
             
-            BigDecimal total = allExpenses.stream()
-                .map(com.finsight.ai.entity.Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            LocalDate firstExpenseDate = allExpenses.get(allExpenses.size() - 1).getDate();
-            long daysBetween = ChronoUnit.DAYS.between(firstExpenseDate, LocalDate.now()) + 1;
+            LocalDate today = LocalDate.now();
+            long total = spendCube.totalCents(user, firstExpenseDate, today);
+            long daysBetween = ChronoUnit.DAYS.between(firstExpenseDate, today) + 1;
             
-            BigDecimal avgDaily = total.divide(BigDecimal.valueOf(daysBetween), 2, RoundingMode.HALF_UP);
+            long avgDaily = SpendingMath.average(total, daysBetween);
             
             return String.format("Your average daily spending is %s.", 
-                currencyService.formatAmount(avgDaily.doubleValue(), currency));
+                currencyService.formatAmount(SpendingMath.toDouble(avgDaily), currency));
         }
         
         if (containsAny(msg, "monthly")) {
-            List<Object[]> dailyData = expenseRepository.getDailyExpensesBetweenDates(user, 
-                LocalDate.now().minusMonths(12), LocalDate.now());
-            
-            if (dailyData.isEmpty()) {
-                return "You don't have enough expense history to calculate a monthly average.";
-            }
-            
-            // Group by month and calculate monthly totals
-            Map<String, BigDecimal> monthlyTotals = new HashMap<>();
-            for (Object[] data : dailyData) {
-                LocalDate date = (LocalDate) data[0];
-                BigDecimal amount = (BigDecimal) data[1];
-                String monthKey = date.format(DateTimeFormatter.ofPattern("yyyy-MM"));
-                monthlyTotals.merge(monthKey, amount, BigDecimal::add);
+            // The last 12 months and the current one, counting only months that have expenses
+            SpendCube.Series monthlyData = spendCube.monthly(user, YearMonth.now().minusMonths(12), 13);
+            long totalMonthly = 0;
+            int monthsWithData = 0;
+            for (int month = 0; month < monthlyData.length(); month++) {
+                if (monthlyData.count(month) > 0) {
+                    totalMonthly += monthlyData.cents(month);
+                    monthsWithData++;
+                }
             }
             
-            if (monthlyTotals.isEmpty()) {
+            if (monthsWithData == 0) {
                 return "You don't have enough expense history to calculate a monthly average.";
             }
             
-            BigDecimal totalMonthly = monthlyTotals.values().stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-            BigDecimal avgMonthly = totalMonthly.divide(BigDecimal.valueOf(monthlyTotals.size()), 2, RoundingMode.HALF_UP);
+            long avgMonthly = SpendingMath.average(totalMonthly, monthsWithData);
             
             return String.format("Your average monthly spending is %s (based on %d months of data).", 
-                currencyService.formatAmount(avgMonthly.doubleValue(), currency), monthlyTotals.size());
+                currencyService.formatAmount(SpendingMath.toDouble(avgMonthly), currency), monthsWithData);
         }
         
         return "I can calculate your average daily or monthly spending. Just ask!";
@@ -488,10 +463,9 @@ public class ChatbotService {
     private String handleDateSpecificQueries(String msg, User user, String currency, LocalDate now) {
         LocalDate queryDate = extractSpecificDate(msg, now);
         if (queryDate != null) {
-            BigDecimal amount = expenseRepository.getTotalExpensesBetweenDates(user, queryDate, queryDate);
-            if (amount == null) amount = BigDecimal.ZERO;
+            long amount = spendCube.totalCents(user, queryDate, queryDate);
             return String.format("You spent %s on %s.", 
-                currencyService.formatAmount(amount.doubleValue(), currency),
+                currencyService.formatAmount(SpendingMath.toDouble(amount), currency),
                 queryDate.format(DateTimeFormatter.ofPattern("MMMM d, yyyy")));
         }
         
@@ -505,19 +479,16 @@ public class ChatbotService {
             LocalDate lastMonthStart = lastMonth.withDayOfMonth(1);
             LocalDate lastMonthEnd = lastMonth.withDayOfMonth(lastMonth.lengthOfMonth());
             
-            BigDecimal thisMonthAmount = expenseRepository.getTotalExpensesBetweenDates(user, thisMonth, now);
-            BigDecimal lastMonthAmount = expenseRepository.getTotalExpensesBetweenDates(user, lastMonthStart, lastMonthEnd);
+            long thisMonthAmount = spendCube.totalCents(user, thisMonth, now);
+            long lastMonthAmount = spendCube.totalCents(user, lastMonthStart, lastMonthEnd);
             
-            thisMonthAmount = thisMonthAmount != null ? thisMonthAmount : BigDecimal.ZERO;
-            lastMonthAmount = lastMonthAmount != null ? lastMonthAmount : BigDecimal.ZERO;
-            
-            BigDecimal difference = thisMonthAmount.subtract(lastMonthAmount);
-            String comparison = difference.compareTo(BigDecimal.ZERO) > 0 ? "more" : "less";
+            long difference = thisMonthAmount - lastMonthAmount;
+            String comparison = difference > 0 ? "more" : "less";
             
             return String.format("This month: %s, Last month: %s. You've spent %s %s this month.", 
-                currencyService.formatAmount(thisMonthAmount.doubleValue(), currency),
-                currencyService.formatAmount(lastMonthAmount.doubleValue(), currency),
-                currencyService.formatAmount(difference.abs().doubleValue(), currency),
+                currencyService.formatAmount(SpendingMath.toDouble(thisMonthAmount), currency),
+                currencyService.formatAmount(SpendingMath.toDouble(lastMonthAmount), currency),
+                currencyService.formatAmount(SpendingMath.toDouble(Math.abs(difference)), currency),
                 comparison);
         }
         
@@ -543,35 +514,22 @@ public class ChatbotService {
     private String handleFinancialOverview(User user, String currency, LocalDate now) {
         // Get current month data
         LocalDate monthStart = now.withDayOfMonth(1);
-        BigDecimal thisMonthSpent = expenseRepository.getTotalExpensesBetweenDates(user, monthStart, now);
-        thisMonthSpent = thisMonthSpent != null ? thisMonthSpent : BigDecimal.ZERO;
+        long thisMonthSpent = spendCube.totalCents(user, monthStart, now);
         
         // Get budget data
         var budgets = budgetRepository.findByUserAndMonthAndYear(user, now.getMonthValue(), now.getYear());
-        BigDecimal totalBudget = budgets.stream()
-            .map(b -> b.getMonthlyLimit())
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        // Get transaction count
-        List<com.finsight.ai.entity.Expense> thisMonthExpenses = expenseRepository.findByUserAndDateBetweenOrderByDateDesc(user, monthStart, now);
-        
-        // Get top category
-        List<Object[]> categoryData = expenseRepository.getExpensesByCategoryBetweenDates(user, monthStart, now);
-        String topCategory = "None";
-        if (!categoryData.isEmpty()) {
-            Object[] largest = categoryData.stream()
-                .max(Comparator.comparing(arr -> (BigDecimal) arr[1]))
-                .orElse(null);
-            if (largest != null) {
-                topCategory = ((ExpenseCategory) largest[0]).getDisplayName();
-            }
-        }
+        long totalBudget = SpendingMath.sumCents(budgets, Budget::getMonthlyLimit);
+        
+        // Get transaction count and top category
+        SpendCube.Breakdown categoryData = spendCube.breakdown(user, monthStart, now);
+        ExpenseCategory largest = categoryData.largest();
+        String topCategory = largest != null ? largest.getDisplayName() : "None";
         
         StringBuilder overview = new StringBuilder();
         overview.append("Here's your financial overview for ").append(now.getMonth().getDisplayName(TextStyle.FULL, Locale.ENGLISH)).append(":\n");
-        overview.append("💰 Total spent: ").append(currencyService.formatAmount(thisMonthSpent.doubleValue(), currency)).append("\n");
-        overview.append("🎯 Total budget: ").append(currencyService.formatAmount(totalBudget.doubleValue(), currency)).append("\n");
-        overview.append("📊 Transactions: ").append(thisMonthExpenses.size()).append("\n");
+        overview.append("💰 Total spent: ").append(currencyService.formatAmount(SpendingMath.toDouble(thisMonthSpent), currency)).append("\n");
+        overview.append("🎯 Total budget: ").append(currencyService.formatAmount(SpendingMath.toDouble(totalBudget), currency)).append("\n");
+        overview.append("📊 Transactions: ").append(categoryData.totalCount()).append("\n");
         overview.append("🏆 Top category: ").append(topCategory);
         
         return overview.toString();
@@ -588,7 +546,7 @@ public class ChatbotService {
         LocalDate now = LocalDate.now();
         LocalDate monthStart = now.withDayOfMonth(1);
 
-        List<Object[]> categoryData = expenseRepository.getExpensesByCategoryBetweenDates(user, monthStart, now);
+        SpendCube.Breakdown categoryData = spendCube.breakdown(user, monthStart, now);
         if (categoryData.isEmpty()) {
             // AI fallback if no data
             String appDescription = "FinSight AI is a personal finance app with features including expense tracking, category breakdowns, budgets, receipt scanning, and AI-powered financial tips.";
@@ -597,13 +555,10 @@ public class ChatbotService {
         }
 
         // Find highest spending category and give relevant tip
-        Object[] highest = categoryData.stream()
-            .max(Comparator.comparing(arr -> (BigDecimal) arr[1]))
-            .orElse(null);
+        ExpenseCategory topCategory = categoryData.largest();
 
         String tip = null;
-        if (highest != null) {
-            ExpenseCategory topCategory = (ExpenseCategory) highest[0];
+        if (topCategory != null) {
             switch (topCategory) {
                 case FOOD_DINING:
                     tip = "Your biggest expense is dining out. Try meal planning and cooking at home more often to save money.";
@@ -629,10 +584,8 @@ public class ChatbotService {
         if (tip != null && (tip.startsWith("Review your spending regularly") || tip.startsWith("Track your expenses daily"))) {
             StringBuilder breakdown = new StringBuilder();
             breakdown.append("Category breakdown this month:\n");
-            for (Object[] data : categoryData) {
-                ExpenseCategory cat = (ExpenseCategory) data[0];
-                BigDecimal amount = (BigDecimal) data[1];
-                breakdown.append(String.format("- %s: %s\n", cat.getDisplayName(), currencyService.formatAmount(amount.doubleValue(), currency)));
+            for (ExpenseCategory cat : categoryData.byTotalDescending()) {
+                breakdown.append(String.format("- %s: %s\n", cat.getDisplayName(), currencyService.formatAmount(SpendingMath.toDouble(categoryData.cents(cat)), currency)));
             }
             String appDescription = "FinSight AI is a personal finance app with features including expense tracking, category breakdowns, budgets, receipt scanning, and AI-powered financial tips.";
             String prompt = String.format("User's category breakdown: %s\nApp capabilities: %s\nPlease provide a personalized financial tip based on this data.", breakdown, appDescription);
@@ -647,17 +600,15 @@ public class ChatbotService {
             // Build context about user's spending
             LocalDate now = LocalDate.now();
             LocalDate monthStart = now.withDayOfMonth(1);
-            BigDecimal thisMonthSpent = expenseRepository.getTotalExpensesBetweenDates(user, monthStart, now);
+            long thisMonthSpent = spendCube.totalCents(user, monthStart, now);
             
             var budgets = budgetRepository.findByUserAndMonthAndYear(user, now.getMonthValue(), now.getYear());
-            BigDecimal totalBudget = budgets.stream()
-                .map(b -> b.getMonthlyLimit())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+            long totalBudget = SpendingMath.sumCents(budgets, Budget::getMonthlyLimit);
             
             String prompt = String.format("Give %s a brief financial tip. They've spent %s of %s budget this month. Keep it practical and under 50 words.",
                 user.getFirstName(),
-                currencyService.formatAmount(thisMonthSpent != null ? thisMonthSpent.doubleValue() : 0.0, currency),
-                currencyService.formatAmount(totalBudget.doubleValue(), currency));
+                currencyService.formatAmount(SpendingMath.toDouble(thisMonthSpent), currency),
+                currencyService.formatAmount(SpendingMath.toDouble(totalBudget), currency));
             
             // Make AI API call
             Map<String, Object> requestBody = new HashMap<>();
@@ -0,0 +1,77 @@
+package com.finsight.ai.service;
+
+import com.finsight.ai.entity.DataChange;
+import com.finsight.ai.entity.User;
+import com.finsight.ai.repository.DataChangeRepository;
+import com.finsight.ai.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Per-user data version used as the ETag of the expense and budget read endpoints.
+ *
+ * Every write in ExpenseService and BudgetService bumps it inside its own transaction, so a
+ * client holding the current version can be answered with 304 without running any query. The
+ * entities each write touched are recorded against the new version for GET /sync/changes.
+ */
+@Service
+public class DataVersionService {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DataChangeRepository dataChangeRepository;
+
+    @Autowired
+    private BudgetKeyIndex budgetKeyIndex;
+
+    @Autowired
+    private SpendCube spendCube;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long bump(User user) {
+        Long version = userRepository.incrementDataVersion(user.getId());
+        if (version == null) {
+            throw new RuntimeException("User not found");
+        }
+        user.setDataVersion(version);
+        budgetKeyIndex.versionBumped(user.getId(), version);
+        spendCube.versionBumped(user.getId(), version);
+        return version;
+    }
+
+    // Both record against the version taken by bump() earlier in the same transaction
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordUpsert(User user, String entityType, Long entityId) {
+        dataChangeRepository.record(user.getId(), entityType, entityId, user.getDataVersion(), DataChange.UPSERT);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDelete(User user, String entityType, Long entityId) {
+        dataChangeRepository.record(user.getId(), entityType, entityId, user.getDataVersion(), DataChange.DELETE);
+    }
+
+    /**
+     * Answers a conditional GET from the user's data version. Versions are only unique per user,
+     * so the tag names the user too, and the response (304 included) is marked private so a
+     * shared cache never hands one user's copy to another.
+     */
+    public boolean checkNotModified(User user, WebRequest webRequest) {
+        if (webRequest instanceof ServletWebRequest servletRequest && servletRequest.getResponse() != null) {
+            servletRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        }
+        return webRequest.checkNotModified(etag(user));
+    }
+
+    private String etag(User user) {
+        long version = user.getDataVersion() != null ? user.getDataVersion() : 0L;
+        return "W/\"" + user.getId() + "-" + version + "\"";
+    }
+}
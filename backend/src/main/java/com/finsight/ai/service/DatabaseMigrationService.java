@@ -2,28 +2,58 @@ package com.finsight.ai.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
 
 /**
  * Database migration service to handle schema updates that Hibernate DDL can't handle automatically
  */
 @Service
-public class DatabaseMigrationService implements ApplicationRunner {
+public class DatabaseMigrationService implements ApplicationRunner, SmartInitializingSingleton {
 
     private static final Logger logger = LoggerFactory.getLogger(DatabaseMigrationService.class);
+
+    // Non-null once user_daily_category_totals has been filled from the existing expenses
+    static final String DAILY_TOTALS_MARKER_SQL =
+        "SELECT obj_description('user_daily_category_totals'::regclass, 'pg_class')";
     
     @Autowired
     private JdbcTemplate jdbcTemplate;
     
+    @Autowired
+    private AvatarStorageService avatarStorageService;
+    
+    @Autowired
+    private ExpensePartitionService expensePartitionService;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    /**
+     * Runs before the web server starts: reports and analytics read the daily rollup, so requests
+     * must not be served from it while it is still being filled.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        migrateDailyCategoryTotals();
+    }
+    
     @Override
     public void run(ApplicationArguments args) throws Exception {
         try {
             migrateCategoryConstraints();
             migrateNotesFieldLength();
+            migrateProfilePictures();
+            migrateExpensePartitions();
+            migrateIndexes();
+            migrateExpenseSearch();
         } catch (Exception e) {
             logger.warn("Database migration failed, but application will continue: {}", e.getMessage());
         }
@@ -93,4 +123,239 @@ public class DatabaseMigrationService implements ApplicationRunner {
             throw e;
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Move base64 profile pictures out of the database and into the avatar store
+     */
+    private void migrateProfilePictures() {
+        logger.info("Checking for profile pictures stored in the database...");
+        
+        try {
+            jdbcTemplate.execute("ALTER TABLE user_profile_pictures DROP CONSTRAINT IF EXISTS fk_user_profile_pictures_user");
+            jdbcTemplate.execute("ALTER TABLE user_profile_pictures ADD CONSTRAINT fk_user_profile_pictures_user " +
+                "FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE");
+            
+            boolean hasImageData = columnExists("user_profile_pictures", "image_data");
+            if (hasImageData) {
+                jdbcTemplate.execute("ALTER TABLE user_profile_pictures ALTER COLUMN image_data DROP NOT NULL");
+            }
+            
+            // The legacy columns are only dropped once every picture in them has been carried over;
+            // otherwise they are kept and the next start tries the remaining rows again
+            if (columnExists("users", "profile_picture_url")) {
+                int[] result = moveLegacyPictures("SELECT id, profile_picture_url FROM users " +
+                    "WHERE profile_picture_url LIKE 'data:%'");
+                // Plain URLs stay links, unless the user already has a picture
+                int linked = jdbcTemplate.update(
+                    "INSERT INTO user_profile_pictures (user_id, external_url, updated_at) " +
+                    "SELECT id, profile_picture_url, now() FROM users " +
+                    "WHERE profile_picture_url IS NOT NULL AND profile_picture_url <> '' AND profile_picture_url NOT LIKE 'data:%' " +
+                    "ON CONFLICT (user_id) DO NOTHING");
+                if (result[1] == 0) {
+                    jdbcTemplate.execute("ALTER TABLE users DROP COLUMN profile_picture_url");
+                    logger.info("✅ Moved {} profile pictures and {} picture links from users", result[0], linked);
+                } else {
+                    logger.warn("Moved {} profile pictures from users, {} could not be read; keeping users.profile_picture_url",
+                        result[0], result[1]);
+                }
+            }
+            
+            if (hasImageData) {
+                int[] result = moveLegacyPictures("SELECT user_id, image_data FROM user_profile_pictures " +
+                    "WHERE content_hash IS NULL AND image_data LIKE 'data:%'");
+                int linked = jdbcTemplate.update("UPDATE user_profile_pictures SET external_url = image_data " +
+                    "WHERE content_hash IS NULL AND external_url IS NULL " +
+                    "AND image_data IS NOT NULL AND image_data <> '' AND image_data NOT LIKE 'data:%'");
+                if (result[1] == 0) {
+                    jdbcTemplate.execute("DELETE FROM user_profile_pictures WHERE content_hash IS NULL AND external_url IS NULL");
+                    jdbcTemplate.execute("ALTER TABLE user_profile_pictures DROP COLUMN image_data");
+                    logger.info("✅ Moved {} profile pictures and {} picture links from user_profile_pictures", result[0], linked);
+                } else {
+                    logger.warn("Moved {} profile pictures from user_profile_pictures, {} could not be read; keeping image_data",
+                        result[0], result[1]);
+                }
+            }
+            
+            logger.info("✅ Profile picture migration completed");
+            
+        } catch (RuntimeException e) {
+            logger.warn("Failed to migrate profile pictures: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Make sure the coming months have partitions. Converting the table itself is left to an
+     * operator (see ExpensePartitionConversionService); a conversion cut off by a restart is cleaned up.
+     */
+    private void migrateExpensePartitions() {
+        try {
+            expensePartitionService.dropAbandonedConversion();
+            expensePartitionService.createUpcomingPartitions();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to migrate expense partitions: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Composite and covering indexes for the expense and budget repository queries
+     */
+    private void migrateIndexes() {
+        logger.info("Checking expense and budget indexes...");
+        
+        // Listing, date ranges, keyset pages, totals and daily sums for a user
+        createIndex("idx_expenses_user_date", "expenses", "(user_id, date DESC, id DESC) INCLUDE (amount, category)");
+        // Category filters and per-category totals (budget spent recalculation)
+        createIndex("idx_expenses_user_category_date", "expenses", "(user_id, category, date DESC, id DESC) INCLUDE (amount)");
+        createIndex("idx_expenses_recurring_expense", "expenses", "(recurring_expense_id) WHERE recurring_expense_id IS NOT NULL");
+        createIndex("idx_recurring_expenses_user", "recurring_expenses", "(user_id)");
+        // GET /sync/changes: everything a user changed after a given version
+        createIndex("idx_data_changes_user_version", "data_changes", "(user_id, version)");
+        // Budget alert delivery and Last-Event-ID replay, both newest alerts for one user
+        createIndex("idx_budget_alerts_user_id", "budget_alerts", "(user_id, id)");
+        
+        // Serves both the (user, category, month, year) lookup and the per-month listing ordered by category
+        if (!createIndex("uq_budgets_user_period_category",
+                "UNIQUE INDEX", "budgets", "(user_id, year, month, category)")) {
+            logger.warn("Duplicate budgets found, creating a non-unique budget index instead");
+            createIndex("idx_budgets_user_period_category", "budgets", "(user_id, year, month, category)");
+        }
+        
+        logger.info("✅ Index migration completed");
+    }
+    
+    /**
+     * Generated full-text search column over expense description and notes, used by GET /expenses/search
+     */
+    private void migrateExpenseSearch() {
+        logger.info("Checking expense search column...");
+        
+        try {
+            if (!columnExists("expenses", "search_vector")) {
+                // 'simple' keeps merchant names and mixed-language text as typed instead of stemming them
+                jdbcTemplate.execute("ALTER TABLE expenses ADD COLUMN search_vector tsvector GENERATED ALWAYS AS " +
+                    "(to_tsvector('simple', coalesce(description, '') || ' ' || coalesce(notes, ''))) STORED");
+                logger.info("✅ Added expenses.search_vector");
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to add expense search column: {}", e.getMessage());
+            return;
+        }
+        
+        // btree_gin lets one index narrow by user and search term together
+        boolean btreeGin;
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS btree_gin");
+            btreeGin = true;
+        } catch (RuntimeException e) {
+            logger.warn("btree_gin extension not available, indexing search terms only: {}", e.getMessage());
+            btreeGin = false;
+        }
+        if (btreeGin) {
+            createIndex("idx_expenses_user_search", "expenses", "USING GIN (user_id, search_vector)");
+        } else {
+            createIndex("idx_expenses_search", "expenses", "USING GIN (search_vector)");
+        }
+        
+        logger.info("✅ Expense search migration completed");
+    }
+    
+    /**
+     * One-off fill of user_daily_category_totals from the existing expenses. The table lock makes
+     * expense writes that are still in flight wait, so each one is counted either here or by its
+     * own rollup update, never twice. The table comment marks the rollup as filled.
+     */
+    private void migrateDailyCategoryTotals() {
+        try {
+            String marker = jdbcTemplate.queryForObject(DAILY_TOTALS_MARKER_SQL, String.class);
+            if (marker != null) {
+                return;
+            }
+            logger.info("Filling daily expense totals...");
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("LOCK TABLE user_daily_category_totals IN EXCLUSIVE MODE");
+                if (jdbcTemplate.queryForObject(DAILY_TOTALS_MARKER_SQL, String.class) != null) {
+                    return;
+                }
+                jdbcTemplate.update("DELETE FROM user_daily_category_totals");
+                int rows = jdbcTemplate.update(
+                    "INSERT INTO user_daily_category_totals (user_id, day, category, total, expense_count) " +
+                    "SELECT user_id, date, category, SUM(amount), COUNT(*) FROM expenses GROUP BY user_id, date, category");
+                jdbcTemplate.execute("COMMENT ON TABLE user_daily_category_totals IS " +
+                    "'Per-user daily expense totals by category, maintained by ExpenseService'");
+                logger.info("✅ Filled {} daily expense totals", rows);
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Failed to fill daily expense totals: {}", e.getMessage());
+        }
+    }
+    
+    private boolean createIndex(String name, String table, String definition) {
+        return createIndex(name, "INDEX", table, definition);
+    }
+    
+    /**
+     * Builds the index without blocking writes. A build that failed earlier leaves an invalid index
+     * behind, which IF NOT EXISTS would otherwise keep skipping, so that is dropped and rebuilt.
+     * Partitioned tables don't support CONCURRENTLY; there the index is built on every partition
+     * in one go and is inherited by partitions created later.
+     */
+    private boolean createIndex(String name, String kind, String table, String definition) {
+        String concurrently = isPartitioned(table) ? "" : " CONCURRENTLY";
+        try {
+            List<Boolean> valid = jdbcTemplate.queryForList(
+                "SELECT i.indisvalid FROM pg_class c JOIN pg_index i ON i.indexrelid = c.oid WHERE c.relname = ?",
+                Boolean.class, name);
+            if (!valid.isEmpty() && valid.get(0)) {
+                return true;
+            }
+            if (!valid.isEmpty()) {
+                jdbcTemplate.execute("DROP INDEX" + concurrently + " IF EXISTS " + name);
+            }
+            jdbcTemplate.execute("CREATE " + kind + concurrently + " IF NOT EXISTS " + name + " ON " + table + " " + definition);
+            logger.info("✅ Created index {}", name);
+            return true;
+        } catch (RuntimeException e) {
+            logger.warn("Failed to create index {}: {}", name, e.getMessage());
+            try {
+                jdbcTemplate.execute("DROP INDEX" + concurrently + " IF EXISTS " + name);
+            } catch (RuntimeException dropFailure) {
+                logger.warn("Failed to drop invalid index {}: {}", name, dropFailure.getMessage());
+            }
+            return false;
+        }
+    }
+    
+    private boolean isPartitioned(String table) {
+        Integer count = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM pg_class WHERE relname = ? AND relkind = 'p'", Integer.class, table);
+        return count != null && count > 0;
+    }
+    
+    // Returns {moved, failed}
+    private int[] moveLegacyPictures(String query) {
+        int[] result = {0, 0};
+        jdbcTemplate.query(query, rs -> {
+            long userId = rs.getLong(1);
+            try {
+                AvatarStorageService.StoredAvatar avatar = avatarStorageService.store(rs.getString(2));
+                jdbcTemplate.update(
+                    "INSERT INTO user_profile_pictures (user_id, content_hash, content_type, updated_at) VALUES (?, ?, ?, now()) " +
+                    "ON CONFLICT (user_id) DO UPDATE SET content_hash = EXCLUDED.content_hash, " +
+                    "content_type = EXCLUDED.content_type, external_url = NULL",
+                    userId, avatar.getHash(), avatar.getContentType());
+                result[0]++;
+            } catch (RuntimeException e) {
+                result[1]++;
+                logger.warn("Could not move profile picture for user {}: {}", userId, e.getMessage());
+            }
+        });
+        return result;
+    }
+    
+    private boolean columnExists(String table, String column) {
+        Integer count = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM information_schema.columns WHERE table_name = ? AND column_name = ?",
+            Integer.class, table, column);
+        return count != null && count > 0;
+    }
+}
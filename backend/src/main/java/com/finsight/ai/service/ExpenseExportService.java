@@ -0,0 +1,105 @@
+package com.finsight.ai.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.finsight.ai.entity.ExpenseCategory;
+import com.finsight.ai.entity.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams a user's expenses as NDJSON, one object per line, straight from a JDBC cursor.
+ *
+ * Rows are written as they are read, so memory use does not grow with the size of the history.
+ */
+@Service
+public class ExpenseExportService {
+
+    private static final String SELECT_COLUMNS =
+        "SELECT id, description, amount, category, date, receipt_url, notes, created_at, updated_at FROM expenses";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.expenses.export.fetch-size:500}")
+    private int fetchSize;
+
+    public void exportExpenses(User user, ExpenseCategory category, LocalDate startDate, LocalDate endDate,
+                               OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS).append(" WHERE user_id = ?");
+        List<Object> params = new ArrayList<>();
+        params.add(user.getId());
+        ExpenseSqlFilters.append(sql, params, category, startDate, endDate);
+        sql.append(" ORDER BY date DESC, id DESC");
+
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.setRootValueSeparator(null);
+
+        // PostgreSQL only honours the fetch size (and uses a cursor) inside a transaction
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(fetchSize);
+                for (int i = 0; i < params.size(); i++) {
+                    ps.setObject(i + 1, params.get(i));
+                }
+                return ps;
+            }, (RowCallbackHandler) rs -> writeRow(generator, rs)));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        generator.flush();
+    }
+
+    private void writeRow(JsonGenerator generator, ResultSet rs) throws SQLException {
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField("id", rs.getLong("id"));
+            generator.writeStringField("description", rs.getString("description"));
+            generator.writeNumberField("amount", rs.getBigDecimal("amount"));
+            generator.writeStringField("category", rs.getString("category"));
+            generator.writeObjectField("date", rs.getDate("date").toLocalDate());
+            generator.writeStringField("receiptUrl", rs.getString("receipt_url"));
+            generator.writeStringField("notes", rs.getString("notes"));
+            writeTimestampField(generator, "createdAt", rs.getTimestamp("created_at"));
+            writeTimestampField(generator, "updatedAt", rs.getTimestamp("updated_at"));
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            // Client went away; abort the query instead of reading the rest of the cursor
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeTimestampField(JsonGenerator generator, String name, Timestamp value) throws IOException {
+        if (value == null) {
+            generator.writeNullField(name);
+        } else {
+            generator.writeObjectField(name, value.toLocalDateTime());
+        }
+    }
+}
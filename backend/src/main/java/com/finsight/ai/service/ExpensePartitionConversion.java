@@ -0,0 +1,109 @@
+package com.finsight.ai.service;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a conversion of expenses to a partitioned table by {@link ExpensePartitionConversionService}.
+ */
+public class ExpensePartitionConversion {
+
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+    public enum Phase {
+        PREPARING, COPYING, INDEXING, CATCHING_UP, SWAPPING, DONE
+    }
+
+    private final String id;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private final AtomicLong rowsCopied = new AtomicLong();
+    private final AtomicLong changesReplayed = new AtomicLong();
+    private volatile Status status = Status.PENDING;
+    private volatile Phase phase = Phase.PREPARING;
+    private volatile long estimatedRows;
+    private volatile int partitions;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    public ExpensePartitionConversion(String id) {
+        this.id = id;
+    }
+
+    void setPhase(Phase phase) {
+        this.phase = phase;
+    }
+
+    void setEstimatedRows(long estimatedRows) {
+        this.estimatedRows = estimatedRows;
+    }
+
+    void setPartitions(int partitions) {
+        this.partitions = partitions;
+    }
+
+    void addRowsCopied(long rows) {
+        rowsCopied.addAndGet(rows);
+    }
+
+    void addChangesReplayed(long changes) {
+        changesReplayed.addAndGet(changes);
+    }
+
+    void setStatus(Status status) {
+        this.status = status;
+        if (status == Status.COMPLETED || status == Status.FAILED) {
+            this.finishedAt = LocalDateTime.now();
+        }
+    }
+
+    void setError(String error) {
+        this.error = error;
+    }
+
+    boolean isActive() {
+        return status == Status.PENDING || status == Status.RUNNING;
+    }
+
+    // Getters
+    public String getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public long getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    public long getRowsCopied() {
+        return rowsCopied.get();
+    }
+
+    public long getChangesReplayed() {
+        return changesReplayed.get();
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,292 @@
+package com.finsight.ai.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Converts a plain expenses table into a monthly partitioned one while the application keeps
+ * serving, started by an operator through the expensepartitions actuator endpoint.
+ *
+ * A trigger logs the id of every expense written from the start of the conversion. The rows are
+ * then copied into the new table in short batches, its indexes are built, and the logged ids are
+ * replayed from the live table until only a handful are left. Only the final step, which replays
+ * the rest and swaps the tables, locks expenses, and it gives up and retries rather than queue
+ * behind long transactions.
+ */
+@Service
+public class ExpensePartitionConversionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpensePartitionConversionService.class);
+
+    static final String NEW_TABLE = "expenses_partitioned";
+    static final String CHANGE_LOG = "expenses_conversion_log";
+    private static final String CAPTURE_FUNCTION = "expenses_conversion_capture";
+    private static final String SEQUENCE = "expenses_partitioned_id_seq";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ExpensePartitionService expensePartitionService;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private TaskExecutor taskExecutor;
+
+    @Value("${app.expenses.partitioning.conversion.batch-size:5000}")
+    private int batchSize;
+
+    // How long the final swap waits for its lock on expenses before backing off and trying again
+    @Value("${app.expenses.partitioning.conversion.lock-timeout-ms:5000}")
+    private long lockTimeoutMs;
+
+    @Value("${app.expenses.partitioning.conversion.swap-attempts:20}")
+    private int swapAttempts;
+
+    private final Object lock = new Object();
+    private volatile ExpensePartitionConversion lastConversion;
+
+    public ExpensePartitionConversion startConversion() {
+        ExpensePartitionConversion conversion;
+        synchronized (lock) {
+            if (lastConversion != null && lastConversion.isActive()) {
+                return lastConversion;
+            }
+            conversion = new ExpensePartitionConversion(UUID.randomUUID().toString());
+            lastConversion = conversion;
+        }
+        taskExecutor.execute(() -> run(conversion));
+        return conversion;
+    }
+
+    public ExpensePartitionConversion getLastConversion() {
+        return lastConversion;
+    }
+
+    private void run(ExpensePartitionConversion conversion) {
+        conversion.setStatus(ExpensePartitionConversion.Status.RUNNING);
+        try {
+            if (!expensePartitionService.isEnabled()) {
+                throw new IllegalStateException("Set app.expenses.partitioning.enabled=true before converting");
+            }
+            Boolean converted = expensePartitionService.withConversionLock(() -> {
+                if (!expensePartitionService.isPartitioned()) {
+                    convert(conversion);
+                }
+                return true;
+            });
+            if (converted == null) {
+                throw new IllegalStateException("Another instance is converting the expenses table");
+            }
+            expensePartitionService.createUpcomingPartitions();
+            conversion.setPhase(ExpensePartitionConversion.Phase.DONE);
+            conversion.setStatus(ExpensePartitionConversion.Status.COMPLETED);
+        } catch (RuntimeException e) {
+            conversion.setError(e.getMessage());
+            conversion.setStatus(ExpensePartitionConversion.Status.FAILED);
+            logger.error("Expense partition conversion {} failed: {}", conversion.getId(), e.getMessage(), e);
+        }
+    }
+
+    private void convert(ExpensePartitionConversion conversion) {
+        logger.info("Converting expenses to a monthly partitioned table...");
+        try {
+            // Whatever an earlier attempt left behind is stale: we hold the lock
+            dropConversionObjects(jdbcTemplate);
+            String columns = ExpensePartitionService.insertableColumns(jdbcTemplate, "expenses");
+
+            startCapturingChanges();
+            createPartitionedTable(conversion);
+
+            conversion.setPhase(ExpensePartitionConversion.Phase.COPYING);
+            copyRows(conversion, columns);
+
+            conversion.setPhase(ExpensePartitionConversion.Phase.INDEXING);
+            Map<String, String> indexNames = copyIndexes();
+
+            conversion.setPhase(ExpensePartitionConversion.Phase.CATCHING_UP);
+            int replayed;
+            do {
+                replayed = replayChanges(conversion, columns);
+            } while (replayed == batchSize);
+
+            conversion.setPhase(ExpensePartitionConversion.Phase.SWAPPING);
+            swap(conversion, columns, indexNames);
+            logger.info("✅ Converted expenses into {} monthly partitions ({} rows copied, {} changes replayed)",
+                conversion.getPartitions(), conversion.getRowsCopied(), conversion.getChangesReplayed());
+        } catch (RuntimeException e) {
+            try {
+                dropConversionObjects(jdbcTemplate);
+            } catch (RuntimeException cleanupFailure) {
+                logger.warn("Could not clean up after the failed conversion: {}", cleanupFailure.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    private void startCapturingChanges() {
+        jdbcTemplate.execute("CREATE TABLE " + CHANGE_LOG + " (seq bigserial PRIMARY KEY, id bigint NOT NULL)");
+        jdbcTemplate.execute("CREATE FUNCTION " + CAPTURE_FUNCTION + "() RETURNS trigger AS $$ " +
+            "BEGIN " +
+            "  IF TG_OP <> 'INSERT' THEN INSERT INTO " + CHANGE_LOG + " (id) VALUES (OLD.id); END IF; " +
+            "  IF TG_OP <> 'DELETE' THEN INSERT INTO " + CHANGE_LOG + " (id) VALUES (NEW.id); END IF; " +
+            "  RETURN NULL; " +
+            "END $$ LANGUAGE plpgsql");
+        jdbcTemplate.execute("CREATE TRIGGER " + CAPTURE_FUNCTION + " AFTER INSERT OR UPDATE OR DELETE ON expenses " +
+            "FOR EACH ROW EXECUTE FUNCTION " + CAPTURE_FUNCTION + "()");
+    }
+
+    private void createPartitionedTable(ExpensePartitionConversion conversion) {
+        // Copies columns, defaults, check constraints and generated columns, but not the identity
+        jdbcTemplate.execute("CREATE TABLE " + NEW_TABLE + " (LIKE expenses " +
+            "INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING GENERATED) PARTITION BY RANGE (date)");
+        jdbcTemplate.execute("CREATE TABLE " + ExpensePartitionService.DEFAULT_PARTITION + " PARTITION OF " + NEW_TABLE + " DEFAULT");
+        Set<YearMonth> months = expensePartitionService.partitionMonths("expenses");
+        for (YearMonth month : months) {
+            jdbcTemplate.execute("CREATE TABLE " + ExpensePartitionService.partitionName(month) +
+                " PARTITION OF " + NEW_TABLE + " " + ExpensePartitionService.bounds(month));
+        }
+        conversion.setPartitions(months.size());
+
+        // Keys are cheap to add while the table is empty. The primary key has to contain the partition key.
+        jdbcTemplate.execute("ALTER TABLE " + NEW_TABLE + " ADD CONSTRAINT " + NEW_TABLE + "_pkey PRIMARY KEY (id, date)");
+        jdbcTemplate.execute("ALTER TABLE " + NEW_TABLE + " ADD CONSTRAINT expenses_user_id_fkey " +
+            "FOREIGN KEY (user_id) REFERENCES users(id)");
+        jdbcTemplate.execute("ALTER TABLE " + NEW_TABLE + " ADD CONSTRAINT expenses_recurring_expense_id_fkey " +
+            "FOREIGN KEY (recurring_expense_id) REFERENCES recurring_expenses(id)");
+    }
+
+    // One short statement per batch, in id order; rows committed behind the cursor are in the change log
+    private void copyRows(ExpensePartitionConversion conversion, String columns) {
+        Long estimate = jdbcTemplate.queryForObject(
+            "SELECT GREATEST(reltuples, 0)::bigint FROM pg_class WHERE relname = 'expenses'", Long.class);
+        conversion.setEstimatedRows(estimate != null ? estimate : 0L);
+
+        long lastId = 0;
+        while (true) {
+            List<Long> ids = jdbcTemplate.queryForList(
+                "INSERT INTO " + NEW_TABLE + " (" + columns + ") " +
+                "SELECT " + columns + " FROM expenses WHERE id > ? ORDER BY id LIMIT ? RETURNING id",
+                Long.class, lastId, batchSize);
+            if (ids.isEmpty()) {
+                return;
+            }
+            lastId = Collections.max(ids);
+            conversion.addRowsCopied(ids.size());
+        }
+    }
+
+    /**
+     * Builds every index of expenses on the new table under a temporary name, returning the
+     * temporary names mapped to the real ones. Unique indexes other than the primary key can't
+     * exist on a partitioned table without the partition key, so those are left out.
+     */
+    private Map<String, String> copyIndexes() {
+        Map<String, String> names = new LinkedHashMap<>();
+        List<Map<String, Object>> indexes = jdbcTemplate.queryForList(
+            "SELECT c.relname AS name, pg_get_indexdef(c.oid) AS definition, i.indisunique AS is_unique " +
+            "FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid " +
+            "WHERE i.indrelid = 'expenses'::regclass AND NOT i.indisprimary AND i.indisvalid");
+        for (Map<String, Object> index : indexes) {
+            String name = (String) index.get("name");
+            if (Boolean.TRUE.equals(index.get("is_unique"))) {
+                logger.warn("Not copying unique index {} to the partitioned table", name);
+                continue;
+            }
+            String temporary = (name.length() > 56 ? name.substring(0, 56) : name) + "_part";
+            String definition = ((String) index.get("definition"))
+                .replaceFirst("^CREATE INDEX \\S+ ON \\S+ ", "CREATE INDEX " + temporary + " ON " + NEW_TABLE + " ");
+            jdbcTemplate.execute(definition);
+            names.put(temporary, name);
+        }
+        return names;
+    }
+
+    /**
+     * Takes the oldest logged ids off the change log and copies those rows again from expenses,
+     * removing the ones that no longer exist. Joins the caller's transaction if there is one.
+     */
+    private int replayChanges(ExpensePartitionConversion conversion, String columns) {
+        Integer replayed = transactionTemplate.execute(status -> {
+            List<Long> logged = jdbcTemplate.queryForList(
+                "DELETE FROM " + CHANGE_LOG + " WHERE seq IN (SELECT seq FROM " + CHANGE_LOG + " ORDER BY seq LIMIT ?) RETURNING id",
+                Long.class, batchSize);
+            if (logged.isEmpty()) {
+                return 0;
+            }
+            String ids = logged.stream().distinct().map(String::valueOf).collect(Collectors.joining(", "));
+            jdbcTemplate.update("DELETE FROM " + NEW_TABLE + " WHERE id IN (" + ids + ")");
+            jdbcTemplate.update("INSERT INTO " + NEW_TABLE + " (" + columns + ") " +
+                "SELECT " + columns + " FROM expenses WHERE id IN (" + ids + ")");
+            return logged.size();
+        });
+        int count = replayed != null ? replayed : 0;
+        conversion.addChangesReplayed(count);
+        return count;
+    }
+
+    private void swap(ExpensePartitionConversion conversion, String columns, Map<String, String> indexNames) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.execute("SET LOCAL lock_timeout = " + lockTimeoutMs);
+                    jdbcTemplate.execute("LOCK TABLE expenses IN ACCESS EXCLUSIVE MODE");
+                    while (replayChanges(conversion, columns) > 0) {
+                        // Drain what was logged since the last catch-up
+                    }
+
+                    jdbcTemplate.execute("CREATE SEQUENCE " + SEQUENCE);
+                    jdbcTemplate.queryForObject("SELECT setval('" + SEQUENCE + "', " +
+                        "COALESCE((SELECT MAX(id) FROM expenses), 0) + 1, false)", Long.class);
+                    jdbcTemplate.execute("ALTER TABLE " + NEW_TABLE + " ALTER COLUMN id SET DEFAULT nextval('" + SEQUENCE + "')");
+
+                    jdbcTemplate.execute("DROP TABLE expenses");
+                    jdbcTemplate.execute("DROP FUNCTION " + CAPTURE_FUNCTION + "()");
+                    jdbcTemplate.execute("DROP TABLE " + CHANGE_LOG);
+                    jdbcTemplate.execute("ALTER TABLE " + NEW_TABLE + " RENAME TO expenses");
+                    jdbcTemplate.execute("ALTER SEQUENCE " + SEQUENCE + " OWNED BY expenses.id");
+                    jdbcTemplate.execute("ALTER TABLE expenses RENAME CONSTRAINT " + NEW_TABLE + "_pkey TO expenses_pkey");
+                    for (Map.Entry<String, String> index : indexNames.entrySet()) {
+                        jdbcTemplate.execute("ALTER INDEX " + index.getKey() + " RENAME TO " + index.getValue());
+                    }
+                });
+                return;
+            } catch (CannotAcquireLockException e) {
+                if (attempt >= swapAttempts) {
+                    throw new IllegalStateException("Could not lock expenses for the swap after " + attempt + " attempts", e);
+                }
+                logger.info("Expenses is busy, retrying the partition swap (attempt {} of {})", attempt, swapAttempts);
+                replayChanges(conversion, columns);
+            }
+        }
+    }
+
+    // Each statement commits on its own so a partly created set is still removed
+    static void dropConversionObjects(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS " + CAPTURE_FUNCTION + " ON expenses");
+        jdbcTemplate.execute("DROP FUNCTION IF EXISTS " + CAPTURE_FUNCTION + "()");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + CHANGE_LOG);
+        // Its partitions, expenses_default and expenses_YYYY_MM, go with it
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + NEW_TABLE);
+    }
+}
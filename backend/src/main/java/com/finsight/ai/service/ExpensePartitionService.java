@@ -0,0 +1,220 @@
+package com.finsight.ai.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Monthly range partitioning of the expenses table (opt-in with app.expenses.partitioning.enabled).
+ *
+ * Every expense query is bounded by user and date, so with one partition per month PostgreSQL only
+ * scans the months a query asks for. The table is converted on an operator's request by
+ * {@link ExpensePartitionConversionService}; this service keeps the partitions in step afterwards.
+ * Rows dated outside the existing partitions land in expenses_default until the daily job splits
+ * them out into their own month.
+ */
+@Service
+public class ExpensePartitionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpensePartitionService.class);
+
+    static final String DEFAULT_PARTITION = "expenses_default";
+    // Serializes partition maintenance across application instances
+    private static final long ADVISORY_LOCK_KEY = 0x45585041525431L;
+    // Held for the whole of a conversion, on its own connection
+    private static final long CONVERSION_LOCK_KEY = 0x45585041525432L;
+    // Hard limit, whatever months-ahead says: every partition costs planning time on every query
+    private static final int MAX_MONTHS_AHEAD = 24;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${app.expenses.partitioning.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.expenses.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    // Months outside the standing window only get their own partition once they hold this many rows
+    @Value("${app.expenses.partitioning.min-rows:1000}")
+    private long minRows;
+
+    @Scheduled(cron = "${app.expenses.partitioning.cron:0 30 2 * * *}")
+    public void createUpcomingPartitions() {
+        if (!enabled || !isPartitioned()) {
+            return;
+        }
+        for (YearMonth month : partitionMonths(DEFAULT_PARTITION)) {
+            try {
+                ensurePartition(month);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to create expense partition for {}: {}", month, e.getMessage());
+            }
+        }
+        Long left = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + DEFAULT_PARTITION, Long.class);
+        if (left != null && left > 0) {
+            logger.info("{} expenses stay in {} (beyond {} or in months with fewer than {} rows)",
+                left, DEFAULT_PARTITION, horizon(), minRows);
+        }
+    }
+
+    /**
+     * Drops what a conversion that died half way (crash, restart) left behind, most importantly
+     * the trigger that logs every expense write for it. Skipped while a conversion is running.
+     */
+    public void dropAbandonedConversion() {
+        if (!tableExists(ExpensePartitionConversionService.CHANGE_LOG)
+                && !tableExists(ExpensePartitionConversionService.NEW_TABLE)) {
+            return;
+        }
+        Boolean dropped = withConversionLock(() -> {
+            ExpensePartitionConversionService.dropConversionObjects(jdbcTemplate);
+            return true;
+        });
+        if (Boolean.TRUE.equals(dropped)) {
+            logger.warn("Dropped the leftovers of an unfinished expense partition conversion");
+        }
+    }
+
+    /**
+     * Runs the work while holding the conversion lock, or returns null without running it when
+     * another instance holds the lock. The lock is session level, so it lives on one connection.
+     */
+    <T> T withConversionLock(Supplier<T> work) {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!advisoryLock(connection, "pg_try_advisory_lock")) {
+                return null;
+            }
+            try {
+                return work.get();
+            } finally {
+                // The connection goes back to the pool still open, so the lock has to be released by hand
+                advisoryLock(connection, "pg_advisory_unlock");
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not take the expense conversion lock: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean advisoryLock(Connection connection, String function) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT " + function + "(?)")) {
+            statement.setLong(1, CONVERSION_LOCK_KEY);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * Creates the partition for a month. Rows for that month already sitting in the default
+     * partition would block the new bounds, so they are moved across in the same transaction.
+     */
+    private void ensurePartition(YearMonth month) {
+        String name = partitionName(month);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + ADVISORY_LOCK_KEY + ")");
+            if (tableExists(name)) {
+                return;
+            }
+            Date start = Date.valueOf(month.atDay(1));
+            Date end = Date.valueOf(month.plusMonths(1).atDay(1));
+            Boolean hasRows = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION + " WHERE date >= ? AND date < ?)",
+                Boolean.class, start, end);
+
+            if (!Boolean.TRUE.equals(hasRows)) {
+                jdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF expenses " + bounds(month));
+            } else {
+                jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE expenses INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING GENERATED)");
+                String columns = insertableColumns(jdbcTemplate, "expenses");
+                int moved = jdbcTemplate.update(
+                    "WITH moved AS (DELETE FROM " + DEFAULT_PARTITION + " WHERE date >= ? AND date < ? RETURNING *) " +
+                    "INSERT INTO " + name + " (" + columns + ") SELECT " + columns + " FROM moved",
+                    start, end);
+                jdbcTemplate.execute("ALTER TABLE expenses ATTACH PARTITION " + name + " " + bounds(month));
+                logger.info("Moved {} expenses from {} into {}", moved, DEFAULT_PARTITION, name);
+            }
+            logger.info("✅ Created expense partition {}", name);
+        });
+    }
+
+    /**
+     * The months that should have a partition of their own, given the rows in the table: always
+     * last month to the end of months-ahead, plus earlier months with at least min-rows rows.
+     * Nothing past the horizon gets one, so far-future dates stay in the default partition.
+     */
+    Set<YearMonth> partitionMonths(String table) {
+        YearMonth horizon = horizon();
+        Set<YearMonth> months = new TreeSet<>();
+        for (YearMonth month = YearMonth.now().minusMonths(1); !month.isAfter(horizon); month = month.plusMonths(1)) {
+            months.add(month);
+        }
+        jdbcTemplate.query("SELECT date_trunc('month', date)::date, COUNT(*) FROM " + table + " GROUP BY 1", rs -> {
+            YearMonth month = YearMonth.from(rs.getDate(1).toLocalDate());
+            if (!month.isAfter(horizon) && rs.getLong(2) >= minRows) {
+                months.add(month);
+            }
+        });
+        return months;
+    }
+
+    private YearMonth horizon() {
+        return YearMonth.now().plusMonths(Math.max(0, Math.min(monthsAhead, MAX_MONTHS_AHEAD)));
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    boolean isPartitioned() {
+        Integer count = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM pg_class WHERE relname = 'expenses' AND relkind = 'p'", Integer.class);
+        return count != null && count > 0;
+    }
+
+    private boolean tableExists(String name) {
+        Integer count = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM pg_class WHERE relname = ?", Integer.class, name);
+        return count != null && count > 0;
+    }
+
+    static String insertableColumns(JdbcTemplate jdbcTemplate, String table) {
+        return String.join(", ", jdbcTemplate.queryForList(
+            "SELECT column_name FROM information_schema.columns " +
+            "WHERE table_name = ? AND is_generated = 'NEVER' ORDER BY ordinal_position",
+            String.class, table));
+    }
+
+    static String partitionName(YearMonth month) {
+        return String.format("expenses_%04d_%02d", month.getYear(), month.getMonthValue());
+    }
+
+    static String bounds(YearMonth month) {
+        LocalDate start = month.atDay(1);
+        LocalDate end = month.plusMonths(1).atDay(1);
+        return "FOR VALUES FROM ('" + start + "') TO ('" + end + "')";
+    }
+}
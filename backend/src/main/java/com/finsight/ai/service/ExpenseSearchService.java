@@ -0,0 +1,95 @@
+package com.finsight.ai.service;
+
+import com.finsight.ai.dto.ExpenseResponseDto;
+import com.finsight.ai.entity.ExpenseCategory;
+import com.finsight.ai.entity.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Full-text search over expense descriptions and notes, backed by the generated
+ * expenses.search_vector column and its GIN index (see DatabaseMigrationService).
+ */
+@Service
+public class ExpenseSearchService {
+
+    private static final Pattern TERM = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final int MAX_TERMS = 8;
+
+    private static final RowMapper<ExpenseResponseDto> ROW_MAPPER = (rs, rowNum) -> new ExpenseResponseDto(
+        rs.getLong("id"),
+        rs.getString("description"),
+        rs.getBigDecimal("amount"),
+        ExpenseCategory.valueOf(rs.getString("category")),
+        rs.getDate("date").toLocalDate(),
+        rs.getString("receipt_url"),
+        rs.getString("notes"),
+        toLocalDateTime(rs.getTimestamp("created_at")),
+        toLocalDateTime(rs.getTimestamp("updated_at"))
+    );
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.expenses.search.default-limit:20}")
+    private int defaultLimit;
+
+    @Value("${app.expenses.search.max-limit:100}")
+    private int maxLimit;
+
+    public List<ExpenseResponseDto> searchExpenses(User user, String query, ExpenseCategory category,
+                                                   LocalDate startDate, LocalDate endDate, Integer limit) {
+        String tsQuery = toPrefixQuery(query);
+        if (tsQuery.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int pageSize = limit == null ? defaultLimit : Math.max(1, Math.min(limit, maxLimit));
+
+        StringBuilder sql = new StringBuilder(
+            "SELECT id, description, amount, category, date, receipt_url, notes, created_at, updated_at, " +
+            "ts_rank_cd(search_vector, q) AS rank " +
+            "FROM expenses, to_tsquery('simple', ?) q " +
+            "WHERE user_id = ? AND search_vector @@ q");
+        List<Object> params = new ArrayList<>();
+        params.add(tsQuery);
+        params.add(user.getId());
+        ExpenseSqlFilters.append(sql, params, category, startDate, endDate);
+        sql.append(" ORDER BY rank DESC, date DESC, id DESC LIMIT ?");
+        params.add(pageSize);
+
+        return jdbcTemplate.query(sql.toString(), ROW_MAPPER, params.toArray());
+    }
+
+    /**
+     * Turns free text into an AND of prefix terms ("uber ri" becomes "uber:* & ri:*"). Only letters and
+     * digits survive, so user input can never inject tsquery operators.
+     */
+    private static String toPrefixQuery(String query) {
+        if (query == null) {
+            return "";
+        }
+        List<String> terms = new ArrayList<>();
+        Matcher matcher = TERM.matcher(query.toLowerCase(Locale.ROOT));
+        while (matcher.find() && terms.size() < MAX_TERMS) {
+            terms.add(matcher.group() + ":*");
+        }
+        return String.join(" & ", terms);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
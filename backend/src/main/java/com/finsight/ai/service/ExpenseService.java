@@ -1,56 +1,110 @@
 package com.finsight.ai.service;
 
 import com.finsight.ai.dto.ExpenseDto;
-import com.finsight.ai.entity.Budget;
+import com.finsight.ai.dto.ExpensePageDto;
+import com.finsight.ai.dto.ExpenseResponseDto;
+import com.finsight.ai.entity.DataChange;
 import com.finsight.ai.entity.Expense;
 import com.finsight.ai.entity.ExpenseCategory;
 import com.finsight.ai.entity.RecurringExpense;
 import com.finsight.ai.entity.User;
-import com.finsight.ai.repository.BudgetRepository;
+import com.finsight.ai.repository.DailyCategoryTotalRepository;
 import com.finsight.ai.repository.ExpenseRepository;
 import com.finsight.ai.repository.RecurringExpenseRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class ExpenseService {
 
+    // Starting point for the first page: later than any stored expense
+    private static final LocalDate FIRST_PAGE_DATE = LocalDate.of(9999, 12, 31);
+
+    // Fields that can be requested with fields=, and the columns behind them
+    private static final Map<String, String> EXPENSE_FIELD_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        EXPENSE_FIELD_COLUMNS.put("id", "id");
+        EXPENSE_FIELD_COLUMNS.put("description", "description");
+        EXPENSE_FIELD_COLUMNS.put("amount", "amount");
+        EXPENSE_FIELD_COLUMNS.put("category", "category");
+        EXPENSE_FIELD_COLUMNS.put("date", "date");
+        EXPENSE_FIELD_COLUMNS.put("receiptUrl", "receipt_url");
+        EXPENSE_FIELD_COLUMNS.put("notes", "notes");
+        EXPENSE_FIELD_COLUMNS.put("createdAt", "created_at");
+        EXPENSE_FIELD_COLUMNS.put("updatedAt", "updated_at");
+    }
+
     @Autowired
     private ExpenseRepository expenseRepository;
 
+    @Autowired
+    private Validator validator;
+
     @Autowired
     private RecurringExpenseRepository recurringExpenseRepository;
 
     @Autowired
-    private BudgetRepository budgetRepository;
+    private DailyCategoryTotalRepository dailyCategoryTotalRepository;
 
     @Autowired
     private BudgetService budgetService;
 
+    @Autowired
+    private BudgetKeyIndex budgetKeyIndex;
+
+    @Autowired
+    private SpendCube spendCube;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.expenses.page-size.default:50}")
+    private int defaultPageSize;
+
+    @Value("${app.expenses.page-size.max:200}")
+    private int maxPageSize;
+
+    @Transactional
     public Expense createExpense(ExpenseDto expenseDto, User user) {
-        // Check if budget exists for this category, month, and year
+        // Refused from memory, before taking the user's lock, when there is no budget for that month
         LocalDate expenseDate = expenseDto.getDate();
-        Optional<Budget> budgetOpt = budgetRepository.findByUserAndCategoryAndMonthAndYear(
-            user, 
-            expenseDto.getCategory(), 
-            expenseDate.getMonthValue(), 
-            expenseDate.getYear()
-        );
-        
-        if (budgetOpt.isEmpty()) {
-            String categoryName = expenseDto.getCategory().getDisplayName();
-            String monthName = expenseDate.getMonth().name();
-            throw new IllegalArgumentException(
-                String.format("You must create a budget for %s in %s %d before adding expenses to this category.", 
-                    categoryName, monthName, expenseDate.getYear())
-            );
+        if (!budgetKeyIndex.hasBudget(user, expenseDto.getCategory(), expenseDate)) {
+            throw missingBudget(expenseDto.getCategory(), expenseDate);
+        }
+
+        dataVersionService.bump(user);
+
+        // Still authoritative: the budget may have been deleted since the user was loaded
+        if (budgetService.addToSpent(user, expenseDto.getCategory(), expenseDate, expenseDto.getAmount()).isEmpty()) {
+            throw missingBudget(expenseDto.getCategory(), expenseDate);
         }
         
         Expense expense = new Expense(
@@ -62,13 +116,7 @@ public class ExpenseService {
         );
 
         expense.setReceiptUrl(expenseDto.getReceiptUrl());
-        
-        // Validate and truncate notes if too long (max 1000 characters)
-        String notes = expenseDto.getNotes();
-        if (notes != null && notes.length() > 1000) {
-            notes = notes.substring(0, 997) + "...";
-        }
-        expense.setNotes(notes);
+        expense.setNotes(truncateNotes(expenseDto.getNotes()));
 
         if (expenseDto.getRecurringExpenseId() != null) {
             RecurringExpense recurringExpense = recurringExpenseRepository
@@ -78,13 +126,27 @@ public class ExpenseService {
         }
 
         Expense savedExpense = expenseRepository.save(expense);
-
-        // Update budget spent amount
-        budgetService.updateBudgetSpent(user, expenseDto.getCategory(), expenseDto.getDate());
+        dataVersionService.recordUpsert(user, DataChange.EXPENSE, savedExpense.getId());
+        addToDailyTotals(user, expenseDto.getCategory(), expenseDate, expenseDto.getAmount(), 1);
 
         return savedExpense;
     }
 
+    // Notes are limited to 1000 characters; longer ones are cut short rather than refused
+    private static String truncateNotes(String notes) {
+        if (notes != null && notes.length() > 1000) {
+            return notes.substring(0, 997) + "...";
+        }
+        return notes;
+    }
+
+    private static IllegalArgumentException missingBudget(ExpenseCategory category, LocalDate date) {
+        return new IllegalArgumentException(
+            String.format("You must create a budget for %s in %s %d before adding expenses to this category.",
+                category.getDisplayName(), date.getMonth().name(), date.getYear())
+        );
+    }
+
     public List<Expense> getUserExpenses(User user) {
         return expenseRepository.findByUserOrderByDateDesc(user);
     }
@@ -103,66 +165,259 @@ public class ExpenseService {
             user, category, startDate, endDate);
     }
 
-    public Expense updateExpense(Long expenseId, ExpenseDto expenseDto, User user) {
-        Expense expense = expenseRepository.findById(expenseId)
-            .orElseThrow(() -> new RuntimeException("Expense not found"));
+    public List<ExpenseResponseDto> getUserExpenseDtos(User user, ExpenseCategory category,
+                                                       LocalDate startDate, LocalDate endDate) {
+        if (startDate != null && endDate != null && category != null) {
+            return expenseRepository.findDtosByUserAndCategoryAndDateBetween(user, category, startDate, endDate);
+        } else if (startDate != null && endDate != null) {
+            return expenseRepository.findDtosByUserAndDateBetween(user, startDate, endDate);
+        } else if (category != null) {
+            return expenseRepository.findDtosByUserAndCategory(user, category);
+        }
+        return expenseRepository.findDtosByUser(user);
+    }
 
-        if (!expense.getUser().getId().equals(user.getId())) {
-            throw new RuntimeException("Unauthorized to update this expense");
+    public ExpensePageDto<ExpenseResponseDto> getUserExpensesPage(User user, ExpenseCategory category, LocalDate startDate,
+                                                                  LocalDate endDate, String cursor, Integer limit) {
+        int pageSize = pageSize(limit);
+        LocalDate afterDate = FIRST_PAGE_DATE;
+        Long afterId = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] position = decodeCursor(cursor);
+            afterDate = LocalDate.parse(position[0]);
+            afterId = Long.parseLong(position[1]);
         }
 
-        expense.setDescription(expenseDto.getDescription());
-        expense.setAmount(expenseDto.getAmount());
-        expense.setCategory(expenseDto.getCategory());
-        expense.setDate(expenseDto.getDate());
-        expense.setReceiptUrl(expenseDto.getReceiptUrl());
-        expense.setNotes(expenseDto.getNotes());
+        // Fetch one extra row to find out whether another page follows
+        Pageable pageable = PageRequest.of(0, pageSize + 1);
+        List<ExpenseResponseDto> expenses;
+        if (startDate != null && endDate != null && category != null) {
+            expenses = expenseRepository.findPageByUserAndCategoryAndDateBetween(user, category, startDate, endDate, afterDate, afterId, pageable);
+        } else if (startDate != null && endDate != null) {
+            expenses = expenseRepository.findPageByUserAndDateBetween(user, startDate, endDate, afterDate, afterId, pageable);
+        } else if (category != null) {
+            expenses = expenseRepository.findPageByUserAndCategory(user, category, afterDate, afterId, pageable);
+        } else {
+            expenses = expenseRepository.findPageByUser(user, afterDate, afterId, pageable);
+        }
 
-        Expense savedExpense = expenseRepository.save(expense);
+        if (expenses.size() <= pageSize) {
+            return new ExpensePageDto<>(expenses, null);
+        }
+        List<ExpenseResponseDto> page = expenses.subList(0, pageSize);
+        ExpenseResponseDto last = page.get(pageSize - 1);
+        return new ExpensePageDto<>(page, encodeCursor(last.getDate(), last.getId()));
+    }
 
-        // Update budget spent amount
-        budgetService.updateBudgetSpent(user, expenseDto.getCategory(), expenseDto.getDate());
+    /**
+     * GET /expenses?fields=... : selects only the columns behind the requested fields and returns
+     * rows holding just those fields.
+     */
+    public List<Map<String, Object>> getUserExpenseFields(User user, String fields, ExpenseCategory category,
+                                                          LocalDate startDate, LocalDate endDate) {
+        List<String> selected = SparseFields.parse(fields, EXPENSE_FIELD_COLUMNS.keySet());
+        List<Map<String, Object>> rows = queryExpenseColumns(user, selected, category, startDate, endDate, null, null, null);
+        return rows.stream().map(row -> selectFields(row, selected)).collect(Collectors.toList());
+    }
 
-        return savedExpense;
+    public ExpensePageDto<Map<String, Object>> getUserExpenseFieldsPage(User user, String fields, ExpenseCategory category,
+                                                                        LocalDate startDate, LocalDate endDate,
+                                                                        String cursor, Integer limit) {
+        List<String> selected = SparseFields.parse(fields, EXPENSE_FIELD_COLUMNS.keySet());
+        int pageSize = pageSize(limit);
+        LocalDate afterDate = FIRST_PAGE_DATE;
+        Long afterId = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] position = decodeCursor(cursor);
+            afterDate = LocalDate.parse(position[0]);
+            afterId = Long.parseLong(position[1]);
+        }
+
+        List<Map<String, Object>> rows = queryExpenseColumns(user, selected, category, startDate, endDate, afterDate, afterId, pageSize + 1);
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            Map<String, Object> last = rows.get(pageSize - 1);
+            nextCursor = encodeCursor((LocalDate) last.get("date"), (Long) last.get("id"));
+        }
+        List<Map<String, Object>> items = rows.stream().map(row -> selectFields(row, selected)).collect(Collectors.toList());
+        return new ExpensePageDto<>(items, nextCursor);
     }
 
-    public void deleteExpense(Long expenseId, User user) {
-        Expense expense = expenseRepository.findById(expenseId)
+    // Rows keyed by field name; id and date are always read since they order the rows and form the cursor
+    private List<Map<String, Object>> queryExpenseColumns(User user, List<String> fields, ExpenseCategory category,
+                                                          LocalDate startDate, LocalDate endDate,
+                                                          LocalDate afterDate, Long afterId, Integer maxRows) {
+        Set<String> columnFields = new LinkedHashSet<>(fields);
+        columnFields.add("id");
+        columnFields.add("date");
+        String columns = columnFields.stream().map(EXPENSE_FIELD_COLUMNS::get).collect(Collectors.joining(", "));
+
+        StringBuilder sql = new StringBuilder("SELECT ").append(columns).append(" FROM expenses WHERE user_id = ?");
+        List<Object> params = new ArrayList<>();
+        params.add(user.getId());
+        ExpenseSqlFilters.append(sql, params, category, startDate, endDate);
+        if (afterDate != null) {
+            sql.append(" AND (date < ? OR (date = ? AND id < ?))");
+            params.add(Date.valueOf(afterDate));
+            params.add(Date.valueOf(afterDate));
+            params.add(afterId);
+        }
+        sql.append(" ORDER BY date DESC, id DESC");
+        if (maxRows != null) {
+            sql.append(" LIMIT ?");
+            params.add(maxRows);
+        }
+
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : columnFields) {
+                row.put(field, SparseFields.readColumn(rs, EXPENSE_FIELD_COLUMNS.get(field)));
+            }
+            return row;
+        }, params.toArray());
+    }
+
+    private static Map<String, Object> selectFields(Map<String, Object> row, List<String> fields) {
+        Map<String, Object> selected = new LinkedHashMap<>();
+        for (String field : fields) {
+            selected.put(field, row.get(field));
+        }
+        return selected;
+    }
+
+    private int pageSize(Integer limit) {
+        return limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+    }
+
+    private static String encodeCursor(LocalDate date, Long id) {
+        String position = date + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = position.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            LocalDate.parse(parts[0]);
+            Long.parseLong(parts[1]);
+            return parts;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public Expense getUserExpense(Long expenseId, User user) {
+        return expenseRepository.findByIdAndUser(expenseId, user)
             .orElseThrow(() -> new RuntimeException("Expense not found"));
+    }
+
+    @Transactional
+    public Expense updateExpense(Long expenseId, ExpenseDto expenseDto, User user) {
+        // The native update skips the entity lifecycle, so apply what save() would have: the notes
+        // truncation and the entity's Bean Validation constraints
+        Expense updated = new Expense(expenseDto.getDescription(), expenseDto.getAmount(),
+            expenseDto.getCategory(), expenseDto.getDate(), user);
+        updated.setReceiptUrl(expenseDto.getReceiptUrl());
+        updated.setNotes(truncateNotes(expenseDto.getNotes()));
+        Set<ConstraintViolation<Expense>> violations = validator.validate(updated);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+
+        // bump() holds the user's row lock, so the old values can't change before the update below
+        dataVersionService.bump(user);
+        ExpenseRepository.BudgetKey old = expenseRepository.findBudgetKeyByIdAndUser(expenseId, user)
+            .orElseThrow(() -> new RuntimeException("Expense not found"));
+
+        // Move the amount between budgets, or adjust one budget by the difference. Moving it to a
+        // month without a budget is refused like a new expense would be, before anything is written.
+        boolean sameBudget = old.getCategory() == expenseDto.getCategory()
+            && YearMonth.from(old.getDate()).equals(YearMonth.from(expenseDto.getDate()));
+        if (sameBudget) {
+            BigDecimal delta = expenseDto.getAmount().subtract(old.getAmount());
+            if (delta.signum() != 0) {
+                budgetService.addToSpent(user, expenseDto.getCategory(), expenseDto.getDate(), delta);
+            }
+        } else {
+            if (budgetService.addToSpent(user, expenseDto.getCategory(), expenseDto.getDate(), expenseDto.getAmount()).isEmpty()) {
+                throw missingBudget(expenseDto.getCategory(), expenseDto.getDate());
+            }
+            budgetService.addToSpent(user, old.getCategory(), old.getDate(), old.getAmount().negate());
+        }
+
+        Expense savedExpense = expenseRepository.updateByIdAndUserId(
+                expenseId,
+                user.getId(),
+                updated.getDescription(),
+                updated.getAmount(),
+                updated.getCategory().name(),
+                updated.getDate(),
+                updated.getReceiptUrl(),
+                updated.getNotes())
+            .orElseThrow(() -> new RuntimeException("Expense not found"));
+        dataVersionService.recordUpsert(user, DataChange.EXPENSE, savedExpense.getId());
 
-        if (!expense.getUser().getId().equals(user.getId())) {
-            throw new RuntimeException("Unauthorized to delete this expense");
+        if (old.getCategory() == expenseDto.getCategory() && old.getDate().equals(expenseDto.getDate())) {
+            addToDailyTotals(user, expenseDto.getCategory(), expenseDto.getDate(), expenseDto.getAmount().subtract(old.getAmount()), 0);
+        } else {
+            addToDailyTotals(user, old.getCategory(), old.getDate(), old.getAmount().negate(), -1);
+            addToDailyTotals(user, expenseDto.getCategory(), expenseDto.getDate(), expenseDto.getAmount(), 1);
         }
 
-        ExpenseCategory category = expense.getCategory();
-        LocalDate date = expense.getDate();
+        return savedExpense;
+    }
 
-        expenseRepository.delete(expense);
+    @Transactional
+    public void deleteExpense(Long expenseId, User user) {
+        dataVersionService.bump(user);
+        Expense expense = expenseRepository.deleteByIdAndUserId(expenseId, user.getId())
+            .orElseThrow(() -> new RuntimeException("Expense not found"));
+        dataVersionService.recordDelete(user, DataChange.EXPENSE, expense.getId());
+        addToDailyTotals(user, expense.getCategory(), expense.getDate(), expense.getAmount().negate(), -1);
 
-        // Update budget spent amount
-        budgetService.updateBudgetSpent(user, category, date);
+        budgetService.addToSpent(user, expense.getCategory(), expense.getDate(), expense.getAmount().negate());
     }
 
+    // Aggregates are sums over the user's spend cube, an in-memory copy of the daily rollup
     public BigDecimal getTotalExpenses(User user, LocalDate startDate, LocalDate endDate) {
-        BigDecimal total = expenseRepository.getTotalExpensesBetweenDates(user, startDate, endDate);
-        return total != null ? total : BigDecimal.ZERO;
+        return SpendingMath.toAmount(spendCube.totalCents(user, startDate, endDate));
     }
 
     public Map<ExpenseCategory, BigDecimal> getExpensesByCategory(User user, LocalDate startDate, LocalDate endDate) {
-        List<Object[]> results = expenseRepository.getExpensesByCategoryBetweenDates(user, startDate, endDate);
-        return results.stream()
-            .collect(Collectors.toMap(
-                result -> (ExpenseCategory) result[0],
-                result -> (BigDecimal) result[1]
-            ));
+        SpendCube.Breakdown breakdown = spendCube.breakdown(user, startDate, endDate);
+        Map<ExpenseCategory, BigDecimal> totals = new EnumMap<>(ExpenseCategory.class);
+        for (ExpenseCategory category : ExpenseCategory.values()) {
+            if (breakdown.has(category)) {
+                totals.put(category, SpendingMath.toAmount(breakdown.cents(category)));
+            }
+        }
+        return totals;
     }
 
     public Map<LocalDate, BigDecimal> getDailyExpenses(User user, LocalDate startDate, LocalDate endDate) {
-        List<Object[]> results = expenseRepository.getDailyExpensesBetweenDates(user, startDate, endDate);
-        return results.stream()
-            .collect(Collectors.toMap(
-                result -> (LocalDate) result[0],
-                result -> (BigDecimal) result[1]
-            ));
+        SpendCube.Series daily = spendCube.daily(user, startDate, endDate);
+        Map<LocalDate, BigDecimal> totals = new LinkedHashMap<>();
+        for (int point = 0; point < daily.length(); point++) {
+            if (daily.count(point) > 0) {
+                totals.put(daily.day(point), SpendingMath.toAmount(daily.cents(point)));
+            }
+        }
+        return totals;
+    }
+
+    // Keeps user_daily_category_totals in step with the expense rows, inside the caller's transaction
+    private void addToDailyTotals(User user, ExpenseCategory category, LocalDate date, BigDecimal amount, int count) {
+        if (amount.signum() == 0 && count == 0) {
+            return;
+        }
+        dailyCategoryTotalRepository.add(user.getId(), date, category.name(), amount, count);
+        spendCube.add(user, category, date, amount, count);
+        if (count < 0) {
+            dailyCategoryTotalRepository.deleteIfEmpty(user.getId(), date, category.name());
+        }
     }
 }
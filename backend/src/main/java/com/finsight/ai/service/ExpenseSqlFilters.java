@@ -0,0 +1,28 @@
+package com.finsight.ai.service;
+
+import com.finsight.ai.entity.ExpenseCategory;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * The optional GET /expenses filters as SQL conditions, for the services that query expenses over JDBC.
+ */
+final class ExpenseSqlFilters {
+
+    private ExpenseSqlFilters() {}
+
+    static void append(StringBuilder sql, List<Object> params, ExpenseCategory category,
+                       LocalDate startDate, LocalDate endDate) {
+        if (startDate != null && endDate != null) {
+            sql.append(" AND date BETWEEN ? AND ?");
+            params.add(Date.valueOf(startDate));
+            params.add(Date.valueOf(endDate));
+        }
+        if (category != null) {
+            sql.append(" AND category = ?");
+            params.add(category.name());
+        }
+    }
+}
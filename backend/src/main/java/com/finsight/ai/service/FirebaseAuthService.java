@@ -1,9 +1,11 @@
 package com.finsight.ai.service;
 
+import com.finsight.ai.security.LocalIdTokenVerifier;
+import com.finsight.ai.security.VerifiedIdToken;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -11,11 +13,25 @@ public class FirebaseAuthService {
 
     private static final Logger logger = LoggerFactory.getLogger(FirebaseAuthService.class);
 
-    public FirebaseToken verifyToken(String idToken) {
+    @Autowired
+    private VerifiedTokenCache tokenCache;
+
+    @Autowired
+    private LocalIdTokenVerifier localIdTokenVerifier;
+
+    public VerifiedIdToken verifyToken(String idToken) {
+        // Tokens are verified without the revocation check, so a successful result stays valid until exp
+        VerifiedIdToken cached = tokenCache.get(idToken);
+        if (cached != null) {
+            return cached;
+        }
         try {
             logger.debug("Verifying Firebase token...");
-            FirebaseToken token = FirebaseAuth.getInstance().verifyIdToken(idToken);
+            VerifiedIdToken token = localIdTokenVerifier.isEnabled()
+                ? localIdTokenVerifier.verify(idToken)
+                : VerifiedIdToken.from(FirebaseAuth.getInstance().verifyIdToken(idToken));
             logger.debug("Token verified successfully for user: {}", token.getUid());
+            tokenCache.put(idToken, token);
             return token;
         } catch (Exception e) {
             logger.error("Firebase token verification failed: {}", e.getMessage());
@@ -24,12 +40,12 @@ public class FirebaseAuthService {
     }
 
     public String getUserIdFromToken(String idToken) {
-        FirebaseToken token = verifyToken(idToken);
+        VerifiedIdToken token = verifyToken(idToken);
         return token.getUid();
     }
 
     public String getEmailFromToken(String idToken) {
-        FirebaseToken token = verifyToken(idToken);
+        VerifiedIdToken token = verifyToken(idToken);
         return token.getEmail();
     }
 }
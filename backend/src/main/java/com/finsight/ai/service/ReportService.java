@@ -0,0 +1,129 @@
+package com.finsight.ai.service;
+
+import com.finsight.ai.dto.CategoryReportDto;
+import com.finsight.ai.dto.FinancialReportDto;
+import com.finsight.ai.dto.MonthlyTrendDto;
+import com.finsight.ai.entity.ExpenseCategory;
+import com.finsight.ai.entity.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Server-side reports for the Reports page. Each report is one aggregate query over the daily
+ * rollup, so the client receives the totals instead of the raw expense history.
+ */
+@Service
+public class ReportService {
+
+    // Daily rows, category rows and the grand total from a single scan of the range
+    private static final String FINANCIAL_SQL =
+        "SELECT day, category, SUM(total) AS total, SUM(expense_count) AS expense_count, " +
+        "GROUPING(day) AS no_day, GROUPING(category) AS no_category " +
+        "FROM user_daily_category_totals WHERE user_id = ? AND day BETWEEN ? AND ? " +
+        "GROUP BY GROUPING SETS ((day), (category), ())";
+
+    private static final String CATEGORY_SQL =
+        "SELECT category, SUM(total) AS total, SUM(expense_count) AS expense_count " +
+        "FROM user_daily_category_totals WHERE user_id = ? AND day BETWEEN ? AND ? " +
+        "GROUP BY category ORDER BY total DESC";
+
+    // Every month in the range, with its spending and the sum of that month's budget limits
+    private static final String MONTHLY_TRENDS_SQL =
+        "SELECT m.month_start, COALESCE(s.total, 0) AS total, COALESCE(s.expense_count, 0) AS expense_count, " +
+        "COALESCE(b.budget_limit, 0) AS budget_limit " +
+        "FROM (SELECT generate_series(?::date, ?::date, interval '1 month')::date AS month_start) m " +
+        "LEFT JOIN (SELECT date_trunc('month', day)::date AS month_start, SUM(total) AS total, SUM(expense_count) AS expense_count " +
+        "  FROM user_daily_category_totals WHERE user_id = ? AND day BETWEEN ? AND ? GROUP BY 1) s ON s.month_start = m.month_start " +
+        "LEFT JOIN (SELECT make_date(year, month, 1) AS month_start, SUM(monthly_limit) AS budget_limit " +
+        "  FROM budgets WHERE user_id = ? GROUP BY 1) b ON b.month_start = m.month_start " +
+        "ORDER BY m.month_start";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.reports.monthly-trends.default-months:12}")
+    private int defaultMonths;
+
+    @Value("${app.reports.monthly-trends.max-months:60}")
+    private int maxMonths;
+
+    public FinancialReportDto getFinancialReport(User user, LocalDate startDate, LocalDate endDate) {
+        validateRange(startDate, endDate);
+        FinancialReportDto report = new FinancialReportDto(startDate, endDate);
+        jdbcTemplate.query(FINANCIAL_SQL, rs -> {
+            BigDecimal total = rs.getBigDecimal("total");
+            if (total == null) {
+                return;
+            }
+            boolean noDay = rs.getInt("no_day") == 1;
+            boolean noCategory = rs.getInt("no_category") == 1;
+            if (noDay && noCategory) {
+                report.setTotalSpent(total);
+                report.setTransactionCount(rs.getLong("expense_count"));
+            } else if (noDay) {
+                report.getCategoryTotals().put(ExpenseCategory.valueOf(rs.getString("category")), total);
+            } else {
+                report.getDailyTotals().put(rs.getDate("day").toLocalDate(), total);
+            }
+        }, user.getId(), Date.valueOf(startDate), Date.valueOf(endDate));
+
+        if (report.getTransactionCount() > 0) {
+            report.setAverageTransaction(report.getTotalSpent()
+                .divide(BigDecimal.valueOf(report.getTransactionCount()), 2, RoundingMode.HALF_UP));
+        }
+        return report;
+    }
+
+    public List<CategoryReportDto> getExpensesByCategory(User user, LocalDate startDate, LocalDate endDate) {
+        validateRange(startDate, endDate);
+        List<CategoryReportDto> categories = new ArrayList<>();
+        BigDecimal[] grandTotal = {BigDecimal.ZERO};
+        jdbcTemplate.query(CATEGORY_SQL, rs -> {
+            BigDecimal total = rs.getBigDecimal("total");
+            grandTotal[0] = grandTotal[0].add(total);
+            categories.add(new CategoryReportDto(ExpenseCategory.valueOf(rs.getString("category")), total,
+                rs.getLong("expense_count"), null));
+        }, user.getId(), Date.valueOf(startDate), Date.valueOf(endDate));
+
+        for (CategoryReportDto category : categories) {
+            category.setPercentage(grandTotal[0].signum() == 0 ? 0.0
+                : category.getTotal().divide(grandTotal[0], 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100)).doubleValue());
+        }
+        return categories;
+    }
+
+    public List<MonthlyTrendDto> getMonthlyTrends(User user, Integer months) {
+        int count = months == null ? defaultMonths : months;
+        if (count < 1 || count > maxMonths) {
+            throw new RuntimeException("months must be between 1 and " + maxMonths);
+        }
+        YearMonth last = YearMonth.now();
+        YearMonth first = last.minusMonths(count - 1);
+        Date firstDay = Date.valueOf(first.atDay(1));
+        Date lastDay = Date.valueOf(last.atEndOfMonth());
+
+        return jdbcTemplate.query(MONTHLY_TRENDS_SQL,
+            (rs, rowNum) -> new MonthlyTrendDto(
+                YearMonth.from(rs.getDate("month_start").toLocalDate()).toString(),
+                rs.getBigDecimal("total"),
+                rs.getLong("expense_count"),
+                rs.getBigDecimal("budget_limit")),
+            firstDay, Date.valueOf(last.atDay(1)), user.getId(), firstDay, lastDay, user.getId());
+    }
+
+    private static void validateRange(LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            throw new RuntimeException("startDate must not be after endDate");
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.finsight.ai.service;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Parsing and column reading for the fields= parameter of the list endpoints.
+ */
+final class SparseFields {
+
+    private SparseFields() {}
+
+    static List<String> parse(String fields, Collection<String> available) {
+        List<String> selected = new ArrayList<>();
+        for (String raw : fields.split(",")) {
+            String field = raw.trim();
+            if (field.isEmpty() || selected.contains(field)) {
+                continue;
+            }
+            if (!available.contains(field)) {
+                throw new IllegalArgumentException("Unknown field '" + field + "'. Available fields: " + String.join(", ", available));
+            }
+            selected.add(field);
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("fields must name at least one field");
+        }
+        return selected;
+    }
+
+    // Same Java types the entities use, so the JSON looks the same as the full responses
+    static Object readColumn(ResultSet rs, String column) throws SQLException {
+        Object value = rs.getObject(column);
+        if (value instanceof Date date) {
+            return date.toLocalDate();
+        }
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,572 @@
+package com.finsight.ai.service;
+
+import com.finsight.ai.entity.ExpenseCategory;
+import com.finsight.ai.entity.User;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory copy of each user's daily rollup for analytics reads: amounts in cents, one cell per
+ * (day, category), held in flat primitive arrays with one block per month that has expenses.
+ * Totals, breakdowns and series are sums over a slice of those blocks, so repeated dashboard and
+ * chatbot queries never reach the database.
+ *
+ * Entries are tagged with the data version they reflect, like BudgetKeyIndex. An entry older than
+ * the caller's version is reloaded; expense writes on this instance are applied to it once they
+ * commit. The cache is bounded by the total number of cells and drops entries left idle; a user
+ * whose months alone would exceed that bound is never loaded and is read from the rollup instead.
+ */
+@Component
+public class SpendCube implements MeterBinder {
+
+    private static final String PENDING_RESOURCE_PREFIX = SpendCube.class.getName() + ".PENDING.";
+
+    private static final ExpenseCategory[] CATEGORY_VALUES = ExpenseCategory.values();
+    private static final int CATEGORIES = CATEGORY_VALUES.length;
+
+    // Cells of the longest month, the most one block can take
+    private static final int MAX_BLOCK_CELLS = 31 * CATEGORIES;
+
+    // Days as integers straight from the database, and the number of month blocks the entry needs
+    private static final String LOAD_SQL =
+        "SELECT u.data_version, t.category, t.expense_count, " +
+        "t.day - DATE '1970-01-01' AS epoch_day, ROUND(t.total * 100)::bigint AS cents, " +
+        "(SELECT COUNT(DISTINCT date_trunc('month', m.day)) FROM user_daily_category_totals m WHERE m.user_id = u.id) AS months " +
+        "FROM users u LEFT JOIN user_daily_category_totals t ON t.user_id = u.id WHERE u.id = ?";
+
+    // The same cells for one range, in day order like an entry's scan, for users too large to hold
+    private static final String RANGE_SQL =
+        "SELECT category, expense_count, day - DATE '1970-01-01' AS epoch_day, ROUND(total * 100)::bigint AS cents " +
+        "FROM user_daily_category_totals WHERE user_id = ? AND day BETWEEN ? AND ? ORDER BY day";
+
+    // Range ends passed to the database are clamped to the dates it can store and the driver writes
+    private static final LocalDate FIRST_SQL_DATE = LocalDate.of(1, 1, 1);
+    private static final LocalDate LAST_SQL_DATE = LocalDate.of(9999, 12, 31);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.analytics.spend-cube.max-cells:2000000}")
+    private long maxCells;
+
+    @Value("${app.analytics.spend-cube.idle-ms:600000}")
+    private long idleMillis;
+
+    // Set once the daily rollup has been filled; until then loaded entries are used but not kept
+    private volatile boolean rollupFilled;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    // Guarded by entries
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long cells;
+
+    public long totalCents(User user, LocalDate startDate, LocalDate endDate) {
+        long[] total = new long[1];
+        scan(user, startDate, endDate, (day, category, cents, count) -> total[0] += cents);
+        return total[0];
+    }
+
+    public long categoryCents(User user, ExpenseCategory category, LocalDate startDate, LocalDate endDate) {
+        int ordinal = category.ordinal();
+        long[] total = new long[1];
+        scan(user, startDate, endDate, (day, cellCategory, cents, count) -> {
+            if (cellCategory == ordinal) {
+                total[0] += cents;
+            }
+        });
+        return total[0];
+    }
+
+    public Breakdown breakdown(User user, LocalDate startDate, LocalDate endDate) {
+        Breakdown breakdown = new Breakdown();
+        scan(user, startDate, endDate, (day, category, cents, count) -> {
+            breakdown.cents[category] += cents;
+            breakdown.counts[category] += count;
+        });
+        return breakdown;
+    }
+
+    // One point per day with expenses from startDate to endDate, in date order
+    public Series daily(User user, LocalDate startDate, LocalDate endDate) {
+        Series series = new Series(0);
+        scan(user, startDate, endDate, (day, category, cents, count) -> series.addToDay(day, cents, count));
+        return series;
+    }
+
+    // One point per calendar month, starting with firstMonth
+    public Series monthly(User user, YearMonth firstMonth, int months) {
+        Series series = new Series(Math.max(months, 0));
+        if (months <= 0) {
+            return series;
+        }
+        for (int point = 0; point < months; point++) {
+            series.days[point] = firstMonth.plusMonths(point).atDay(1).toEpochDay();
+        }
+        LocalDate endDate = firstMonth.plusMonths(months - 1).atEndOfMonth();
+        scan(user, firstMonth.atDay(1), endDate, (day, category, cents, count) -> {
+            int point = Arrays.binarySearch(series.days, day);
+            if (point < 0) {
+                point = -point - 2;
+            }
+            series.cents[point] += cents;
+            series.counts[point] += count;
+        });
+        return series;
+    }
+
+    // The earliest day with expenses, or null when the user has none
+    public LocalDate firstDay(User user) {
+        long[] first = {Long.MAX_VALUE};
+        scan(user, LocalDate.MIN, LocalDate.MAX, (day, category, cents, count) -> {
+            if (count > 0 && day < first[0]) {
+                first[0] = day;
+            }
+        });
+        return first[0] == Long.MAX_VALUE ? null : LocalDate.ofEpochDay(first[0]);
+    }
+
+    /**
+     * Called by DataVersionService for every write; the entry follows the write once it commits.
+     */
+    void versionBumped(Long userId, long version) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(userId);
+            return;
+        }
+        PendingWrite pending = new PendingWrite(version);
+        String resource = PENDING_RESOURCE_PREFIX + userId;
+        TransactionSynchronizationManager.unbindResourceIfPossible(resource);
+        TransactionSynchronizationManager.bindResource(resource, pending);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(userId, pending);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(resource);
+            }
+        });
+    }
+
+    // Mirrors ExpenseService's changes to the daily rollup
+    public void add(User user, ExpenseCategory category, LocalDate date, BigDecimal amount, int count) {
+        PendingWrite pending = pending(user.getId());
+        if (pending == null) {
+            evict(user.getId());
+            return;
+        }
+        pending.deltas.add(new Delta(date.toEpochDay(), category.ordinal(), SpendingMath.toCents(amount), count));
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        synchronized (entries) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.lastAccessMillis < cutoff) {
+                    iterator.remove();
+                    cells -= entry.cells();
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long cells() {
+        synchronized (entries) {
+            return cells;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("finsight.analytics.spend.cube.requests", hits, AtomicLong::get)
+            .tag("result", "hit")
+            .description("Analytics reads answered by the in-memory spend cube")
+            .register(registry);
+        FunctionCounter.builder("finsight.analytics.spend.cube.requests", misses, AtomicLong::get)
+            .tag("result", "miss")
+            .description("Analytics reads answered by the in-memory spend cube")
+            .register(registry);
+        FunctionCounter.builder("finsight.analytics.spend.cube.evictions", evictions, AtomicLong::get)
+            .description("Users dropped from the spend cube because of size or idleness")
+            .register(registry);
+        Gauge.builder("finsight.analytics.spend.cube.size", this, SpendCube::size)
+            .description("Users currently held in the spend cube")
+            .register(registry);
+        Gauge.builder("finsight.analytics.spend.cube.cells", this, SpendCube::cells)
+            .description("Day and category cells currently held in the spend cube")
+            .register(registry);
+    }
+
+    // Every non-empty cell of the range, from the user's entry or, when too large to hold, the rollup
+    private void scan(User user, LocalDate startDate, LocalDate endDate, CellVisitor visitor) {
+        if (endDate.isBefore(startDate)) {
+            return;
+        }
+        Entry entry = entry(user);
+        if (entry == null) {
+            jdbcTemplate.query(RANGE_SQL, rs -> {
+                visitor.visit(rs.getLong("epoch_day"), ExpenseCategory.valueOf(rs.getString("category")).ordinal(),
+                    rs.getLong("cents"), rs.getInt("expense_count"));
+            }, user.getId(), clamp(startDate), clamp(endDate));
+            return;
+        }
+        synchronized (entry) {
+            entry.scan(startDate.toEpochDay(), endDate.toEpochDay(), visitor);
+        }
+    }
+
+    // Null when the user has more months of expenses than the cube may hold
+    private Entry entry(User user) {
+        long version = user.getDataVersion() != null ? user.getDataVersion() : 0L;
+        synchronized (entries) {
+            Entry entry = entries.get(user.getId());
+            // A newer entry only holds writes that have already committed
+            if (entry != null && entry.version >= version) {
+                hits.incrementAndGet();
+                entry.lastAccessMillis = System.currentTimeMillis();
+                return entry;
+            }
+        }
+
+        misses.incrementAndGet();
+        Entry entry = load(user.getId());
+        // A transaction that has written for this user would see its own uncommitted rows
+        if (entry != null && pending(user.getId()) == null && rollupFilled()) {
+            store(user.getId(), entry);
+        }
+        return entry;
+    }
+
+    // One statement, so the version and the totals come from the same snapshot. The month count
+    // arrives with the first row, so an entry that could not be kept is refused before allocating.
+    private Entry load(Long userId) {
+        return jdbcTemplate.query(LOAD_SQL, rs -> {
+            Entry entry = new Entry();
+            while (rs.next()) {
+                if (rs.getLong("months") * MAX_BLOCK_CELLS > maxCells) {
+                    return null;
+                }
+                entry.version = rs.getLong("data_version");
+                String category = rs.getString("category");
+                if (category != null) {
+                    entry.add(rs.getLong("epoch_day"), ExpenseCategory.valueOf(category).ordinal(),
+                        rs.getLong("cents"), rs.getInt("expense_count"));
+                }
+            }
+            return entry;
+        }, userId);
+    }
+
+    private boolean rollupFilled() {
+        if (!rollupFilled) {
+            rollupFilled = jdbcTemplate.queryForObject(DatabaseMigrationService.DAILY_TOTALS_MARKER_SQL, String.class) != null;
+        }
+        return rollupFilled;
+    }
+
+    private void store(Long userId, Entry entry) {
+        if (entry.cells() > maxCells) {
+            return;
+        }
+        synchronized (entries) {
+            Entry current = entries.get(userId);
+            if (current != null && current.version >= entry.version) {
+                return;
+            }
+            if (current != null) {
+                cells -= current.cells();
+            }
+            entries.put(userId, entry);
+            cells += entry.cells();
+            trim();
+        }
+    }
+
+    private void apply(Long userId, PendingWrite pending) {
+        synchronized (entries) {
+            Entry entry = entries.get(userId);
+            if (entry == null) {
+                return;
+            }
+            synchronized (entry) {
+                // Any write this instance didn't see in between means the entry can't be patched,
+                // and one that needs more months than the cube may hold means it can't be kept
+                if (entry.version != pending.version - 1 || !entry.fits(pending.deltas, maxCells)) {
+                    entries.remove(userId);
+                    cells -= entry.cells();
+                    return;
+                }
+                long before = entry.cells();
+                for (Delta delta : pending.deltas) {
+                    entry.add(delta.day, delta.category, delta.cents, delta.count);
+                }
+                entry.version = pending.version;
+                cells += entry.cells() - before;
+            }
+            trim();
+        }
+    }
+
+    // Least recently used first; called holding entries
+    private void trim() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (cells > maxCells && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            cells -= entry.cells();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void evict(Long userId) {
+        synchronized (entries) {
+            Entry entry = entries.remove(userId);
+            if (entry != null) {
+                cells -= entry.cells();
+            }
+        }
+    }
+
+    private static LocalDate clamp(LocalDate date) {
+        return date.isBefore(FIRST_SQL_DATE) ? FIRST_SQL_DATE : date.isAfter(LAST_SQL_DATE) ? LAST_SQL_DATE : date;
+    }
+
+    private static PendingWrite pending(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        return (PendingWrite) TransactionSynchronizationManager.getResource(PENDING_RESOURCE_PREFIX + userId);
+    }
+
+    /**
+     * Per-category totals and expense counts for a date range.
+     */
+    public static final class Breakdown {
+        private final long[] cents = new long[CATEGORIES];
+        private final long[] counts = new long[CATEGORIES];
+
+        public long cents(ExpenseCategory category) {
+            return cents[category.ordinal()];
+        }
+
+        public long count(ExpenseCategory category) {
+            return counts[category.ordinal()];
+        }
+
+        // Same rule as the rollup rows: a category is present while it has expenses in the range
+        public boolean has(ExpenseCategory category) {
+            return counts[category.ordinal()] > 0;
+        }
+
+        public boolean isEmpty() {
+            return totalCount() == 0;
+        }
+
+        public long totalCents() {
+            return SpendingMath.sum(cents);
+        }
+
+        public long totalCount() {
+            return SpendingMath.sum(counts);
+        }
+
+        // The present category with the highest total, or null when the range is empty
+        public ExpenseCategory largest() {
+            int largest = -1;
+            for (int category = 0; category < CATEGORIES; category++) {
+                if (counts[category] > 0 && (largest < 0 || cents[category] > cents[largest])) {
+                    largest = category;
+                }
+            }
+            return largest < 0 ? null : CATEGORY_VALUES[largest];
+        }
+
+        // Up to n present categories, highest total first
+        public List<ExpenseCategory> top(int n) {
+            int[] ordinals = new int[Math.min(n, CATEGORIES)];
+            int found = SpendingMath.topN(cents, ordinals.length, ordinals);
+            List<ExpenseCategory> top = new ArrayList<>(found);
+            for (int i = 0; i < found; i++) {
+                if (counts[ordinals[i]] > 0) {
+                    top.add(CATEGORY_VALUES[ordinals[i]]);
+                }
+            }
+            return top;
+        }
+
+        public List<ExpenseCategory> byTotalDescending() {
+            return top(CATEGORIES);
+        }
+    }
+
+    /**
+     * Totals and expense counts for a sequence of days or months, each point starting on day(point).
+     */
+    public static final class Series {
+        private long[] days;
+        private long[] cents;
+        private long[] counts;
+        private int length;
+
+        private Series(int length) {
+            this.days = new long[length];
+            this.cents = new long[length];
+            this.counts = new long[length];
+            this.length = length;
+        }
+
+        // Days arrive in order: a day adds to the last point if it is that day's, else starts one
+        private void addToDay(long day, long amountCents, long count) {
+            if (length == 0 || days[length - 1] != day) {
+                if (length == days.length) {
+                    int capacity = Math.max(16, length * 2);
+                    days = Arrays.copyOf(days, capacity);
+                    cents = Arrays.copyOf(cents, capacity);
+                    counts = Arrays.copyOf(counts, capacity);
+                }
+                days[length++] = day;
+            }
+            cents[length - 1] += amountCents;
+            counts[length - 1] += count;
+        }
+
+        public LocalDate day(int point) {
+            return LocalDate.ofEpochDay(days[point]);
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public long cents(int point) {
+            return cents[point];
+        }
+
+        public long count(int point) {
+            return counts[point];
+        }
+    }
+
+    @FunctionalInterface
+    private interface CellVisitor {
+        void visit(long day, int category, long cents, int count);
+    }
+
+    // The cells of one calendar month, day by day
+    private static final class Block {
+        private final long firstDay;
+        private final int days;
+        private final long[] cents;
+        private final int[] counts;
+
+        private Block(long firstDay) {
+            this.firstDay = firstDay;
+            this.days = LocalDate.ofEpochDay(firstDay).lengthOfMonth();
+            this.cents = new long[days * CATEGORIES];
+            this.counts = new int[days * CATEGORIES];
+        }
+    }
+
+    private static final class Entry {
+        private long version;
+        // Keyed by the first day of each month
+        private final TreeMap<Long, Block> blocks = new TreeMap<>();
+        private long cells;
+        private volatile long lastAccessMillis = System.currentTimeMillis();
+
+        private long cells() {
+            return cells;
+        }
+
+        private void scan(long from, long to, CellVisitor visitor) {
+            for (Block block : blocks.subMap(monthStart(from), true, to, true).values()) {
+                int start = (int) Math.max(from - block.firstDay, 0) * CATEGORIES;
+                int end = (int) Math.min(to - block.firstDay + 1, block.days) * CATEGORIES;
+                for (int cell = start; cell < end; cell++) {
+                    if (block.counts[cell] != 0 || block.cents[cell] != 0) {
+                        visitor.visit(block.firstDay + cell / CATEGORIES, cell % CATEGORIES, block.cents[cell], block.counts[cell]);
+                    }
+                }
+            }
+        }
+
+        // Whether the entry stays within maxCells once the months these deltas need are added
+        private boolean fits(List<Delta> deltas, long maxCells) {
+            long needed = cells;
+            Set<Long> added = new HashSet<>();
+            for (Delta delta : deltas) {
+                long month = monthStart(delta.day);
+                if (!blocks.containsKey(month) && added.add(month)) {
+                    needed += (long) LocalDate.ofEpochDay(month).lengthOfMonth() * CATEGORIES;
+                }
+            }
+            return needed <= maxCells;
+        }
+
+        private void add(long day, int category, long amountCents, int count) {
+            long month = monthStart(day);
+            Block block = blocks.get(month);
+            if (block == null) {
+                block = new Block(month);
+                blocks.put(month, block);
+                cells += block.cents.length;
+            }
+            int cell = (int) (day - month) * CATEGORIES + category;
+            block.cents[cell] += amountCents;
+            block.counts[cell] += count;
+        }
+
+        private static long monthStart(long day) {
+            return day - LocalDate.ofEpochDay(day).getDayOfMonth() + 1;
+        }
+    }
+
+    private record Delta(long day, int category, long cents, int count) {
+    }
+
+    private static final class PendingWrite {
+        private final long version;
+        private final List<Delta> deltas = new ArrayList<>();
+
+        private PendingWrite(long version) {
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.finsight.ai.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Arithmetic for spending analytics on amounts held as long cents.
+ *
+ * Amounts are converted once, at the edge, and everything after that is plain long arithmetic
+ * with no allocation. Every division rounds half away from zero, the rule the BigDecimal code
+ * used (RoundingMode.HALF_UP), and percentages are kept in basis points so they carry the same
+ * two decimals that divide(whole, 4, HALF_UP).multiply(100) produced.
+ */
+public final class SpendingMath {
+
+    public static final long BASIS_POINTS = 10_000L;
+
+    private SpendingMath() {
+    }
+
+    // Rounded the way numeric(14,2) rounds on insert, so figures agree with the stored amounts.
+    // Moving the point keeps the value in BigDecimal's compact long form; unscaledValue() would
+    // build a BigInteger for every amount.
+    public static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+
+    public static BigDecimal toAmount(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    // For display formatting only
+    public static double toDouble(long cents) {
+        return cents / 100.0;
+    }
+
+    // Null amounts count as zero
+    public static <T> long sumCents(List<T> items, Function<? super T, BigDecimal> amount) {
+        long total = 0;
+        for (int i = 0; i < items.size(); i++) {
+            BigDecimal value = amount.apply(items.get(i));
+            if (value != null) {
+                total = Math.addExact(total, toCents(value));
+            }
+        }
+        return total;
+    }
+
+    public static long sum(long[] cents) {
+        long total = 0;
+        for (long value : cents) {
+            total += value;
+        }
+        return total;
+    }
+
+    public static long divide(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) * 2 >= Math.abs(divisor)) {
+            quotient += (dividend < 0) == (divisor < 0) ? 1 : -1;
+        }
+        return quotient;
+    }
+
+    // Zero when there is nothing to average over
+    public static long average(long totalCents, long count) {
+        return count == 0 ? 0 : divide(totalCents, count);
+    }
+
+    // part / whole in hundredths of a percent, zero when whole is zero
+    public static long basisPoints(long part, long whole) {
+        return whole == 0 ? 0 : divide(Math.multiplyExact(part, BASIS_POINTS), whole);
+    }
+
+    public static double percent(long part, long whole) {
+        return basisPoints(part, whole) / 100.0;
+    }
+
+    // cents * numerator / denominator, e.g. the part of a total that a weight stands for
+    public static long share(long cents, long numerator, long denominator) {
+        return denominator == 0 ? 0 : divide(Math.multiplyExact(cents, numerator), denominator);
+    }
+
+    /**
+     * Writes the indices of the largest values into indices, largest first, and returns how many
+     * were written: at most n and at most indices.length. Ties keep the lower index first.
+     */
+    public static int topN(long[] values, int n, int[] indices) {
+        int limit = Math.min(n, indices.length);
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            long value = values[i];
+            if (size == limit && (limit == 0 || value <= values[indices[size - 1]])) {
+                continue;
+            }
+            int position = size < limit ? size++ : size - 1;
+            while (position > 0 && values[indices[position - 1]] < value) {
+                indices[position] = indices[position - 1];
+                position--;
+            }
+            indices[position] = i;
+        }
+        return size;
+    }
+}
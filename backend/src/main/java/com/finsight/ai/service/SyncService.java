@@ -0,0 +1,88 @@
+package com.finsight.ai.service;
+
+import com.finsight.ai.dto.SyncChangesDto;
+import com.finsight.ai.entity.DataChange;
+import com.finsight.ai.entity.User;
+import com.finsight.ai.repository.BudgetRepository;
+import com.finsight.ai.repository.DataChangeRepository;
+import com.finsight.ai.repository.ExpenseRepository;
+import com.finsight.ai.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Delta sync for the offline client. The cursor is the user's data version: every write bumps it
+ * and records the entities it touched in data_changes, so "changed since N" is an indexed lookup.
+ */
+@Service
+public class SyncService {
+
+    // Keeps IN lists well below the JDBC bind parameter limit
+    private static final int ID_CHUNK_SIZE = 1000;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DataChangeRepository dataChangeRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private BudgetRepository budgetRepository;
+
+    // One snapshot for the version, the change log and the rows, so the cursor matches the data returned
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public SyncChangesDto getChanges(User user, Long since) {
+        Long current = userRepository.findDataVersionById(user.getId());
+        if (current == null) {
+            throw new RuntimeException("User not found");
+        }
+
+        // No cursor, or one this server never handed out: send everything
+        if (since == null || since <= 0 || since > current) {
+            SyncChangesDto snapshot = new SyncChangesDto(current, true);
+            snapshot.setExpenses(expenseRepository.findDtosByUser(user));
+            snapshot.setBudgets(budgetRepository.findDtosByUser(user));
+            return snapshot;
+        }
+
+        SyncChangesDto changes = new SyncChangesDto(current, false);
+        if (since.equals(current)) {
+            return changes;
+        }
+
+        List<Long> expenseIds = new ArrayList<>();
+        List<Long> budgetIds = new ArrayList<>();
+        for (Object[] change : dataChangeRepository.findChangesSince(user.getId(), since)) {
+            String entityType = (String) change[0];
+            Long entityId = ((Number) change[1]).longValue();
+            if (DataChange.DELETE.equals(change[2])) {
+                changes.getDeleted().add(new SyncChangesDto.Tombstone(entityType, entityId));
+            } else if (DataChange.EXPENSE.equals(entityType)) {
+                expenseIds.add(entityId);
+            } else if (DataChange.BUDGET.equals(entityType)) {
+                budgetIds.add(entityId);
+            }
+        }
+
+        changes.setExpenses(loadInChunks(expenseIds, ids -> expenseRepository.findDtosByUserAndIdIn(user, ids)));
+        changes.setBudgets(loadInChunks(budgetIds, ids -> budgetRepository.findDtosByUserAndIdIn(user, ids)));
+        return changes;
+    }
+
+    private static <T> List<T> loadInChunks(List<Long> ids, Function<List<Long>, List<T>> loader) {
+        List<T> rows = new ArrayList<>();
+        for (int start = 0; start < ids.size(); start += ID_CHUNK_SIZE) {
+            rows.addAll(loader.apply(ids.subList(start, Math.min(start + ID_CHUNK_SIZE, ids.size()))));
+        }
+        return rows;
+    }
+}
@@ -3,11 +3,15 @@ package com.finsight.ai.service;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import com.finsight.ai.dto.UserRegistrationDto;
 import com.finsight.ai.entity.User;
+import com.finsight.ai.entity.UserProfilePicture;
+import com.finsight.ai.repository.UserProfilePictureRepository;
 import com.finsight.ai.repository.UserRepository;
 
 @Service
@@ -16,43 +20,37 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserProfilePictureRepository profilePictureRepository;
+
+    @Autowired
+    private AvatarStorageService avatarStorageService;
+
     @Autowired
     private FirebaseAuthService firebaseAuthService;
 
+    /**
+     * Registers the user in a single statement. Registering an existing Firebase UID again,
+     * including concurrently, returns the stored user instead of failing.
+     */
     @Transactional
     public User createUser(UserRegistrationDto userDto) {
-        // Check if user already exists by Firebase UID first (most reliable)
-        Optional<User> existingUser = userRepository.findByFirebaseUid(userDto.getFirebaseUid());
-        if (existingUser.isPresent()) {
-            // User already exists, return the existing user instead of throwing error
-            return existingUser.get();
-        }
-
-        // Check by email as well
-        if (userRepository.existsByEmail(userDto.getEmail())) {
+        User user;
+        try {
+            user = userRepository.insertOrGetByFirebaseUid(
+                userDto.getFirebaseUid(),
+                userDto.getEmail(),
+                userDto.getFirstName(),
+                userDto.getLastName(),
+                userDto.getCurrency() != null ? userDto.getCurrency() : "ZAR"
+            );
+        } catch (DataIntegrityViolationException e) {
+            // firebase_uid conflicts are absorbed by the upsert, so this is the email constraint
             throw new RuntimeException("User already exists with this email");
         }
 
-        User user = new User(
-            userDto.getFirebaseUid(),
-            userDto.getEmail(),
-            userDto.getFirstName(),
-            userDto.getLastName()
-        );
-        
-        user.setProfilePictureUrl(userDto.getProfilePictureUrl());
-        user.setCurrency(userDto.getCurrency());
-
-        try {
-            return userRepository.save(user);
-        } catch (Exception e) {
-            // If save fails due to constraint violation, try to return existing user
-            Optional<User> existingUserAfterError = userRepository.findByFirebaseUid(userDto.getFirebaseUid());
-            if (existingUserAfterError.isPresent()) {
-                return existingUserAfterError.get();
-            }
-            throw new RuntimeException("Failed to create user: " + e.getMessage(), e);
-        }
+        storeProfilePicture(user, userDto.getProfilePictureUrl());
+        return user;
     }
 
     public Optional<User> getUserByFirebaseUid(String firebaseUid) {
@@ -63,17 +61,59 @@ public class UserService {
         return userRepository.findByEmail(email);
     }
 
+    @Transactional
     public User updateUser(String firebaseUid, User updatedUser) {
         User user = userRepository.findByFirebaseUid(firebaseUid)
             .orElseThrow(() -> new RuntimeException("User not found"));
 
         user.setFirstName(updatedUser.getFirstName());
         user.setLastName(updatedUser.getLastName());
-        user.setProfilePictureUrl(updatedUser.getProfilePictureUrl());
         user.setDarkMode(updatedUser.getDarkMode());
         user.setCurrency(updatedUser.getCurrency());
 
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        storeProfilePicture(savedUser, updatedUser.getProfilePictureUrl());
+        return withProfilePicture(savedUser);
+    }
+
+    @Transactional
+    public User updateProfilePicture(User user, String imageData) {
+        storeProfilePicture(user, imageData);
+        return withProfilePicture(user);
+    }
+
+    public Optional<UserProfilePicture> getProfilePicture(User user) {
+        return profilePictureRepository.findById(user.getId());
+    }
+
+    /**
+     * Fills in the transient profile picture URL for responses that show the full profile.
+     * The URL names the picture by content hash, so it changes whenever the picture does.
+     */
+    public User withProfilePicture(User user) {
+        String url = profilePictureRepository.findById(user.getId())
+            .map(picture -> picture.getContentHash() == null ? picture.getExternalUrl()
+                : ServletUriComponentsBuilder.fromCurrentContextPath()
+                    .path("/users/profile/picture/{file}")
+                    .buildAndExpand(avatarStorageService.fileName(
+                        new AvatarStorageService.StoredAvatar(picture.getContentHash(), picture.getContentType())))
+                    .toUriString())
+            .orElse(null);
+        user.setProfilePictureUrl(url);
+        return user;
+    }
+
+    private void storeProfilePicture(User user, String imageData) {
+        if (imageData == null) {
+            return;
+        }
+        if (imageData.isEmpty()) {
+            profilePictureRepository.deleteByUserId(user.getId());
+        } else if (avatarStorageService.isImageData(imageData)) {
+            AvatarStorageService.StoredAvatar avatar = avatarStorageService.store(imageData);
+            profilePictureRepository.upsert(user.getId(), avatar.getHash(), avatar.getContentType());
+        }
+        // Anything else is a URL we handed out earlier (or a provider photo URL): leave the picture as is
     }
 
     public User getUserFromToken(String authToken) {
@@ -81,10 +121,4 @@ public class UserService {
         return userRepository.findByFirebaseUid(firebaseUid)
             .orElseThrow(() -> new RuntimeException("User not found"));
     }
-
-    public void deleteUser(String firebaseUid) {
-        User user = userRepository.findByFirebaseUid(firebaseUid)
-            .orElseThrow(() -> new RuntimeException("User not found"));
-        userRepository.delete(user);
-    }
 }
@@ -0,0 +1,132 @@
+package com.finsight.ai.service;
+
+import com.finsight.ai.security.VerifiedIdToken;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of already verified Firebase ID tokens.
+ *
+ * Entries are keyed by a SHA-256 hash of the raw token (the token itself is never kept as a key)
+ * and stay valid until the token's own {@code exp} claim, so a cached token is never accepted
+ * for longer than Firebase would accept it.
+ */
+@Component
+public class VerifiedTokenCache implements MeterBinder {
+
+    @Value("${app.auth.token-cache.max-entries:10000}")
+    private int maxEntries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final LinkedHashMap<String, CachedToken> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedToken> eldest) {
+            if (size() > maxEntries) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    public VerifiedIdToken get(String idToken) {
+        String key = hash(idToken);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            CachedToken cached = entries.get(key);
+            if (cached == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            if (cached.expiresAtMillis <= now) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return cached.token;
+        }
+    }
+
+    public void put(String idToken, VerifiedIdToken token) {
+        long expiresAtMillis = token.getExpiresAtMillis();
+        if (expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        String key = hash(idToken);
+        synchronized (entries) {
+            entries.put(key, new CachedToken(token, expiresAtMillis));
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("finsight.auth.token.cache.requests", hits, AtomicLong::get)
+            .tag("result", "hit")
+            .description("Verified token cache lookups")
+            .register(registry);
+        FunctionCounter.builder("finsight.auth.token.cache.requests", misses, AtomicLong::get)
+            .tag("result", "miss")
+            .description("Verified token cache lookups")
+            .register(registry);
+        FunctionCounter.builder("finsight.auth.token.cache.evictions", evictions, AtomicLong::get)
+            .description("Tokens removed from the cache because of size or expiry")
+            .register(registry);
+        Gauge.builder("finsight.auth.token.cache.size", this, VerifiedTokenCache::size)
+            .description("Verified tokens currently cached")
+            .register(registry);
+    }
+
+    private static String hash(String idToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(idToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static final class CachedToken {
+        private final VerifiedIdToken token;
+        private final long expiresAtMillis;
+
+        private CachedToken(VerifiedIdToken token, long expiresAtMillis) {
+            this.token = token;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
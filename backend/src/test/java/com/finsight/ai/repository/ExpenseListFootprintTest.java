@@ -0,0 +1,120 @@
+package com.finsight.ai.repository;
+
+import com.finsight.ai.dto.ExpenseResponseDto;
+import com.finsight.ai.entity.ExpenseCategory;
+import com.finsight.ai.entity.User;
+import com.finsight.ai.service.AvatarStorageService;
+import com.finsight.ai.service.DatabaseMigrationService;
+import com.finsight.ai.service.ExpensePartitionService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * GET /expenses for a user with 10k expenses, loading entities as the list did before and
+ * selecting straight into ExpenseResponseDto as it does now. Both run in a read-write
+ * transaction, like a request with the session held open for the view, so the entity path
+ * pays for its snapshots and the flush-time dirty check.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=update")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DatabaseMigrationService.class, AvatarStorageService.class, ExpensePartitionService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Testcontainers(disabledWithoutDocker = true)
+class ExpenseListFootprintTest {
+
+    private static final int EXPENSES = 10_000;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+    private User user;
+
+    @BeforeAll
+    void createExpenses() {
+        user = userRepository.save(new User("uid-list", "list@example.com", "Test", "User"));
+        String categories = Arrays.stream(ExpenseCategory.values())
+            .map(category -> "'" + category.name() + "'")
+            .collect(Collectors.joining(", "));
+        jdbcTemplate.update("INSERT INTO expenses (description, amount, category, date, user_id, notes, created_at, updated_at) " +
+            "SELECT 'Expense ' || g, 1 + (g % 5000) / 10.0, (ARRAY[" + categories + "])[1 + g % " + ExpenseCategory.values().length + "], " +
+            "DATE '2023-01-01' + (g % 730), ?, 'Note ' || g, now(), now() " +
+            "FROM generate_series(1, ?) g", user.getId(), EXPENSES);
+        jdbcTemplate.execute("VACUUM ANALYZE expenses");
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    void dtoProjectionReadsTheListWithoutManagedEntities() {
+        int[] managed = new int[2];
+        transaction.executeWithoutResult(status -> {
+            assertThat(entityList()).hasSize(EXPENSES);
+            managed[0] = managedEntities();
+        });
+        transaction.executeWithoutResult(status -> {
+            assertThat(expenseRepository.findDtosByUser(user)).hasSize(EXPENSES);
+            managed[1] = managedEntities();
+        });
+
+        Footprint before = Footprint.measure(5, 20, () -> transaction.execute(status -> entityList()));
+        Footprint after = Footprint.measure(5, 20, () -> transaction.execute(status -> expenseRepository.findDtosByUser(user)));
+        Footprint.report(String.format("GET /expenses with %,d rows (managed entities: %,d before, %,d after)",
+            EXPENSES, managed[0], managed[1]), before, after);
+
+        assertThat(managed[0]).isGreaterThanOrEqualTo(EXPENSES);
+        assertThat(managed[1]).isZero();
+        assertThat(after.bytesPerCall()).isLessThan(before.bytesPerCall());
+    }
+
+    // The list as it was served before: managed entities, read field by field into the response
+    private List<ExpenseResponseDto> entityList() {
+        return expenseRepository.findByUserOrderByDateDesc(user).stream()
+            .map(expense -> new ExpenseResponseDto(expense.getId(), expense.getDescription(), expense.getAmount(),
+                expense.getCategory(), expense.getDate(), expense.getReceiptUrl(), expense.getNotes(),
+                expense.getCreatedAt(), expense.getUpdatedAt()))
+            .collect(Collectors.toList());
+    }
+
+    private int managedEntities() {
+        return entityManager.unwrap(Session.class).getStatistics().getEntityCount();
+    }
+}
@@ -0,0 +1,182 @@
+package com.finsight.ai.repository;
+
+import com.finsight.ai.entity.ExpenseCategory;
+import com.finsight.ai.entity.User;
+import com.finsight.ai.service.AvatarStorageService;
+import com.finsight.ai.service.DatabaseMigrationService;
+import com.finsight.ai.service.ExpensePartitionService;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the expense list queries are answered from the indexes DatabaseMigrationService creates.
+ *
+ * The schema is built the way production builds it (Hibernate, then the migration runner) on a
+ * synthetic dataset large enough that a sequential scan would be a real choice for the planner.
+ * Repository queries are explained with the SQL Hibernate actually sends; the JDBC queries with
+ * the SQL the services build.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.hibernate.ddl-auto=update",
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.finsight.ai.repository.ExpenseQueryPlanTest$RecordingStatementInspector"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DatabaseMigrationService.class, AvatarStorageService.class, ExpensePartitionService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Testcontainers(disabledWithoutDocker = true)
+class ExpenseQueryPlanTest {
+
+    private static final int USERS = 500;
+    private static final int EXPENSES_PER_USER = 400;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    @BeforeAll
+    void createDataset() {
+        jdbcTemplate.update("INSERT INTO users (firebase_uid, email, first_name, last_name, dark_mode, currency, created_at, updated_at) " +
+            "SELECT 'uid-' || g, 'user' || g || '@example.com', 'Test', 'User', false, 'ZAR', now(), now() " +
+            "FROM generate_series(1, ?) g", USERS);
+        String categories = Arrays.stream(ExpenseCategory.values())
+            .map(category -> "'" + category.name() + "'")
+            .collect(Collectors.joining(", "));
+        jdbcTemplate.update("INSERT INTO expenses (description, amount, category, date, user_id, created_at, updated_at) " +
+            "SELECT 'Expense ' || g, 1 + (g % 5000) / 10.0, (ARRAY[" + categories + "])[1 + (g + u.id) % " + ExpenseCategory.values().length + "], " +
+            "DATE '2023-01-01' + (g % 730), u.id, now(), now() " +
+            "FROM users u CROSS JOIN generate_series(1, ?) g", EXPENSES_PER_USER);
+        // Index-only scans need an up-to-date visibility map
+        jdbcTemplate.execute("VACUUM ANALYZE expenses");
+        jdbcTemplate.execute("VACUUM ANALYZE users");
+
+        user = userRepository.findByFirebaseUid("uid-7").orElseThrow();
+    }
+
+    @Test
+    void keysetPageUsesUserDateIndex() {
+        String plan = explainRepositoryQuery(() ->
+            expenseRepository.findPageByUser(user, LocalDate.of(2024, 6, 1), Long.MAX_VALUE, PageRequest.of(0, 20)));
+
+        assertThat(plan).contains("idx_expenses_user_date").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void keysetPageWithDateRangeUsesUserDateIndex() {
+        String plan = explainRepositoryQuery(() ->
+            expenseRepository.findPageByUserAndDateBetween(user, LocalDate.of(2023, 3, 1), LocalDate.of(2023, 9, 30),
+                LocalDate.of(2023, 9, 30), Long.MAX_VALUE, PageRequest.of(0, 20)));
+
+        assertThat(plan).contains("idx_expenses_user_date").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void keysetPageByCategoryUsesUserCategoryDateIndex() {
+        String plan = explainRepositoryQuery(() ->
+            expenseRepository.findPageByUserAndCategory(user, ExpenseCategory.GROCERIES, LocalDate.of(2024, 6, 1),
+                Long.MAX_VALUE, PageRequest.of(0, 20)));
+
+        assertThat(plan).contains("idx_expenses_user_category_date").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void listByCategoryAndDateRangeUsesUserCategoryDateIndex() {
+        String plan = explainRepositoryQuery(() ->
+            expenseRepository.findDtosByUserAndCategoryAndDateBetween(user, ExpenseCategory.GROCERIES,
+                LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31)));
+
+        assertThat(plan).contains("idx_expenses_user_category_date").doesNotContain("Seq Scan");
+    }
+
+    // ?fields=amount,category as built by ExpenseService.queryExpenseColumns
+    @Test
+    void fieldSelectionIsAnsweredFromCoveringIndex() {
+        String plan = explain("SELECT amount, category, id, date FROM expenses WHERE user_id = ? " +
+            "ORDER BY date DESC, id DESC LIMIT ?", user.getId(), 50);
+
+        assertThat(plan).contains("Index Only Scan using idx_expenses_user_date").doesNotContain("Seq Scan");
+    }
+
+    // The per-budget sum used by BudgetReconciliationService when it corrects current_spent
+    @Test
+    void budgetMonthSumIsAnsweredFromCoveringIndex() {
+        String plan = explain("SELECT SUM(amount) FROM expenses WHERE user_id = ? AND category = ? " +
+            "AND date >= ? AND date < ?", user.getId(), ExpenseCategory.GROCERIES.name(),
+            Date.valueOf("2023-05-01"), Date.valueOf("2023-06-01"));
+
+        assertThat(plan).contains("Index Only Scan using idx_expenses_user_category_date").doesNotContain("Seq Scan");
+    }
+
+    private String explain(String sql, Object... params) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, params));
+    }
+
+    /**
+     * Runs the query, then explains the statement Hibernate sent for it. The values are not known
+     * here, so it is planned as a generic plan, which is what a prepared statement falls back to.
+     */
+    private String explainRepositoryQuery(Runnable query) {
+        RecordingStatementInspector.STATEMENTS.clear();
+        query.run();
+        String sql = RecordingStatementInspector.STATEMENTS.stream()
+            .filter(statement -> statement.toLowerCase().startsWith("select") && statement.contains("expenses"))
+            .reduce((first, second) -> second)
+            .orElseThrow(() -> new AssertionError("No expense query was sent"));
+
+        StringBuilder numbered = new StringBuilder();
+        int parameter = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                numbered.append('$').append(++parameter);
+            } else {
+                numbered.append(c);
+            }
+        }
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN (GENERIC_PLAN) " + numbered, String.class);
+        return String.join("\n", plan);
+    }
+
+    public static class RecordingStatementInspector implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
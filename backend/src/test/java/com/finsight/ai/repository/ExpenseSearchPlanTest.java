@@ -0,0 +1,148 @@
+package com.finsight.ai.repository;
+
+import com.finsight.ai.dto.ExpenseResponseDto;
+import com.finsight.ai.entity.ExpenseCategory;
+import com.finsight.ai.entity.User;
+import com.finsight.ai.service.AvatarStorageService;
+import com.finsight.ai.service.DatabaseMigrationService;
+import com.finsight.ai.service.ExpensePartitionService;
+import com.finsight.ai.service.ExpenseSearchService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * GET /expenses/search with date and category filters for a user with 120k expenses, in a table
+ * of 220k: the ranked prefix query must be answered from the (user_id, search_vector) GIN index
+ * and stay under 50 ms.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=update")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DatabaseMigrationService.class, AvatarStorageService.class, ExpensePartitionService.class, ExpenseSearchService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Testcontainers(disabledWithoutDocker = true)
+class ExpenseSearchPlanTest {
+
+    private static final int OTHER_USERS = 200;
+    private static final int EXPENSES_PER_OTHER_USER = 500;
+    private static final int HEAVY_USER_EXPENSES = 120_000;
+    private static final LocalDate START = LocalDate.of(2023, 1, 1);
+    private static final LocalDate END = LocalDate.of(2023, 12, 31);
+    private static final long MAX_MILLIS = 50;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ExpenseSearchService expenseSearchService;
+
+    private User user;
+
+    @BeforeAll
+    void createDataset() {
+        jdbcTemplate.update("INSERT INTO users (firebase_uid, email, first_name, last_name, dark_mode, currency, created_at, updated_at) " +
+            "SELECT 'uid-' || g, 'user' || g || '@example.com', 'Test', 'User', false, 'ZAR', now(), now() " +
+            "FROM generate_series(0, ?) g", OTHER_USERS);
+        user = userRepository.findByFirebaseUid("uid-0").orElseThrow();
+
+        // Everyday merchants, plus one in a thousand rows at a rarer one that is always FOOD_DINING
+        String categories = Arrays.stream(ExpenseCategory.values())
+            .map(category -> "'" + category.name() + "'")
+            .collect(Collectors.joining(", "));
+        String expenses = "INSERT INTO expenses (description, amount, category, date, user_id, created_at, updated_at) " +
+            "SELECT CASE WHEN g % 1000 = 0 THEN 'Kauai smoothie' " +
+            "  ELSE (ARRAY['Uber ride', 'Checkers groceries', 'Shell fuel', 'Netflix subscription', 'Woolworths food'])[1 + g % 5] || ' ' || g END, " +
+            "1 + (g % 5000) / 10.0, " +
+            "CASE WHEN g % 1000 = 0 THEN 'FOOD_DINING' ELSE (ARRAY[" + categories + "])[1 + (g / 5) % " + ExpenseCategory.values().length + "] END, " +
+            "DATE '2022-01-01' + (g % 1095), u.id, now(), now() " +
+            "FROM users u CROSS JOIN generate_series(1, ?) g WHERE ";
+        jdbcTemplate.update(expenses + "u.id = ?", HEAVY_USER_EXPENSES, user.getId());
+        jdbcTemplate.update(expenses + "u.id <> ?", EXPENSES_PER_OTHER_USER, user.getId());
+        jdbcTemplate.execute("VACUUM ANALYZE expenses");
+        jdbcTemplate.execute("VACUUM ANALYZE users");
+    }
+
+    @Test
+    void rankedPrefixSearchWithFiltersUsesSearchIndex() {
+        String plan = explainSearch("kau:*", ExpenseCategory.FOOD_DINING);
+
+        assertThat(plan).contains("idx_expenses_user_search").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void rankedPrefixSearchWithFiltersIsFast() {
+        assertThat(search("kau", ExpenseCategory.FOOD_DINING))
+            .isNotEmpty()
+            .allSatisfy(expense -> assertThat(expense.getDescription()).isEqualTo("Kauai smoothie"));
+        assertThat(medianMillis("kau", ExpenseCategory.FOOD_DINING)).isLessThan(MAX_MILLIS);
+    }
+
+    // A prefix shared by a fifth of the user's rows: every match in range is ranked before the limit applies
+    @Test
+    void commonPrefixSearchWithFiltersIsFast() {
+        String plan = explainSearch("ub:*", ExpenseCategory.TRANSPORTATION);
+        assertThat(plan).doesNotContain("Seq Scan");
+
+        assertThat(search("ub", ExpenseCategory.TRANSPORTATION)).isNotEmpty();
+        assertThat(medianMillis("ub", ExpenseCategory.TRANSPORTATION)).isLessThan(MAX_MILLIS);
+    }
+
+    private List<ExpenseResponseDto> search(String query, ExpenseCategory category) {
+        return expenseSearchService.searchExpenses(user, query, category, START, END, null);
+    }
+
+    private double medianMillis(String query, ExpenseCategory category) {
+        for (int i = 0; i < 5; i++) {
+            search(query, category);
+        }
+        long[] nanos = new long[21];
+        for (int i = 0; i < nanos.length; i++) {
+            long start = System.nanoTime();
+            search(query, category);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        double median = nanos[nanos.length / 2] / 1e6;
+        System.out.printf("search '%s' in %s, %s to %s: %.3f ms median%n", query, category, START, END, median);
+        return median;
+    }
+
+    // The statement ExpenseSearchService.searchExpenses builds with a date range and a category
+    private String explainSearch(String tsQuery, ExpenseCategory category) {
+        List<String> plan = jdbcTemplate.queryForList(
+            "EXPLAIN SELECT id, description, amount, category, date, receipt_url, notes, created_at, updated_at, " +
+            "ts_rank_cd(search_vector, q) AS rank " +
+            "FROM expenses, to_tsquery('simple', ?) q " +
+            "WHERE user_id = ? AND search_vector @@ q AND date BETWEEN ? AND ? AND category = ? " +
+            "ORDER BY rank DESC, date DESC, id DESC LIMIT ?",
+            String.class, tsQuery, user.getId(), Date.valueOf(START), Date.valueOf(END), category.name(), 20);
+        return String.join("\n", plan);
+    }
+}
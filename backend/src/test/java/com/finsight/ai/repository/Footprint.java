@@ -0,0 +1,54 @@
+package com.finsight.ai.repository;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Latency and heap allocated per call of a repository read, measured on the calling thread
+ * (the JDBC driver and Hibernate do their work there) after a warm-up.
+ */
+final class Footprint {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final double meanMillis;
+    private final double p95Millis;
+    private final long bytesPerCall;
+
+    private Footprint(double meanMillis, double p95Millis, long bytesPerCall) {
+        this.meanMillis = meanMillis;
+        this.p95Millis = p95Millis;
+        this.bytesPerCall = bytesPerCall;
+    }
+
+    static Footprint measure(int warmup, int iterations, Supplier<?> call) {
+        for (int i = 0; i < warmup; i++) {
+            call.get();
+        }
+        long thread = Thread.currentThread().getId();
+        long[] nanos = new long[iterations];
+        long bytesBefore = THREADS.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            call.get();
+            nanos[i] = System.nanoTime() - start;
+        }
+        long bytes = THREADS.getThreadAllocatedBytes(thread) - bytesBefore;
+        Arrays.sort(nanos);
+        return new Footprint(Arrays.stream(nanos).average().orElse(0) / 1e6,
+            nanos[(int) Math.ceil(iterations * 0.95) - 1] / 1e6, bytes / iterations);
+    }
+
+    long bytesPerCall() {
+        return bytesPerCall;
+    }
+
+    static void report(String name, Footprint before, Footprint after) {
+        System.out.printf("%s%n  before: %8.3f ms mean, %8.3f ms p95, %,12d B allocated per call%n" +
+                "  after:  %8.3f ms mean, %8.3f ms p95, %,12d B allocated per call%n",
+            name, before.meanMillis, before.p95Millis, before.bytesPerCall,
+            after.meanMillis, after.p95Millis, after.bytesPerCall);
+    }
+}
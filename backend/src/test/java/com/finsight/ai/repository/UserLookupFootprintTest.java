@@ -0,0 +1,108 @@
+package com.finsight.ai.repository;
+
+import com.finsight.ai.entity.User;
+import com.finsight.ai.service.AvatarStorageService;
+import com.finsight.ai.service.DatabaseMigrationService;
+import com.finsight.ai.service.ExpensePartitionService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The user lookup every authenticated request makes, with a 500 KB avatar, before and after the
+ * picture moved out of users: "before" is the same row with the base64 data URL back in a
+ * profile_picture_url column, read the way Hibernate read it.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=update")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DatabaseMigrationService.class, AvatarStorageService.class, ExpensePartitionService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Testcontainers(disabledWithoutDocker = true)
+class UserLookupFootprintTest {
+
+    private static final int AVATAR_BYTES = 500 * 1024;
+    private static final String UID = "uid-avatar";
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserProfilePictureRepository profilePictureRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeAll
+    void createUserWithAvatar() {
+        User user = userRepository.save(new User(UID, "avatar@example.com", "Test", "User"));
+        byte[] image = new byte[AVATAR_BYTES];
+        new Random(7).nextBytes(image);
+        String dataUrl = "data:image/png;base64," + Base64.getEncoder().encodeToString(image);
+
+        // After: the users row plus a reference to the stored file
+        profilePictureRepository.upsert(user.getId(), "0".repeat(64), "image/png");
+
+        // Before: the same row with the picture inline
+        jdbcTemplate.execute("CREATE TABLE users_with_avatar AS SELECT * FROM users");
+        jdbcTemplate.execute("ALTER TABLE users_with_avatar ADD COLUMN profile_picture_url TEXT");
+        jdbcTemplate.update("UPDATE users_with_avatar SET profile_picture_url = ? WHERE firebase_uid = ?", dataUrl, UID);
+        jdbcTemplate.execute("VACUUM ANALYZE users_with_avatar");
+    }
+
+    @Test
+    void lookupByFirebaseUidNoLongerReadsTheAvatar() {
+        long bytesBefore = rowBytes("users_with_avatar");
+        long bytesAfter = rowBytes("users");
+
+        Footprint before = Footprint.measure(50, 200, () -> entityManager
+            .createNativeQuery("SELECT * FROM users_with_avatar WHERE firebase_uid = :uid")
+            .setParameter("uid", UID)
+            .getResultList());
+        Footprint after = Footprint.measure(50, 200, () -> userRepository.findByFirebaseUid(UID).orElseThrow());
+
+        Footprint.report(String.format("findByFirebaseUid with a %d KB avatar (row returned: %,d B before, %,d B after)",
+            AVATAR_BYTES / 1024, bytesBefore, bytesAfter), before, after);
+
+        assertThat(bytesAfter).isLessThan(bytesBefore / 100);
+        assertThat(after.bytesPerCall()).isLessThan(before.bytesPerCall() / 10);
+    }
+
+    @Test
+    void avatarIsStillAvailableToTheProfileEndpoints() {
+        User user = userRepository.findByFirebaseUid(UID).orElseThrow();
+        assertThat(profilePictureRepository.findById(user.getId())).isPresent();
+    }
+
+    // Size of the row as sent to the client, in its text form
+    private long rowBytes(String table) {
+        List<Long> sizes = jdbcTemplate.queryForList(
+            "SELECT octet_length(t::text) FROM " + table + " t WHERE firebase_uid = ?", Long.class, UID);
+        return sizes.get(0);
+    }
+}
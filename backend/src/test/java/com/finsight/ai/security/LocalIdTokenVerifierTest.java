@@ -0,0 +1,114 @@
+package com.finsight.ai.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Key fetches on the request path: a login burst on a cold instance, or after a failed fetch,
+ * must cause one fetch, not one per waiting request.
+ */
+class LocalIdTokenVerifierTest {
+
+    private static final int THREADS = 16;
+
+    private final AtomicInteger fetches = new AtomicInteger();
+    private volatile boolean failing;
+
+    private LocalIdTokenVerifier verifier;
+
+    @BeforeEach
+    void createVerifier() {
+        verifier = new LocalIdTokenVerifier();
+        SigningKeySource slowSource = () -> {
+            fetches.incrementAndGet();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failing) {
+                throw new IllegalStateException("keys endpoint unavailable");
+            }
+            return new SigningKeySource.KeySet(Map.of(), Instant.now().plusSeconds(3600));
+        };
+        ReflectionTestUtils.setField(verifier, "signingKeySource", slowSource);
+        ReflectionTestUtils.setField(verifier, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(verifier, "verificationMode", "local");
+        ReflectionTestUtils.setField(verifier, "projectId", "test-project");
+    }
+
+    @Test
+    void burstOnAColdInstanceSharesEachFetch() throws Exception {
+        verifyTogether();
+
+        // One cold fetch, then one forced refresh for the unknown key id, shared by everyone
+        assertThat(fetches.get()).isEqualTo(2);
+    }
+
+    @Test
+    void burstAfterAFailedFetchDoesNotRetryUntilTheBackOffPasses() throws Exception {
+        failing = true;
+        verifyTogether();
+        assertThat(fetches.get()).isEqualTo(1);
+
+        assertThatThrownBy(() -> verifier.verify(token("k1")))
+            .hasMessageContaining("unknown key");
+        assertThat(fetches.get()).isEqualTo(1);
+
+        // Past the back-off: the cold fetch, then the forced refresh for the unknown key id
+        Thread.sleep(1100);
+        failing = false;
+        assertThatThrownBy(() -> verifier.verify(token("k1")))
+            .hasMessageContaining("unknown key");
+        assertThat(fetches.get()).isEqualTo(3);
+    }
+
+    // Every token names a key the source does not have, so each one ends in "unknown key"
+    private void verifyTogether() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    assertThatThrownBy(() -> verifier.verify(token("k1")))
+                        .hasMessageContaining("unknown key");
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static String token(String keyId) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String header = encoder.encodeToString(
+            ("{\"alg\":\"RS256\",\"kid\":\"" + keyId + "\"}").getBytes(StandardCharsets.UTF_8));
+        String claims = encoder.encodeToString("{}".getBytes(StandardCharsets.UTF_8));
+        return header + "." + claims + ".c2lnbmF0dXJl";
+    }
+}
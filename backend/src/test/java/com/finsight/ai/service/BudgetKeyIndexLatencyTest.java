@@ -0,0 +1,146 @@
+package com.finsight.ai.service;
+
+import com.finsight.ai.dto.BudgetDto;
+import com.finsight.ai.dto.ExpenseDto;
+import com.finsight.ai.entity.ExpenseCategory;
+import com.finsight.ai.entity.User;
+import com.finsight.ai.repository.UserRepository;
+import com.google.firebase.FirebaseApp;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doReturn;
+
+/**
+ * createExpense latency with the budget key index and without it (every check answered "maybe",
+ * leaving the decision to the spent update under the user's lock, as before the index), for
+ * accepted expenses and for expenses in a month without a budget. Also reports the index hit
+ * ratio over the run, read from its metrics.
+ */
+@SpringBootTest(properties = {
+    "app.cors.allowed-origins=http://localhost",
+    "ai.agent.api.url=http://localhost",
+    "ai.agent.api.key=test"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class BudgetKeyIndexLatencyTest {
+
+    private static final int WARMUP = 100;
+    private static final int ITERATIONS = 500;
+    private static final LocalDate MONTH_START = LocalDate.of(2024, 3, 1);
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @MockBean
+    private FirebaseApp firebaseApp;
+
+    @SpyBean
+    private BudgetKeyIndex budgetKeyIndex;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private BudgetService budgetService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Long userId;
+
+    @BeforeEach
+    void createUserWithBudget() {
+        String uid = UUID.randomUUID().toString();
+        userId = userRepository.save(new User(uid, uid + "@example.com", "Test", "User")).getId();
+        budgetService.createBudget(new BudgetDto(ExpenseCategory.FOOD_DINING, new BigDecimal("1000000.00"),
+            MONTH_START.getMonthValue(), MONTH_START.getYear()), freshUser());
+    }
+
+    @Test
+    void indexKeepsRejectedInsertsOffTheDatabase() {
+        ExpenseDto accepted = new ExpenseDto("Lunch", new BigDecimal("12.34"), ExpenseCategory.FOOD_DINING, MONTH_START);
+        ExpenseDto rejected = new ExpenseDto("Taxi", new BigDecimal("45.00"), ExpenseCategory.TRANSPORTATION, MONTH_START);
+
+        doReturn(true).when(budgetKeyIndex).hasBudget(any(), any(), any());
+        Latency acceptedBefore = measure(accepted);
+        Latency rejectedBefore = measure(rejected);
+
+        doCallRealMethod().when(budgetKeyIndex).hasBudget(any(), any(), any());
+        double hitsAtStart = indexRequests("hit");
+        double missesAtStart = indexRequests("miss");
+        Latency acceptedAfter = measure(accepted);
+        Latency rejectedAfter = measure(rejected);
+        double hits = indexRequests("hit") - hitsAtStart;
+        double misses = indexRequests("miss") - missesAtStart;
+        double hitRatio = hits / (hits + misses);
+
+        System.out.printf("createExpense, %d calls each (index hit ratio %.4f: %.0f hits, %.0f misses)%n" +
+                "  accepted  without index: %7.3f ms mean, %7.3f ms p95 | with index: %7.3f ms mean, %7.3f ms p95%n" +
+                "  rejected  without index: %7.3f ms mean, %7.3f ms p95 | with index: %7.3f ms mean, %7.3f ms p95%n",
+            ITERATIONS, hitRatio, hits, misses,
+            acceptedBefore.meanMillis, acceptedBefore.p95Millis, acceptedAfter.meanMillis, acceptedAfter.p95Millis,
+            rejectedBefore.meanMillis, rejectedBefore.p95Millis, rejectedAfter.meanMillis, rejectedAfter.p95Millis);
+
+        // Each accepted insert moves the entry forward on commit, so only the first check loads it
+        assertThat(hitRatio).isGreaterThan(0.99);
+        assertThat(rejectedAfter.meanMillis).isLessThan(rejectedBefore.meanMillis);
+    }
+
+    // A request loads the user, then creates the expense; only the create is timed
+    private Latency measure(ExpenseDto expense) {
+        for (int i = 0; i < WARMUP; i++) {
+            create(expense, freshUser());
+        }
+        long[] nanos = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            User user = freshUser();
+            long start = System.nanoTime();
+            create(expense, user);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return new Latency(Arrays.stream(nanos).average().orElse(0) / 1e6,
+            nanos[(int) Math.ceil(ITERATIONS * 0.95) - 1] / 1e6);
+    }
+
+    private void create(ExpenseDto expense, User user) {
+        try {
+            expenseService.createExpense(expense, user);
+        } catch (IllegalArgumentException e) {
+            assertThat(expense.getCategory()).isEqualTo(ExpenseCategory.TRANSPORTATION);
+        }
+    }
+
+    private double indexRequests(String result) {
+        return meterRegistry.get("finsight.budgets.key.index.requests").tag("result", result).functionCounter().count();
+    }
+
+    private User freshUser() {
+        return userRepository.findById(userId).orElseThrow();
+    }
+
+    private record Latency(double meanMillis, double p95Millis) {
+    }
+}
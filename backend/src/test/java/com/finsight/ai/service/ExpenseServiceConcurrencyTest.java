@@ -0,0 +1,244 @@
+package com.finsight.ai.service;
+
+import com.finsight.ai.dto.BudgetDto;
+import com.finsight.ai.dto.ExpenseDto;
+import com.finsight.ai.entity.Expense;
+import com.finsight.ai.entity.ExpenseCategory;
+import com.finsight.ai.entity.User;
+import com.finsight.ai.repository.UserRepository;
+import com.google.firebase.FirebaseApp;
+import jakarta.validation.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Parallel expense writes for one user must not lose updates to the amounts derived from them:
+ * each budget's current_spent, the daily category rollup, the data version and the spend cube.
+ */
+@SpringBootTest(properties = {
+    "app.cors.allowed-origins=http://localhost",
+    "ai.agent.api.url=http://localhost",
+    "ai.agent.api.key=test"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class ExpenseServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int WRITES_PER_THREAD = 20;
+    private static final LocalDate MONTH_START = LocalDate.of(2024, 3, 1);
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @MockBean
+    private FirebaseApp firebaseApp;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private BudgetService budgetService;
+
+    @Autowired
+    private SpendCube spendCube;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long userId;
+
+    @BeforeEach
+    void createUserWithBudgets() {
+        String uid = UUID.randomUUID().toString();
+        User user = userRepository.save(new User(uid, uid + "@example.com", "Test", "User"));
+        userId = user.getId();
+        for (ExpenseCategory category : List.of(ExpenseCategory.FOOD_DINING, ExpenseCategory.GROCERIES)) {
+            budgetService.createBudget(new BudgetDto(category, new BigDecimal("100000.00"),
+                MONTH_START.getMonthValue(), MONTH_START.getYear()), freshUser());
+        }
+    }
+
+    @Test
+    void parallelCreatesAndMovesKeepDerivedTotalsExact() throws Exception {
+        // Each thread adds expenses and moves every other one to the other budget and day
+        List<Callable<Void>> writers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            writers.add(() -> {
+                for (int i = 0; i < WRITES_PER_THREAD; i++) {
+                    LocalDate day = MONTH_START.plusDays((thread + i) % 28);
+                    Expense expense = expenseService.createExpense(
+                        new ExpenseDto("Lunch", new BigDecimal("12.34"), ExpenseCategory.FOOD_DINING, day), freshUser());
+                    if (i % 2 == 0) {
+                        expenseService.updateExpense(expense.getId(),
+                            new ExpenseDto("Groceries", new BigDecimal("20.01"), ExpenseCategory.GROCERIES, day.plusDays(1)),
+                            freshUser());
+                    }
+                }
+                return null;
+            });
+        }
+        runTogether(writers);
+
+        assertDerivedTotalsMatchExpenses();
+        long writes = (long) THREADS * WRITES_PER_THREAD * 3 / 2;
+        // Two budgets, then every create and update bumps exactly once
+        assertThat(dataVersion()).isEqualTo(2 + writes);
+    }
+
+    @Test
+    void parallelUpdatesOfOneExpenseLeaveItsLastAmountInTheBudget() throws Exception {
+        Expense expense = expenseService.createExpense(
+            new ExpenseDto("Dinner", new BigDecimal("10.00"), ExpenseCategory.FOOD_DINING, MONTH_START), freshUser());
+
+        List<Callable<Void>> writers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            writers.add(() -> {
+                for (int i = 0; i < WRITES_PER_THREAD; i++) {
+                    BigDecimal amount = new BigDecimal(thread * 100 + i + 1).movePointLeft(2).add(BigDecimal.ONE);
+                    ExpenseCategory category = (thread + i) % 2 == 0 ? ExpenseCategory.FOOD_DINING : ExpenseCategory.GROCERIES;
+                    expenseService.updateExpense(expense.getId(),
+                        new ExpenseDto("Dinner", amount, category, MONTH_START.plusDays(i % 5)), freshUser());
+                }
+                return null;
+            });
+        }
+        runTogether(writers);
+
+        assertDerivedTotalsMatchExpenses();
+        BigDecimal spent = jdbcTemplate.queryForObject(
+            "SELECT SUM(current_spent) FROM budgets WHERE user_id = ?", BigDecimal.class, userId);
+        BigDecimal amount = jdbcTemplate.queryForObject(
+            "SELECT amount FROM expenses WHERE id = ?", BigDecimal.class, expense.getId());
+        assertThat(spent).isEqualByComparingTo(amount);
+    }
+
+    @Test
+    void movingAnExpenseToAMonthWithoutBudgetIsRejectedAndChangesNothing() {
+        Expense expense = expenseService.createExpense(
+            new ExpenseDto("Taxi", new BigDecimal("45.00"), ExpenseCategory.FOOD_DINING, MONTH_START), freshUser());
+        long version = dataVersion();
+
+        assertThatThrownBy(() -> expenseService.updateExpense(expense.getId(),
+            new ExpenseDto("Taxi", new BigDecimal("45.00"), ExpenseCategory.TRANSPORTATION, MONTH_START), freshUser()))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("You must create a budget for");
+        assertThatThrownBy(() -> expenseService.updateExpense(expense.getId(),
+            new ExpenseDto("Taxi", new BigDecimal("45.00"), ExpenseCategory.FOOD_DINING, MONTH_START.plusMonths(1)), freshUser()))
+            .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT category FROM expenses WHERE id = ?", String.class, expense.getId()))
+            .isEqualTo(ExpenseCategory.FOOD_DINING.name());
+        assertThat(dataVersion()).isEqualTo(version);
+        assertDerivedTotalsMatchExpenses();
+    }
+
+    @Test
+    void updateTruncatesNotesAndValidatesLikeCreate() {
+        Expense expense = expenseService.createExpense(
+            new ExpenseDto("Books", new BigDecimal("30.00"), ExpenseCategory.FOOD_DINING, MONTH_START), freshUser());
+
+        ExpenseDto longNotes = new ExpenseDto("Books", new BigDecimal("30.00"), ExpenseCategory.FOOD_DINING, MONTH_START);
+        longNotes.setNotes("n".repeat(1500));
+        assertThat(expenseService.updateExpense(expense.getId(), longNotes, freshUser()).getNotes())
+            .hasSize(1000)
+            .endsWith("...");
+
+        long version = dataVersion();
+        assertThatThrownBy(() -> expenseService.updateExpense(expense.getId(),
+            new ExpenseDto(" ", new BigDecimal("30.00"), ExpenseCategory.FOOD_DINING, MONTH_START), freshUser()))
+            .isInstanceOf(ConstraintViolationException.class)
+            .hasMessageContaining("description");
+        assertThatThrownBy(() -> expenseService.updateExpense(expense.getId(),
+            new ExpenseDto("Books", new BigDecimal("0.00"), ExpenseCategory.FOOD_DINING, MONTH_START), freshUser()))
+            .isInstanceOf(ConstraintViolationException.class)
+            .hasMessageContaining("Amount must be greater than 0");
+
+        assertThat(jdbcTemplate.queryForObject("SELECT description FROM expenses WHERE id = ?", String.class, expense.getId()))
+            .isEqualTo("Books");
+        assertThat(dataVersion()).isEqualTo(version);
+        assertDerivedTotalsMatchExpenses();
+    }
+
+    // Every thread works with its own copy, the way each request loads the user
+    private User freshUser() {
+        return userRepository.findById(userId).orElseThrow();
+    }
+
+    private long dataVersion() {
+        return jdbcTemplate.queryForObject("SELECT data_version FROM users WHERE id = ?", Long.class, userId);
+    }
+
+    private void assertDerivedTotalsMatchExpenses() {
+        List<String> driftedBudgets = jdbcTemplate.queryForList(
+            "SELECT b.category FROM budgets b WHERE b.user_id = ? AND b.current_spent <> COALESCE((" +
+            "  SELECT SUM(e.amount) FROM expenses e WHERE e.user_id = b.user_id AND e.category = b.category " +
+            "  AND EXTRACT(YEAR FROM e.date) = b.year AND EXTRACT(MONTH FROM e.date) = b.month), 0)",
+            String.class, userId);
+        assertThat(driftedBudgets).as("budgets whose current_spent drifted").isEmpty();
+
+        List<String> driftedDays = jdbcTemplate.queryForList(
+            "SELECT COALESCE(t.day, e.date) || ' ' || COALESCE(t.category, e.category) " +
+            "FROM (SELECT * FROM user_daily_category_totals WHERE user_id = ?) t " +
+            "FULL JOIN (SELECT date, category, SUM(amount) AS total, COUNT(*) AS n FROM expenses WHERE user_id = ? " +
+            "  GROUP BY date, category) e ON e.date = t.day AND e.category = t.category " +
+            "WHERE COALESCE(t.total, 0) <> COALESCE(e.total, 0) OR COALESCE(t.expense_count, 0) <> COALESCE(e.n, 0)",
+            String.class, userId, userId);
+        assertThat(driftedDays).as("daily rollup rows that drifted").isEmpty();
+
+        BigDecimal total = jdbcTemplate.queryForObject(
+            "SELECT COALESCE(SUM(amount), 0) FROM expenses WHERE user_id = ? AND date BETWEEN ? AND ?",
+            BigDecimal.class, userId, Date.valueOf(MONTH_START), Date.valueOf(MONTH_START.plusMonths(1)));
+        assertThat(spendCube.totalCents(freshUser(), MONTH_START, MONTH_START.plusMonths(1)))
+            .isEqualTo(SpendingMath.toCents(total));
+    }
+
+    private static void runTogether(List<Callable<Void>> tasks) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(tasks.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Callable<Void> task : tasks) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
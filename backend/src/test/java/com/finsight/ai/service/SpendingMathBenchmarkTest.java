@@ -0,0 +1,144 @@
+package com.finsight.ai.service;
+
+import com.finsight.ai.entity.Expense;
+import com.finsight.ai.entity.ExpenseCategory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the long-cents kernel with the BigDecimal streams it replaced, on 100k expenses:
+ * the monthly total, and the per-category breakdown with the top three categories and their
+ * share of the total, as the tips and chatbot code computes them.
+ *
+ * A plain warm-up-then-measure loop rather than JMH, reporting time and bytes allocated per
+ * operation. Run with: mvn test -Dtest=SpendingMathBenchmarkTest -Dbenchmarks=true
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SpendingMathBenchmarkTest {
+
+    private static final int EXPENSES = 100_000;
+    private static final int WARMUP = 30;
+    private static final int ITERATIONS = 50;
+    private static final ExpenseCategory[] CATEGORIES = ExpenseCategory.values();
+
+    private final List<Expense> expenses = new ArrayList<>(EXPENSES);
+
+    // Keeps results reachable so the JIT cannot drop the work
+    private Object sink;
+
+    @BeforeAll
+    void createExpenses() {
+        Random random = new Random(42);
+        LocalDate day = LocalDate.of(2024, 3, 1);
+        for (int i = 0; i < EXPENSES; i++) {
+            BigDecimal amount = BigDecimal.valueOf(1 + random.nextInt(50_000), 2);
+            expenses.add(new Expense("Expense " + i, amount, CATEGORIES[random.nextInt(CATEGORIES.length)],
+                day.plusDays(i % 28), null));
+        }
+    }
+
+    @Test
+    void total() {
+        assertThat(SpendingMath.toAmount(SpendingMath.sumCents(expenses, Expense::getAmount)))
+            .isEqualByComparingTo(bigDecimalTotal());
+
+        Result before = measure(this::bigDecimalTotal);
+        Result after = measure(() -> SpendingMath.sumCents(expenses, Expense::getAmount));
+        report("total", before, after);
+    }
+
+    @Test
+    void topCategoriesWithShares() {
+        assertThat(kernelTopCategories()).isEqualTo(bigDecimalTopCategories());
+
+        Result before = measure(this::bigDecimalTopCategories);
+        Result after = measure(this::kernelTopCategories);
+        report("top 3 categories + percent", before, after);
+    }
+
+    // The code as it stood before SpendingMath
+    private BigDecimal bigDecimalTotal() {
+        return expenses.stream()
+            .map(Expense::getAmount)
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private Map<ExpenseCategory, Double> bigDecimalTopCategories() {
+        BigDecimal totalSpent = bigDecimalTotal();
+        Map<ExpenseCategory, BigDecimal> categorySpending = expenses.stream()
+            .collect(Collectors.groupingBy(Expense::getCategory,
+                Collectors.reducing(BigDecimal.ZERO, Expense::getAmount, BigDecimal::add)));
+        List<Map.Entry<ExpenseCategory, BigDecimal>> sortedCategories = categorySpending.entrySet().stream()
+            .sorted(Map.Entry.<ExpenseCategory, BigDecimal>comparingByValue().reversed())
+            .collect(Collectors.toList());
+        Map<ExpenseCategory, Double> top = new EnumMap<>(ExpenseCategory.class);
+        for (int i = 0; i < 3; i++) {
+            BigDecimal amount = sortedCategories.get(i).getValue();
+            top.put(sortedCategories.get(i).getKey(),
+                amount.divide(totalSpent, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100)).doubleValue());
+        }
+        return top;
+    }
+
+    private Map<ExpenseCategory, Double> kernelTopCategories() {
+        long[] cents = new long[CATEGORIES.length];
+        for (int i = 0; i < expenses.size(); i++) {
+            Expense expense = expenses.get(i);
+            cents[expense.getCategory().ordinal()] += SpendingMath.toCents(expense.getAmount());
+        }
+        long total = SpendingMath.sum(cents);
+        int[] ordinals = new int[3];
+        int found = SpendingMath.topN(cents, ordinals.length, ordinals);
+        Map<ExpenseCategory, Double> top = new EnumMap<>(ExpenseCategory.class);
+        for (int i = 0; i < found; i++) {
+            top.put(CATEGORIES[ordinals[i]], SpendingMath.percent(cents[ordinals[i]], total));
+        }
+        return top;
+    }
+
+    private Result measure(Supplier<?> operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            sink = operation.get();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long bestNanos = Long.MAX_VALUE;
+        long totalNanos = 0;
+        long bytesBefore = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            sink = operation.get();
+            long elapsed = System.nanoTime() - start;
+            totalNanos += elapsed;
+            bestNanos = Math.min(bestNanos, elapsed);
+        }
+        long bytes = threads.getThreadAllocatedBytes(thread) - bytesBefore;
+        return new Result(totalNanos / ITERATIONS, bestNanos, bytes / ITERATIONS);
+    }
+
+    private static void report(String name, Result before, Result after) {
+        System.out.printf("%-28s BigDecimal: %8.3f ms/op (best %8.3f), %,12d B/op | SpendingMath: %8.3f ms/op (best %8.3f), %,12d B/op%n",
+            name, before.meanNanos / 1e6, before.bestNanos / 1e6, before.bytes,
+            after.meanNanos / 1e6, after.bestNanos / 1e6, after.bytes);
+    }
+
+    private record Result(long meanNanos, long bestNanos, long bytes) {
+    }
+}
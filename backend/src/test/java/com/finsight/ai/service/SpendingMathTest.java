@@ -0,0 +1,76 @@
+package com.finsight.ai.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The long-cents kernel must give the same figures as the BigDecimal code it replaced.
+ */
+class SpendingMathTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    void divideRoundsHalfUpLikeBigDecimal() {
+        for (int i = 0; i < 100_000; i++) {
+            long dividend = random.nextInt(2_000_001) - 1_000_000;
+            long divisor = random.nextInt(2_001) - 1_000;
+            if (divisor == 0) {
+                continue;
+            }
+            long expected = BigDecimal.valueOf(dividend)
+                .divide(BigDecimal.valueOf(divisor), 0, RoundingMode.HALF_UP).longValueExact();
+            assertThat(SpendingMath.divide(dividend, divisor)).as("%d / %d", dividend, divisor).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void percentMatchesFourDigitBigDecimalDivision() {
+        for (int i = 0; i < 100_000; i++) {
+            long whole = 1 + random.nextInt(10_000_000);
+            long part = random.nextInt((int) whole + 1);
+            double expected = BigDecimal.valueOf(part, 2)
+                .divide(BigDecimal.valueOf(whole, 2), 4, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100)).doubleValue();
+            assertThat(SpendingMath.percent(part, whole)).as("%d of %d", part, whole).isEqualTo(expected);
+        }
+        assertThat(SpendingMath.percent(5, 0)).isZero();
+    }
+
+    @Test
+    void toCentsRoundsLikeTheAmountColumn() {
+        assertThat(SpendingMath.toCents(new BigDecimal("12.34"))).isEqualTo(1234);
+        assertThat(SpendingMath.toCents(new BigDecimal("12.345"))).isEqualTo(1235);
+        assertThat(SpendingMath.toCents(new BigDecimal("-12.345"))).isEqualTo(-1235);
+        assertThat(SpendingMath.toCents(new BigDecimal("7"))).isEqualTo(700);
+        assertThat(SpendingMath.toCents(new BigDecimal("1E+3"))).isEqualTo(100_000);
+        assertThat(SpendingMath.toAmount(1235)).isEqualTo(new BigDecimal("12.35"));
+    }
+
+    @Test
+    void sumCentsSkipsNullAmounts() {
+        assertThat(SpendingMath.sumCents(Arrays.asList(new BigDecimal("1.10"), null, new BigDecimal("2.25")), amount -> amount))
+            .isEqualTo(335);
+    }
+
+    @Test
+    void topNReturnsLargestFirstWithTiesInIndexOrder() {
+        long[] values = {5, 9, 1, 9, 7, 0};
+        int[] indices = new int[3];
+
+        assertThat(SpendingMath.topN(values, 3, indices)).isEqualTo(3);
+        assertThat(indices).containsExactly(1, 3, 4);
+
+        int[] all = new int[10];
+        assertThat(SpendingMath.topN(values, 10, all)).isEqualTo(values.length);
+        assertThat(Arrays.copyOf(all, values.length)).containsExactly(1, 3, 4, 0, 2, 5);
+
+        assertThat(SpendingMath.topN(values, 0, indices)).isZero();
+    }
+}
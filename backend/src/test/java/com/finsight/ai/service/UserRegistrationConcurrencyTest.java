@@ -0,0 +1,118 @@
+package com.finsight.ai.service;
+
+import com.finsight.ai.dto.UserRegistrationDto;
+import com.finsight.ai.entity.User;
+import com.google.firebase.FirebaseApp;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sign-up bursts for one Firebase UID, as sent by a client that retries or opens several tabs:
+ * every call must succeed with the same user and leave exactly one row behind.
+ */
+@SpringBootTest(properties = {
+    "app.cors.allowed-origins=http://localhost",
+    "ai.agent.api.url=http://localhost",
+    "ai.agent.api.key=test"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class UserRegistrationConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 50;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @MockBean
+    private FirebaseApp firebaseApp;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void parallelRegistrationsOfOneUidReturnTheSameUser() throws Exception {
+        long calls = 0;
+        long nanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            String uid = UUID.randomUUID().toString();
+            List<Callable<Long>> registrations = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                registrations.add(() -> userService.createUser(
+                    new UserRegistrationDto(uid, uid + "@example.com", "Test", "User")).getId());
+            }
+
+            long start = System.nanoTime();
+            List<Long> ids = runTogether(registrations);
+            nanos += System.nanoTime() - start;
+            calls += ids.size();
+
+            Set<Long> distinct = new HashSet<>(ids);
+            assertThat(distinct).as("ids returned for uid %s", uid).hasSize(1);
+            assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM users WHERE firebase_uid = ?", Long.class, uid)).isEqualTo(1L);
+            assertThat(jdbcTemplate.queryForObject(
+                "SELECT id FROM users WHERE firebase_uid = ?", Long.class, uid)).isEqualTo(ids.get(0));
+        }
+        System.out.printf("createUser: %d calls, %d threads per uid, %.0f calls/s%n",
+            calls, THREADS, calls / (nanos / 1e9));
+    }
+
+    @Test
+    void registeringAgainReturnsTheStoredUser() {
+        String uid = UUID.randomUUID().toString();
+        User first = userService.createUser(new UserRegistrationDto(uid, uid + "@example.com", "First", "User"));
+        User again = userService.createUser(new UserRegistrationDto(uid, uid + "@example.com", "Other", "Name"));
+
+        assertThat(again.getId()).isEqualTo(first.getId());
+        assertThat(again.getFirstName()).isEqualTo("First");
+    }
+
+    // Any exception, a unique constraint violation included, fails the test through Future.get
+    private static <T> List<T> runTogether(List<Callable<T>> tasks) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(tasks.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (Callable<T> task : tasks) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(2, TimeUnit.MINUTES));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.finsight.ai.service;
+
+import com.finsight.ai.security.VerifiedIdToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A cached token is served until its exp claim and never after it, and the cache stays
+ * within its size limit by dropping the least recently used token.
+ */
+class VerifiedTokenCacheTest {
+
+    private VerifiedTokenCache cache;
+
+    @BeforeEach
+    void createCache() {
+        cache = new VerifiedTokenCache();
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+    }
+
+    @Test
+    void servesAVerifiedTokenUntilItExpires() throws Exception {
+        VerifiedIdToken token = token("uid-1", System.currentTimeMillis() + 200);
+        cache.put("raw-1", token);
+
+        assertThat(cache.get("raw-1")).isSameAs(token);
+        assertThat(cache.get("raw-2")).isNull();
+
+        Thread.sleep(250);
+        assertThat(cache.get("raw-1")).isNull();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(2);
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotCacheAnAlreadyExpiredToken() {
+        cache.put("raw-1", token("uid-1", System.currentTimeMillis() - 1));
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.get("raw-1")).isNull();
+    }
+
+    @Test
+    void dropsTheLeastRecentlyUsedTokenWhenFull() {
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        cache.put("raw-1", token("uid-1", expiresAt));
+        cache.put("raw-2", token("uid-2", expiresAt));
+        assertThat(cache.get("raw-1")).isNotNull();
+
+        cache.put("raw-3", token("uid-3", expiresAt));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("raw-2")).isNull();
+        assertThat(cache.get("raw-1").getUid()).isEqualTo("uid-1");
+        assertThat(cache.get("raw-3").getUid()).isEqualTo("uid-3");
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+    }
+
+    private static VerifiedIdToken token(String uid, long expiresAtMillis) {
+        return new VerifiedIdToken(uid, uid + "@example.com", expiresAtMillis, Map.of());
+    }
+}
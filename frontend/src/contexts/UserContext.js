@@ -1,5 +1,6 @@
 import React, { createContext, useContext, useState, useEffect, useCallback } from 'react';
 import * as ApiService from '../services/api';
+import BudgetMonitor from '../services/budgetMonitor';
 import { useAuth } from './AuthContext';
 
 const UserContext = createContext();
@@ -148,6 +149,13 @@ export const UserProvider = ({ children }) => {
     };
   }, [currentUser, fetchUserProfile]);
 
+  // Budget alerts are pushed by the server for as long as someone is signed in
+  useEffect(() => {
+    if (!currentUser || !initialized) return undefined;
+    BudgetMonitor.start(userProfile.currency);
+    return () => BudgetMonitor.stop();
+  }, [currentUser, initialized, userProfile.currency]);
+
   const value = {
     userProfile,
     loading,
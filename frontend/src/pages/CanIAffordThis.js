@@ -10,7 +10,6 @@ import * as ApiService from '../services/api';
 import { expenseCategories, formatCurrency } from '../utils/helpers';
 import { useUser } from '../contexts/UserContext';
 import fastBarcodeDetectorService from '../services/fastBarcodeDetector';
-import BudgetMonitor from '../services/budgetMonitor';
 
 
 const CanIAffordThis = () => {
@@ -128,9 +127,6 @@ const CanIAffordThis = () => {
       };
       await ApiService.createExpense(expenseData);
 
-      // Check budgets after expense is added
-      await BudgetMonitor.checkBudgetsAfterExpense(expenseData, userProfile?.currency || 'ZAR');
-
       setAddSuccess(true);
       // Optionally, reset form
       setBarcode('');
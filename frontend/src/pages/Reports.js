@@ -40,7 +40,7 @@ import jsPDF from 'jspdf';
 import { Capacitor } from '@capacitor/core';
 import { Filesystem, Directory, Encoding } from '@capacitor/filesystem';
 import * as ApiService from '../services/api';
-import { formatCurrency, getDateRange, expenseCategories, chartColors, exportToCSV } from '../utils/helpers';
+import { formatCurrency, getDateRange, expenseCategories, chartColors, exportToCSV, parseLocalDate } from '../utils/helpers';
 import { useUser } from '../contexts/UserContext';
 import { useErrorHandler } from '../utils/errorHandler';
 import ErrorAlert from '../components/ErrorAlert';
@@ -79,8 +79,8 @@ const Reports = () => {
     startDate: null,
     endDate: null
   });
+  // Raw expenses are only downloaded when the user exports them
   const [expenses, setExpenses] = useState([]);
-  const [budgets, setBudgets] = useState([]);
   const { error, handleError, clearError } = useErrorHandler();
   const [reportData, setReportData] = useState({});
   const theme = useTheme();
@@ -132,14 +132,27 @@ const Reports = () => {
     };
   }, []);
 
+  const getSelectedDateRange = () => {
+    if (period === 'all') {
+      // For 'all' period, use user's account creation date or a very early date
+      return {
+        startDate: userProfile.createdAt ? new Date(userProfile.createdAt) : new Date('2000-01-01'),
+        endDate: customDate.endDate || new Date()
+      };
+    }
+    if (period === 'custom') {
+      return { startDate: customDate.startDate, endDate: customDate.endDate };
+    }
+    return getDateRange(period);
+  };
+
   const fetchReportData = async () => {
     try {
       setLoading(true);
+      setExpenses([]);
       
       // Don't fetch if custom date range is selected but dates aren't set
       if (period === 'custom' && (!customDate.startDate || !customDate.endDate)) {
-        setExpenses([]);
-        setBudgets([]);
         setReportData({
           totalSpent: 0,
           categoryTotals: {},
@@ -151,33 +164,17 @@ const Reports = () => {
         return;
       }
 
-      let dateRange;
-      if (period === 'all') {
-        // For 'all' period, use user's account creation date or a very early date
-        dateRange = {
-          startDate: userProfile.createdAt ? new Date(userProfile.createdAt) : new Date('2000-01-01'),
-          endDate: customDate.endDate || new Date()
-        };
-      } else if (period === 'custom') {
-        dateRange = { startDate: customDate.startDate, endDate: customDate.endDate };
-      } else {
-        dateRange = getDateRange(period);
-      }
-      
-      const expensesResponse = await ApiService.getExpenses({
-        startDate: dateRange.startDate.toISOString().split('T')[0],
-        endDate: dateRange.endDate.toISOString().split('T')[0],
+      // Totals are aggregated on the server; only the summary comes down
+      const dateRange = getSelectedDateRange();
+      const report = await ApiService.getFinancialReport(dateRange.startDate, dateRange.endDate);
+      setReportData({
+        totalSpent: Number(report?.totalSpent || 0),
+        categoryTotals: report?.categoryTotals || {},
+        dailyTotals: report?.dailyTotals || {},
+        transactionCount: report?.transactionCount || 0,
+        averageTransaction: Number(report?.averageTransaction || 0),
       });
 
-      const budgetsResponse = await ApiService.getBudgets();
-
-      setExpenses(expensesResponse || []);
-      setBudgets(budgetsResponse || []);
-
-      // Process data for reports
-      const data = processReportData(expensesResponse || []);
-      setReportData(data);
-
     } catch (error) {
       console.error('Error fetching report data:', error);
       handleError(error);
@@ -186,30 +183,17 @@ const Reports = () => {
     }
   };
 
-  const processReportData = (expenses) => {
-    const categoryTotals = {};
-    const dailyTotals = {};
-    let totalSpent = 0;
-
-    expenses.forEach(expense => {
-      const amount = parseFloat(expense.amount);
-      totalSpent += amount;
-
-      // Category totals
-      categoryTotals[expense.category] = (categoryTotals[expense.category] || 0) + amount;
-
-      // Daily totals
-      const date = new Date(expense.date).toLocaleDateString();
-      dailyTotals[date] = (dailyTotals[date] || 0) + amount;
+  const loadExpensesForExport = async () => {
+    if (expenses.length > 0) {
+      return expenses;
+    }
+    const dateRange = getSelectedDateRange();
+    const expensesResponse = await ApiService.getExpenses({
+      startDate: dateRange.startDate.toISOString().split('T')[0],
+      endDate: dateRange.endDate.toISOString().split('T')[0],
     });
-
-    return {
-      totalSpent,
-      categoryTotals,
-      dailyTotals,
-      transactionCount: expenses.length,
-      averageTransaction: expenses.length > 0 ? totalSpent / expenses.length : 0,
-    };
+    setExpenses(expensesResponse || []);
+    return expensesResponse || [];
   };
 
   const getCategoryChartData = () => {
@@ -228,7 +212,7 @@ const Reports = () => {
   const getDailyTrendData = () => {
     const sortedDates = Object.keys(reportData.dailyTotals || {}).sort();
     return {
-      labels: sortedDates,
+      labels: sortedDates.map(date => parseLocalDate(date).toLocaleDateString()),
       datasets: [{
         label: 'Daily Spending',
         data: sortedDates.map(date => reportData.dailyTotals[date]),
@@ -259,6 +243,7 @@ const Reports = () => {
   const exportToPDF = async () => {
     try {
       console.log('📄 Starting PDF export...');
+      const exportExpenses = await loadExpensesForExport();
       const pdf = new jsPDF();
       const pageWidth = pdf.internal.pageSize.getWidth();
       let yPos = 20;
@@ -297,17 +282,7 @@ const Reports = () => {
           });
         };
 
-        let dateRange;
-        if (period === 'all') {
-          dateRange = {
-            startDate: userProfile.createdAt ? new Date(userProfile.createdAt) : new Date('2000-01-01'),
-            endDate: new Date()
-          };
-        } else if (period === 'custom') {
-          dateRange = { startDate: customDate.startDate, endDate: customDate.endDate };
-        } else {
-          dateRange = getDateRange(period);
-        }
+        const dateRange = getSelectedDateRange();
 
         let periodText = '';
         if (period === 'custom' || period === 'all') {
@@ -378,10 +353,10 @@ const Reports = () => {
           // Table rows
           pdf.setFontSize(9);
           pdf.setFont(undefined, 'normal');
-          expenses
+          exportExpenses
             .filter(exp => exp.category === category)
             .forEach(exp => {
-              const expDate = new Date(exp.date);
+              const expDate = parseLocalDate(exp.date);
               const dateStr = `${expDate.getDate().toString().padStart(2, '0')}-${(expDate.getMonth()+1).toString().padStart(2, '0')}-${expDate.getFullYear()}`;
               // Alternate row color for eye-catching effect
               if ((yPos / 7) % 2 < 1) {
@@ -454,16 +429,17 @@ const Reports = () => {
     }
   };
 
-  const exportToCSVReport = () => {
+  const exportToCSVReport = async () => {
     try {
-      console.log('📊 Starting CSV export with', expenses.length, 'expenses...');
+      const exportExpenses = await loadExpensesForExport();
+      console.log('📊 Starting CSV export with', exportExpenses.length, 'expenses...');
       
-      if (!expenses || expenses.length === 0) {
+      if (exportExpenses.length === 0) {
         alert('No expenses to export for the selected period');
         return;
       }
       
-      const csvData = expenses.map(expense => ({
+      const csvData = exportExpenses.map(expense => ({
         Date: expense.date,
         Description: expense.description,
         Category: expenseCategories[expense.category]?.name || expense.category,
@@ -907,7 +883,7 @@ const Reports = () => {
         </Box>
 
         {/* Charts */}
-        {expenses.length > 0 ? (
+        {reportData.transactionCount > 0 ? (
           <Box sx={{ mb: 4 }}>
             <Box sx={{ display: 'flex', flexDirection: { xs: 'column', lg: 'row' }, gap: { xs: 3, lg: 3 } }}>
               <Box sx={{ flex: { xs: '1 1 100%', lg: '1 1 50%' } }}>
@@ -206,6 +206,50 @@ export const deleteBudget = async (id) => {
   });
 };
 
+// 🔔 Open the budget alert event stream. Uses fetch rather than EventSource so the auth header can be sent.
+// Resolves when the server closes the stream; onEvent receives { id, event, data } for every event.
+export const streamBudgetAlerts = async ({ lastEventId, onEvent, signal }) => {
+  const authToken = localStorage.getItem('authToken');
+  const response = await fetch(`${API_BASE_URL}/budgets/alerts/stream`, {
+    headers: {
+      'Accept': 'text/event-stream',
+      ...(authToken && { 'Authorization': `Bearer ${authToken}` }),
+      ...(lastEventId && { 'Last-Event-ID': lastEventId }),
+    },
+    signal,
+  });
+  if (!response.ok || !response.body) {
+    throw new Error(`Budget alert stream failed: ${response.status}`);
+  }
+
+  const reader = response.body.getReader();
+  const decoder = new TextDecoder();
+  let buffer = '';
+  for (;;) {
+    const { done, value } = await reader.read();
+    if (done) return;
+    buffer += decoder.decode(value, { stream: true });
+
+    // Events are separated by a blank line; lines starting with ':' are heartbeats
+    let separator;
+    while ((separator = buffer.search(/\r?\n\r?\n/)) !== -1) {
+      const block = buffer.slice(0, separator);
+      buffer = buffer.slice(separator).replace(/^\r?\n\r?\n/, '');
+      const message = { id: null, event: 'message', data: '' };
+      for (const line of block.split(/\r?\n/)) {
+        if (!line || line.startsWith(':')) continue;
+        const colon = line.indexOf(':');
+        const field = colon === -1 ? line : line.slice(0, colon);
+        const fieldValue = colon === -1 ? '' : line.slice(colon + 1).replace(/^ /, '');
+        if (field === 'id') message.id = fieldValue;
+        else if (field === 'event') message.event = fieldValue;
+        else if (field === 'data') message.data += (message.data ? '\n' : '') + fieldValue;
+      }
+      if (message.data) onEvent(message);
+    }
+  }
+};
+
 // 📈 Reports API functions
 export const getFinancialReport = async (startDate, endDate) => {
   const params = new URLSearchParams({
@@ -325,11 +369,16 @@ export const updateProfilePicture = async (base64Image) => {
 
 // 🗑️ User account functions
 export const deleteUser = async () => {
-  const response = await apiRequest('/users/profile', {
+  let job = await apiRequest('/users/profile', {
     method: 'DELETE',
   });
+  // Deletion runs as a background job on the server - wait for it to finish
+  while (job && (job.status === 'PENDING' || job.status === 'RUNNING')) {
+    await new Promise((resolve) => setTimeout(resolve, 1000));
+    job = await apiRequest(`/users/deletion-jobs/${job.id}`);
+  }
   // Return true if the deletion was successful
-  return response === "User deleted successfully";
+  return !!job && job.status === 'COMPLETED';
 };
 
 // 🎯 Multiple AI Tips function
@@ -6,9 +6,14 @@ import NotificationService from './notificationService';
 import * as ApiService from './api';
 import { formatCurrency, getCurrencySymbol } from '../utils/helpers';
 
+const LAST_EVENT_ID_KEY = 'budgetAlertLastEventId';
+
 class BudgetMonitorService {
   constructor() {
     this.isEnabled = true;
+    this.userCurrency = 'ZAR';
+    this.abortController = null;
+    this.reconnectTimer = null;
     this.loadSettings();
   }
 
@@ -21,79 +26,66 @@ class BudgetMonitorService {
   }
 
   /**
-   * Check budgets after an expense is added
+   * Listen for budget alerts pushed by the server. Threshold crossings are detected when an
+   * expense is written, so nothing here polls; a dropped stream reconnects and resumes from the
+   * last alert seen.
    */
-  async checkBudgetsAfterExpense(expenseData, userCurrency = 'ZAR') {
-    if (!this.isEnabled) {
-      console.log('🚨 Budget alerts disabled, skipping check');
-      return;
-    }
-
-    try {
-      console.log('🚨 Checking budgets after expense:', expenseData);
-      
-      // Get current budgets for this month
-      const now = new Date();
-      const budgets = await ApiService.getBudgets({
-        month: now.getMonth() + 1,
-        year: now.getFullYear()
-      });
-
-      if (!budgets || budgets.length === 0) {
-        console.log('🚨 No budgets found for current month');
-        return;
-      }
-
-      // Find the budget for the expense category
-      const relevantBudget = budgets.find(budget => 
-        budget.category === expenseData.category
-      );
-
-      if (!relevantBudget) {
-        console.log('🚨 No budget found for category:', expenseData.category);
-        return;
+  start(userCurrency = 'ZAR') {
+    this.userCurrency = userCurrency;
+    if (this.abortController) return;
+
+    const abortController = new AbortController();
+    this.abortController = abortController;
+    const connect = async (attempt = 0) => {
+      if (abortController.signal.aborted) return;
+      try {
+        await ApiService.streamBudgetAlerts({
+          lastEventId: localStorage.getItem(LAST_EVENT_ID_KEY),
+          signal: abortController.signal,
+          onEvent: (message) => this.handleStreamEvent(message),
+        });
+        attempt = 0;
+      } catch (error) {
+        if (abortController.signal.aborted) return;
+        console.error('🚨 Budget alert stream error:', error);
+        attempt += 1;
       }
+      // Back off up to a minute between failed attempts
+      const delay = Math.min(60000, 5000 * Math.max(1, attempt));
+      this.reconnectTimer = setTimeout(() => connect(attempt), delay);
+    };
+    connect();
+  }
 
-      // Calculate percentage spent
-      const spentAmount = relevantBudget.currentSpent || 0;
-      const budgetLimit = relevantBudget.monthlyLimit;
-      const percentage = Math.round((spentAmount / budgetLimit) * 100);
+  stop() {
+    if (this.abortController) {
+      this.abortController.abort();
+      this.abortController = null;
+    }
+    clearTimeout(this.reconnectTimer);
+  }
 
-      console.log(`🚨 Budget check: ${percentage}% spent (${spentAmount}/${budgetLimit}) for ${expenseData.category}`);
+  async handleStreamEvent(message) {
+    if (message.event !== 'budget-alert') return;
 
-      // Trigger notifications based on percentage
-      if (percentage >= 100) {
-        // Over budget - immediate alert
-        await this.triggerBudgetAlert(
-          relevantBudget.category,
-          spentAmount,
-          budgetLimit,
-          'over',
-          userCurrency
-        );
-      } else if (percentage >= 90) {
-        // Close to budget limit - warning
-        await this.triggerBudgetAlert(
-          relevantBudget.category,
-          spentAmount,
-          budgetLimit,
-          'warning',
-          userCurrency
-        );
-      } else if (percentage >= 80) {
-        // Getting close - info
-        await this.triggerBudgetAlert(
-          relevantBudget.category,
-          spentAmount,
-          budgetLimit,
-          'info',
-          userCurrency
-        );
-      }
+    // Every open tab receives the alert; only the first one to see it notifies
+    const lastSeen = Number(localStorage.getItem(LAST_EVENT_ID_KEY) || 0);
+    if (message.id && Number(message.id) <= lastSeen) return;
+    if (message.id) localStorage.setItem(LAST_EVENT_ID_KEY, message.id);
 
-    } catch (error) {
-      console.error('🚨 Error checking budgets:', error);
+    if (!this.isEnabled) {
+      console.log('🚨 Budget alerts disabled, ignoring alert');
+      return;
     }
+
+    const alert = JSON.parse(message.data);
+    await this.triggerBudgetAlert(
+      alert.category,
+      alert.currentSpent,
+      alert.monthlyLimit,
+      alert.threshold >= 100 ? 'over' : 'info',
+      this.userCurrency
+    );
   }
 
   /**
@@ -217,43 +209,6 @@ class BudgetMonitorService {
     this.isEnabled = enabled;
     console.log(`🚨 Budget monitoring ${enabled ? 'enabled' : 'disabled'}`);
   }
-
-  /**
-   * Check all budgets manually (for testing)
-   */
-  async checkAllBudgets() {
-    if (!this.isEnabled) {
-      console.log('🚨 Budget alerts disabled');
-      return;
-    }
-
-    try {
-      const now = new Date();
-      const budgets = await ApiService.getBudgets({
-        month: now.getMonth() + 1,
-        year: now.getFullYear()
-      });
-
-      console.log('🚨 Checking all budgets:', budgets);
-
-      for (const budget of budgets) {
-        const percentage = Math.round((budget.currentSpent / budget.monthlyLimit) * 100);
-        
-        if (percentage >= 80) {
-          const alertType = percentage >= 100 ? 'over' : percentage >= 90 ? 'warning' : 'info';
-          await this.triggerBudgetAlert(
-            budget.category,
-            budget.currentSpent,
-            budget.monthlyLimit,
-            alertType
-          );
-        }
-      }
-
-    } catch (error) {
-      console.error('🚨 Error checking all budgets:', error);
-    }
-  }
 }
 
 export default new BudgetMonitorService();
@@ -55,6 +55,12 @@ export const formatDate = (date) => {
   });
 };
 
+// Parses a 'YYYY-MM-DD' string as a local date; new Date('YYYY-MM-DD') would read it as UTC midnight
+export const parseLocalDate = (date) => {
+  const [year, month, day] = date.split('-').map(Number);
+  return new Date(year, month - 1, day);
+};
+
 export const formatDateForInput = (date) => {
   return new Date(date).toISOString().split('T')[0];
 };